@@ -5,18 +5,22 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
+import miniJava.SyntacticAnalyzer.PackedPosition;
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
 public abstract class AST {
 
   public AST (SourcePosition posn) {
-    this.posn = posn;
+    if (posn instanceof PackedPosition)
+      this.pos = ((PackedPosition) posn).pack();
+    else
+      this.posn = posn;
   }
   
   public String toString() {
       String fullClassName = this.getClass().getName();
       String cn = fullClassName.substring(1 + fullClassName.lastIndexOf('.'));
-      if (ASTDisplay.showPosition)
+      if (ASTDisplay.showPosition && posn != null)
     	  cn = cn + " " + posn.toString();
       return cn;
   }
@@ -24,4 +28,7 @@ public abstract class AST {
   public abstract <A,R> R visit(Visitor<A,R> v, A o);
 
   public SourcePosition posn;
+
+  // the packed position, when posn is null (see PackedPosition)
+  public long pos;
 }
@@ -5,6 +5,9 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
+import miniJava.SyntacticAnalyzer.LineIndex;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+
 /*
  * Display AST in text form
  *   In-order traversal of AST, visiting each node with a method of the form  
@@ -19,12 +22,23 @@ package miniJava.AbstractSyntaxTrees;
 public class ASTDisplay implements Visitor<String,Object> {
 	
 	public static boolean showPosition = false;
+	
+	// packed node positions are shown from the tree's index
+	private LineIndex lineIndex = null;
+	
+	// and shared leaves' positions from its table, by their parent
+	private LeafPositions leaves = null;
+	private AST leafParent = null;
     
     /**
      * print text representation of AST to stdout
      * @param ast root node of AST 
      */
     public void showTree(AST ast){
+        if (ast instanceof Package) {
+            lineIndex = ((Package) ast).lineIndex;
+            leaves = ((Package) ast).leaves;
+        }
         System.out.println("======= AST Display =========================");
         ast.visit(this, "");
         System.out.println("=============================================");
@@ -47,7 +61,26 @@ public class ASTDisplay implements Visitor<String,Object> {
      * @param node    AST node, will be shown by name
      */
     private void show(String prefix, AST node) {
-    	System.out.println(prefix + node.toString());
+    	System.out.println(prefix + name(node));
+    }
+    
+    /**
+     * a node's name, as AST.toString() gives it, with the position
+     * looked up if the node does not hold it as a SourcePosition
+     * @param node    AST node, maybe a leaf shared by several parents
+     */
+    private String name(AST node) {
+    	if (!showPosition || node.posn != null)
+    		return node.toString();
+    	SourcePosition p = null;
+    	if (leaves != null && leaves.isShared(node)) {
+    		p = leaves.position(leafParent);
+    		if (p == null && lineIndex != null)
+    			p = lineIndex.position(leaves.pos(leafParent));
+    	} else if (lineIndex != null) {
+    		p = lineIndex.position(node.pos);
+    	}
+    	return p == null ? node.toString() : node.toString() + " " + p;
     }
     
     /**
@@ -107,7 +140,8 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitFieldDecl(FieldDecl f, String arg){
        	show(arg, "(" + (f.isPrivate ? "private": "public") 
-    			+ (f.isStatic ? " static) " :") ") + f.toString());
+    			+ (f.isStatic ? " static) " :") ") + name(f));
+    	leafParent = f;
     	f.type.visit(this, indent(arg));
     	show(indent(arg), quote(f.name) + " fieldname");
         return null;
@@ -115,7 +149,8 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitMethodDecl(MethodDecl m, String arg){
        	show(arg, "(" + (m.isPrivate ? "private": "public") 
-    			+ (m.isStatic ? " static) " :") ") + m.toString());
+    			+ (m.isStatic ? " static) " :") ") + name(m));
+    	leafParent = m;
     	m.type.visit(this, indent(arg));
     	show(indent(arg), quote(m.name) + " methodname");
         ParameterDeclList pdl = m.parameterDeclList;
@@ -137,6 +172,7 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitParameterDecl(ParameterDecl pd, String arg){
         show(arg, pd);
+        leafParent = pd;
         pd.type.visit(this, indent(arg));
         show(indent(arg), quote(pd.name) + "parametername ");
         return null;
@@ -144,6 +180,7 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitVarDecl(VarDecl vd, String arg){
         show(arg, vd);
+        leafParent = vd;
         vd.type.visit(this, indent(arg));
         show(indent(arg), quote(vd.name) + " varname");
         return null;
@@ -157,7 +194,7 @@ public class ASTDisplay implements Visitor<String,Object> {
 	///////////////////////////////////////////////////////////////////////////////
     
     public Object visitBaseType(BaseType type, String arg){
-        show(arg, type.typeKind + " " + type.toString());
+        show(arg, type.typeKind + " " + name(type));
         return null;
     }
     
@@ -169,6 +206,7 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitArrayType(ArrayType type, String arg){
         show(arg, type);
+        leafParent = type;
         type.eltType.visit(this, indent(arg));
         return null;
     }
@@ -242,6 +280,7 @@ public class ASTDisplay implements Visitor<String,Object> {
 
     public Object visitUnaryExpr(UnaryExpr expr, String arg){
         show(arg, expr);
+        leafParent = expr;
         expr.operator.visit(this, indent(arg));
         expr.expr.visit(this, indent(indent(arg)));
         return null;
@@ -249,6 +288,7 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitBinaryExpr(BinaryExpr expr, String arg){
         show(arg, expr);
+        leafParent = expr;
         expr.operator.visit(this, indent(arg));
         expr.left.visit(this, indent(indent(arg)));
         expr.right.visit(this, indent(indent(arg)));
@@ -275,12 +315,14 @@ public class ASTDisplay implements Visitor<String,Object> {
     
     public Object visitLiteralExpr(LiteralExpr expr, String arg){
         show(arg, expr);
+        leafParent = expr;
         expr.literal.visit(this, indent(arg));
         return null;
     }
  
     public Object visitNewArrayExpr(NewArrayExpr expr, String arg){
         show(arg, expr);
+        leafParent = expr;
         expr.eltType.visit(this, indent(arg));
         expr.sizeExpr.visit(this, indent(arg));
         return null;
@@ -332,22 +374,22 @@ public class ASTDisplay implements Visitor<String,Object> {
 	///////////////////////////////////////////////////////////////////////////////
     
     public Object visitIdentifier(Identifier id, String arg){
-        show(arg, quote(id.spelling) + " " + id.toString());
+        show(arg, quote(id.spelling) + " " + name(id));
         return null;
     }
     
     public Object visitOperator(Operator op, String arg){
-        show(arg, quote(op.spelling) + " " + op.toString());
+        show(arg, quote(op.spelling) + " " + name(op));
         return null;
     }
     
     public Object visitIntLiteral(IntLiteral num, String arg){
-        show(arg, quote(num.spelling) + " " + num.toString());
+        show(arg, quote(num.spelling) + " " + name(num));
         return null;
     }
     
     public Object visitBooleanLiteral(BooleanLiteral bool, String arg){
-        show(arg, quote(bool.spelling) + " " + bool.toString());
+        show(arg, quote(bool.spelling) + " " + name(bool));
         return null;
     }
 }
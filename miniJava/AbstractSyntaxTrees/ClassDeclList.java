@@ -5,30 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class ClassDeclList implements Iterable<ClassDecl>
+public class ClassDeclList extends NodeList<ClassDecl>
 {
-	public ClassDeclList() {
-		classDeclList = new ArrayList<ClassDecl>();
-	}   
-
-	public void add(ClassDecl cd){
-		classDeclList.add(cd);
-	}
-
-	public ClassDecl get(int i){
-		return classDeclList.get(i);
-	}
-
-	public int size() {
-		return classDeclList.size();
-	}
-
-	public Iterator<ClassDecl> iterator() {
-		return classDeclList.iterator();
-	}
-
-	private List<ClassDecl> classDeclList;
+    private static final ClassDecl[] EMPTY = {};
+    
+    public ClassDeclList() {
+        super(EMPTY);
+    }
+    
+    // the list of classDecls exactly, see NodeList
+    public ClassDeclList(ClassDecl[] classDecls) {
+        super(classDecls);
+    }
 }
-
@@ -5,29 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class ExprList implements Iterable<Expression>
+public class ExprList extends NodeList<Expression>
 {
-    public ExprList() {
-        elist = new ArrayList<Expression>();
-    }
-    
-    public void add(Expression e){
-        elist.add(e);
-    }
+    private static final Expression[] EMPTY = {};
     
-    public Expression get(int i){
-        return elist.get(i);
-    }
-    
-    public int size() {
-        return elist.size();
+    public ExprList() {
+        super(EMPTY);
     }
     
-    public Iterator<Expression> iterator() {
-    	return elist.iterator();
+    // the list of exprs exactly, see NodeList
+    public ExprList(Expression[] exprs) {
+        super(exprs);
     }
-    
-    private List<Expression> elist;
-}
\ No newline at end of file
+}
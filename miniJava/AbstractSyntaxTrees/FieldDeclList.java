@@ -5,30 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class FieldDeclList implements Iterable<FieldDecl>
+public class FieldDeclList extends NodeList<FieldDecl>
 {
-	public FieldDeclList() {
-		fieldDeclList = new ArrayList<FieldDecl>();
-	}   
-
-	public void add(FieldDecl cd){
-		fieldDeclList.add(cd);
-	}
-
-	public FieldDecl get(int i){
-		return fieldDeclList.get(i);
-	}
-
-	public int size() {
-		return fieldDeclList.size();
-	}
-
-	public Iterator<FieldDecl> iterator() {
-		return fieldDeclList.iterator();
-	}
-
-	private List<FieldDecl> fieldDeclList;
+    private static final FieldDecl[] EMPTY = {};
+    
+    public FieldDeclList() {
+        super(EMPTY);
+    }
+    
+    // the list of fieldDecls exactly, see NodeList
+    public FieldDeclList(FieldDecl[] fieldDecls) {
+        super(fieldDecls);
+    }
 }
-
@@ -0,0 +1,726 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+import miniJava.SyntacticAnalyzer.LineIndex;
+import miniJava.SyntacticAnalyzer.NameTable;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.SyntacticAnalyzer.Token;
+
+/*
+ * an AST kept in a few parallel arrays instead of an object per
+ * node. a node is an index: node[] holds its kind and a payload,
+ * next[] its next sibling and pos[] its packed position (or posns[]
+ * its SourcePosition, for a tree parsed without packed positions).
+ * nodes are laid out in preorder, so a node's first child, if it has
+ * one, is the node right after it, and a subtree is a run of the
+ * arrays that later passes can walk without chasing pointers.
+ *
+ * every node has as many children as its class has AST fields, in
+ * the order its constructor takes them, with a NONE node for a null
+ * one. a NodeList is a LIST node whose payload is its size. the
+ * other payloads are a spelling, by its id in a NameTable, plus the
+ * modifiers of a member, or the TypeKind of a BaseType.
+ *
+ * view() is a Package over the arrays for the existing Visitors: each
+ * class is decoded into AST objects when it is got from the package's
+ * ClassDeclList, and dropped by the visitor after it, so ASTDisplay
+ * runs unchanged with no more than one class in objects at a time.
+ * the class got last is kept until another one is got, so getting it
+ * again gives the same objects, but a class got again after another
+ * is decoded again, into new ones: a pass must not rely on a node's
+ * identity, or on what it set in a node, once it has moved on to the
+ * next class. the view is read only.
+ * decoding and encoding use no recursion, so nesting depth is no limit.
+ *
+ * a tree read back by FlatTreeFile.map() is read straight from the
+ * mapped file instead of the arrays, with positions stored resolved
+ * and each spelling decoded the first time it is asked for
+ */
+public class FlatTree {
+	public static final int
+		PACKAGE			= 0,
+		CLASS			= 1,
+		FIELD			= 2,
+		METHOD			= 3,
+		PARAMETER		= 4,
+		VAR				= 5,
+		BASE_TYPE		= 6,
+		CLASS_TYPE		= 7,
+		ARRAY_TYPE		= 8,
+		BLOCK			= 9,
+		VAR_DECL_STMT	= 10,
+		ASSIGN			= 11,
+		CALL_STMT		= 12,
+		IF				= 13,
+		WHILE			= 14,
+		UNARY			= 15,
+		BINARY			= 16,
+		REF_EXPR		= 17,
+		CALL_EXPR		= 18,
+		LITERAL_EXPR	= 19,
+		NEW_OBJECT		= 20,
+		NEW_ARRAY		= 21,
+		QUALIFIED_REF	= 22,
+		INDEXED_REF		= 23,
+		ID_REF			= 24,
+		THIS_REF		= 25,
+		IDENTIFIER		= 26,
+		OPERATOR		= 27,
+		INT_LITERAL		= 28,
+		BOOLEAN_LITERAL	= 29,
+		LIST			= 30,
+		NONE			= 31;
+
+	// children of each kind, a LIST has as many as its payload says
+	private static final int[] ARITY = {
+		1, 2, 1, 4, 1, 1, 0, 1, 1, 1, 2, 2, 2, 3, 2, 2,
+		3, 1, 2, 1, 1, 2, 2, 2, 1, 0, 0, 0, 0, 0, -1, 0
+	};
+
+	private static final TypeKind[] TYPE_KINDS = TypeKind.values();
+	private static final int KIND_BITS = 5;
+	private static final int KIND_MASK = (1 << KIND_BITS) - 1;
+	// a member's modifiers, below its name in the payload
+	private static final int PRIVATE = 2, STATIC = 1;
+
+	private int[] node = new int[64];
+	private int[] next = new int[64];
+	private long[] pos = new long[64];
+	// only once a node has a SourcePosition
+	private SourcePosition[] posns;
+	private int size = 0;
+	private NameTable names = new NameTable();
+	private LineIndex lines;
+	// what is read, over the arrays or the mapped file
+	private IntBuffer nodes = IntBuffer.wrap(node);
+	private IntBuffer siblings = IntBuffer.wrap(next);
+	// a mapped tree's positions and spellings, see FlatTreeFile
+	private LongBuffer resolved;
+	private IntBuffer overflow;
+	private IntBuffer starts;
+	private ByteBuffer chars;
+	private String[] spellings;
+	// the last class added, see add()
+	private int lastClass = -1;
+
+	// an empty package, to add() classes to
+	public FlatTree() {
+		append(PACKAGE, 0, null);
+		append(LIST, 0, null);
+	}
+
+	// over a mapped file, see FlatTreeFile
+	FlatTree(IntBuffer nodes, IntBuffer siblings, LongBuffer resolved, IntBuffer overflow,
+			IntBuffer starts, ByteBuffer chars) {
+		this.nodes = nodes;
+		this.siblings = siblings;
+		this.resolved = resolved;
+		this.overflow = overflow;
+		this.starts = starts;
+		this.chars = chars;
+		size = nodes.limit();
+		names = null;
+		spellings = new String[starts.limit() - 1];
+	}
+
+	// the whole of p
+	public static FlatTree of(Package p) {
+		if(p.leaves != null)
+			throw new IllegalArgumentException("a tree with shared leaves cannot be flattened");
+		FlatTree t = new FlatTree();
+		for(ClassDecl cd : p.classDeclList)
+			t.add(cd);
+		t.finish(p);
+		return t;
+	}
+
+	/*
+	 * appends cd to the package's classes, e.g. from a ParseListener's
+	 * exitClass(), so the classes never are in objects all at once
+	 */
+	public void add(ClassDecl cd) {
+		int i = encode(cd);
+		if(lastClass >= 0)
+			next[lastClass] = i;
+		lastClass = i;
+		node[1] += 1 << KIND_BITS;
+	}
+
+	/*
+	 * takes the position and line index of p, the package parsed
+	 * (with or without its classes), and trims the arrays. a tree
+	 * whose leaves are shared is refused, their positions are only
+	 * in p.leaves, see LeafPositions
+	 */
+	public void finish(Package p) {
+		if(p.leaves != null)
+			throw new IllegalArgumentException("a tree with shared leaves cannot be flattened");
+		record(0, p);
+		lines = p.lineIndex;
+		node = Arrays.copyOf(node, size);
+		next = Arrays.copyOf(next, size);
+		nodes = IntBuffer.wrap(node);
+		siblings = IntBuffer.wrap(next);
+		pos = Arrays.copyOf(pos, size);
+		if(posns != null)
+			posns = Arrays.copyOf(posns, size);
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int kind(int i) {
+		return nodes.get(i) & KIND_MASK;
+	}
+
+	// the first child, or -1
+	public int child(int i) {
+		int k = kind(i);
+		return (k == LIST ? payload(i) : ARITY[k]) > 0 ? i + 1 : -1;
+	}
+
+	// the next sibling, or -1
+	public int next(int i) {
+		int n = siblings.get(i);
+		return n != 0 ? n : -1;
+	}
+
+	// the size of a LIST
+	public int count(int i) {
+		return payload(i);
+	}
+
+	// the name or spelling of a declaration or terminal
+	public String name(int i) {
+		int k = kind(i);
+		int id = k == FIELD || k == METHOD ? payload(i) >>> 2 : payload(i);
+		return id == 0 ? null : spelling(id - 1);
+	}
+
+	// null for a LIST or NONE
+	public SourcePosition position(int i) {
+		int k = kind(i);
+		if(k == LIST || k == NONE)
+			return null;
+		if(resolved != null)
+			return FlatTreeFile.position(resolved.get(i), overflow);
+		if(posns != null && posns[i] != null)
+			return posns[i];
+		return lines != null ? lines.position(pos[i]) : null;
+	}
+
+	// spellings, by id, for FlatTreeFile
+	int spellings() {
+		return names != null ? names.size() : spellings.length;
+	}
+
+	String spelling(int id) {
+		if(names != null)
+			return names.name(id);
+		if(spellings[id] == null) {
+			ByteBuffer b = chars.duplicate();
+			b.position(starts.get(id));
+			b.limit(starts.get(id + 1));
+			spellings[id] = StandardCharsets.UTF_8.decode(b).toString();
+		}
+		return spellings[id];
+	}
+
+	int word(int i) {
+		return nodes.get(i);
+	}
+
+	// the package over the arrays, see above
+	public Package view() {
+		Package p = new Package(new Classes(), null);
+		p.lineIndex = lines;
+		restore(p, 0);
+		return p;
+	}
+
+	/*
+	 * encoding
+	 *
+	 * a node is appended, then its children in turn, each with its own
+	 * children before the next, from a stack of the children still to
+	 * go under each node on the way down
+	 */
+	private int encode(AST root) {
+		Object[][] todo = new Object[16][];
+		int[] done = new int[16];
+		int[] last = new int[16];
+		int first = size;
+		todo[0] = append(root);
+		last[0] = -1;
+		int top = 0;
+		while(top >= 0) {
+			if(done[top] == todo[top].length) {
+				top--;
+				continue;
+			}
+			int i = size;
+			Object[] children = append(todo[top][done[top]++]);
+			if(last[top] >= 0)
+				next[last[top]] = i;
+			last[top] = i;
+			if(++top == todo.length) {
+				todo = Arrays.copyOf(todo, top * 2);
+				done = Arrays.copyOf(done, top * 2);
+				last = Arrays.copyOf(last, top * 2);
+			}
+			todo[top] = children;
+			done[top] = 0;
+			last[top] = -1;
+		}
+		return first;
+	}
+
+	private static final Object[] LEAF = {};
+
+	// appends x, an AST, a NodeList or null, returns its children
+	private Object[] append(Object x) {
+		if(x == null) {
+			append(NONE, 0, null);
+			return LEAF;
+		}
+		if(x instanceof NodeList) {
+			NodeList<?> l = (NodeList<?>) x;
+			append(LIST, l.size(), null);
+			Object[] children = new Object[l.size()];
+			for(int k = 0; k < children.length; k++)
+				children[k] = l.get(k);
+			return children;
+		}
+		AST a = (AST) x;
+		if(a instanceof ClassDecl) {
+			ClassDecl cd = (ClassDecl) a;
+			append(CLASS, name(cd.name), a);
+			return new Object[] { cd.fieldDeclList, cd.methodDeclList };
+		}
+		if(a instanceof FieldDecl) {
+			FieldDecl fd = (FieldDecl) a;
+			append(FIELD, member(fd), a);
+			return new Object[] { fd.type };
+		}
+		if(a instanceof MethodDecl) {
+			MethodDecl md = (MethodDecl) a;
+			append(METHOD, member(md), a);
+			return new Object[] { md.type, md.parameterDeclList, md.statementList, md.returnExp };
+		}
+		if(a instanceof ParameterDecl) {
+			append(PARAMETER, name(((ParameterDecl) a).name), a);
+			return new Object[] { ((ParameterDecl) a).type };
+		}
+		if(a instanceof VarDecl) {
+			append(VAR, name(((VarDecl) a).name), a);
+			return new Object[] { ((VarDecl) a).type };
+		}
+		if(a instanceof BaseType) {
+			append(BASE_TYPE, ((BaseType) a).typeKind.ordinal(), a);
+			return LEAF;
+		}
+		if(a instanceof ClassType) {
+			append(CLASS_TYPE, 0, a);
+			return new Object[] { ((ClassType) a).className };
+		}
+		if(a instanceof ArrayType) {
+			append(ARRAY_TYPE, 0, a);
+			return new Object[] { ((ArrayType) a).eltType };
+		}
+		if(a instanceof BlockStmt) {
+			append(BLOCK, 0, a);
+			return new Object[] { ((BlockStmt) a).sl };
+		}
+		if(a instanceof VarDeclStmt) {
+			VarDeclStmt s = (VarDeclStmt) a;
+			append(VAR_DECL_STMT, 0, a);
+			return new Object[] { s.varDecl, s.initExp };
+		}
+		if(a instanceof AssignStmt) {
+			AssignStmt s = (AssignStmt) a;
+			append(ASSIGN, 0, a);
+			return new Object[] { s.ref, s.val };
+		}
+		if(a instanceof CallStmt) {
+			CallStmt s = (CallStmt) a;
+			append(CALL_STMT, 0, a);
+			return new Object[] { s.methodRef, s.argList };
+		}
+		if(a instanceof IfStmt) {
+			IfStmt s = (IfStmt) a;
+			append(IF, 0, a);
+			return new Object[] { s.cond, s.thenStmt, s.elseStmt };
+		}
+		if(a instanceof WhileStmt) {
+			WhileStmt s = (WhileStmt) a;
+			append(WHILE, 0, a);
+			return new Object[] { s.cond, s.body };
+		}
+		if(a instanceof UnaryExpr) {
+			UnaryExpr e = (UnaryExpr) a;
+			append(UNARY, 0, a);
+			return new Object[] { e.operator, e.expr };
+		}
+		if(a instanceof BinaryExpr) {
+			BinaryExpr e = (BinaryExpr) a;
+			append(BINARY, 0, a);
+			return new Object[] { e.operator, e.left, e.right };
+		}
+		if(a instanceof RefExpr) {
+			append(REF_EXPR, 0, a);
+			return new Object[] { ((RefExpr) a).ref };
+		}
+		if(a instanceof CallExpr) {
+			CallExpr e = (CallExpr) a;
+			append(CALL_EXPR, 0, a);
+			return new Object[] { e.functionRef, e.argList };
+		}
+		if(a instanceof LiteralExpr) {
+			append(LITERAL_EXPR, 0, a);
+			return new Object[] { ((LiteralExpr) a).literal };
+		}
+		if(a instanceof NewObjectExpr) {
+			append(NEW_OBJECT, 0, a);
+			return new Object[] { ((NewObjectExpr) a).classtype };
+		}
+		if(a instanceof NewArrayExpr) {
+			NewArrayExpr e = (NewArrayExpr) a;
+			append(NEW_ARRAY, 0, a);
+			return new Object[] { e.eltType, e.sizeExpr };
+		}
+		if(a instanceof QualifiedRef) {
+			QualifiedRef r = (QualifiedRef) a;
+			append(QUALIFIED_REF, 0, a);
+			return new Object[] { r.ref, r.id };
+		}
+		if(a instanceof IndexedRef) {
+			IndexedRef r = (IndexedRef) a;
+			append(INDEXED_REF, 0, a);
+			return new Object[] { r.ref, r.indexExpr };
+		}
+		if(a instanceof IdRef) {
+			append(ID_REF, 0, a);
+			return new Object[] { ((IdRef) a).id };
+		}
+		if(a instanceof ThisRef) {
+			append(THIS_REF, 0, a);
+			return LEAF;
+		}
+		int k = a instanceof Identifier ? IDENTIFIER
+				: a instanceof Operator ? OPERATOR
+				: a instanceof IntLiteral ? INT_LITERAL
+				: a instanceof BooleanLiteral ? BOOLEAN_LITERAL : -1;
+		if(k < 0)
+			throw new IllegalArgumentException("no flat form for " + a.getClass().getName());
+		append(k, name(((Terminal) a).spelling), a);
+		return LEAF;
+	}
+
+	private void append(int kind, int payload, AST a) {
+		if(size == node.length) {
+			node = Arrays.copyOf(node, size * 2);
+			next = Arrays.copyOf(next, size * 2);
+			pos = Arrays.copyOf(pos, size * 2);
+			if(posns != null)
+				posns = Arrays.copyOf(posns, size * 2);
+			nodes = IntBuffer.wrap(node);
+			siblings = IntBuffer.wrap(next);
+		}
+		node[size] = kind | payload << KIND_BITS;
+		next[size] = 0;
+		record(size, a);
+		size++;
+	}
+
+	private void record(int i, AST a) {
+		if(a == null)
+			return;
+		if(a.posn != null) {
+			if(posns == null)
+				posns = new SourcePosition[node.length];
+			posns[i] = a.posn;
+		} else {
+			pos[i] = a.pos;
+		}
+	}
+
+	// a spelling's id + 1, 0 for null
+	private int name(String s) {
+		return s == null ? 0 : names.intern(s) + 1;
+	}
+
+	private int member(MemberDecl md) {
+		return name(md.name) << 2 | (md.isPrivate ? PRIVATE : 0) | (md.isStatic ? STATIC : 0);
+	}
+
+	private int payload(int i) {
+		return nodes.get(i) >>> KIND_BITS;
+	}
+
+	/*
+	 * decoding
+	 *
+	 * the nodes of a subtree are built from its last to its first,
+	 * so the children of each are built before it, and are on top of
+	 * a stack of the nodes built, first child first
+	 */
+	public AST decode(int root) {
+		// the subtree ends with the last child of the last child ..
+		int end = root;
+		for(int i = child(root); i >= 0; i = child(end)) {
+			while(next(i) >= 0) {
+				if(next(i) <= i || next(i) >= size)
+					throw malformed(i);
+				i = next(i);
+			}
+			end = i;
+		}
+		Object[] stack = new Object[16];
+		int top = 0;
+		// the children of a node other than a LIST are only passed on
+		Object[][] children = { new Object[0], new Object[1], new Object[2], new Object[3],
+				new Object[4] };
+		for(int i = end; i >= root; i--) {
+			int k = kind(i);
+			int n = k == LIST ? payload(i) : ARITY[k];
+			if(n > top)
+				throw malformed(i);
+			Object[] c = k == LIST ? new Object[n] : children[n];
+			for(int j = 0; j < n; j++)
+				c[j] = stack[--top];
+			Object x = build(k, i, c);
+			if(top == stack.length)
+				stack = Arrays.copyOf(stack, top * 2);
+			stack[top++] = x;
+		}
+		if(top != 1)
+			throw malformed(root);
+		return (AST) stack[0];
+	}
+
+	/*
+	 * a tree read from a file that is not what encode() writes, e.g.
+	 * a sibling that does not come later or a node short of children
+	 */
+	private IllegalStateException malformed(int i) {
+		return new IllegalStateException("malformed flat tree at node " + i);
+	}
+
+	// node i of kind k, from its children c
+	private Object build(int k, int i, Object[] c) {
+		AST a;
+		switch(k) {
+		case LIST:
+		case NONE:
+			// a list gets its type from its parent
+			return k == LIST ? c : null;
+		case PACKAGE:
+			a = new Package(new ClassDeclList(classes(c[0])), null);
+			((Package) a).lineIndex = lines;
+			break;
+		case CLASS:
+			a = new ClassDecl(name(i), new FieldDeclList(fields(c[0])),
+					new MethodDeclList(methods(c[1])), null);
+			break;
+		case FIELD:
+			a = new FieldDecl((payload(i) & PRIVATE) != 0, (payload(i) & STATIC) != 0,
+					(Type) c[0], name(i), null);
+			break;
+		case METHOD:
+			FieldDecl md = new FieldDecl((payload(i) & PRIVATE) != 0, (payload(i) & STATIC) != 0,
+					(Type) c[0], name(i), null);
+			a = new MethodDecl(md, new ParameterDeclList(parameters(c[1])),
+					new StatementList(statements(c[2])), (Expression) c[3], null);
+			break;
+		case PARAMETER:
+			a = new ParameterDecl((Type) c[0], name(i), null);
+			break;
+		case VAR:
+			a = new VarDecl((Type) c[0], name(i), null);
+			break;
+		case BASE_TYPE:
+			a = new BaseType(TYPE_KINDS[payload(i)], null);
+			break;
+		case CLASS_TYPE:
+			a = new ClassType((Identifier) c[0], null);
+			break;
+		case ARRAY_TYPE:
+			a = new ArrayType((Type) c[0], null);
+			break;
+		case BLOCK:
+			a = new BlockStmt(new StatementList(statements(c[0])), null);
+			break;
+		case VAR_DECL_STMT:
+			a = new VarDeclStmt((VarDecl) c[0], (Expression) c[1], null);
+			break;
+		case ASSIGN:
+			a = new AssignStmt((Reference) c[0], (Expression) c[1], null);
+			break;
+		case CALL_STMT:
+			a = new CallStmt((Reference) c[0], new ExprList(expressions(c[1])), null);
+			break;
+		case IF:
+			a = new IfStmt((Expression) c[0], (Statement) c[1], (Statement) c[2], null);
+			break;
+		case WHILE:
+			a = new WhileStmt((Expression) c[0], (Statement) c[1], null);
+			break;
+		case UNARY:
+			a = new UnaryExpr((Operator) c[0], (Expression) c[1], null);
+			break;
+		case BINARY:
+			a = new BinaryExpr((Operator) c[0], (Expression) c[1], (Expression) c[2], null);
+			break;
+		case REF_EXPR:
+			a = new RefExpr((Reference) c[0], null);
+			break;
+		case CALL_EXPR:
+			a = new CallExpr((Reference) c[0], new ExprList(expressions(c[1])), null);
+			break;
+		case LITERAL_EXPR:
+			a = new LiteralExpr((Literal) c[0], null);
+			break;
+		case NEW_OBJECT:
+			a = new NewObjectExpr((ClassType) c[0], null);
+			break;
+		case NEW_ARRAY:
+			a = new NewArrayExpr((Type) c[0], (Expression) c[1], null);
+			break;
+		case QUALIFIED_REF:
+			a = new QualifiedRef((Reference) c[0], (Identifier) c[1], null);
+			break;
+		case INDEXED_REF:
+			a = new IndexedRef((Reference) c[0], (Expression) c[1], null);
+			break;
+		case ID_REF:
+			a = new IdRef((Identifier) c[0], null);
+			break;
+		case THIS_REF:
+			a = new ThisRef(null);
+			break;
+		case IDENTIFIER:
+			a = new Identifier(name(i), null);
+			break;
+		case OPERATOR:
+			// the Parser's operators keep no token either
+			a = new Operator(new Token(Token.BINOP, name(i), null), null);
+			break;
+		case INT_LITERAL:
+			a = new IntLiteral(name(i), null);
+			break;
+		default:
+			a = new BooleanLiteral(name(i), null);
+			break;
+		}
+		restore(a, i);
+		return a;
+	}
+
+	private void restore(AST a, int i) {
+		if(resolved != null)
+			a.posn = position(i);
+		else if(posns != null && posns[i] != null)
+			a.posn = posns[i];
+		else
+			a.pos = pos[i];
+	}
+
+	private static ClassDecl[] classes(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, ClassDecl[].class);
+	}
+
+	private static FieldDecl[] fields(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, FieldDecl[].class);
+	}
+
+	private static MethodDecl[] methods(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, MethodDecl[].class);
+	}
+
+	private static ParameterDecl[] parameters(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, ParameterDecl[].class);
+	}
+
+	private static Statement[] statements(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, Statement[].class);
+	}
+
+	private static Expression[] expressions(Object list) {
+		Object[] c = (Object[]) list;
+		return Arrays.copyOf(c, c.length, Expression[].class);
+	}
+
+	// the classes of view(), each decoded when it is got
+	private class Classes extends ClassDeclList {
+		private final int[] starts;
+		// the class got last, see above
+		private int last = -1;
+		private ClassDecl lastDecl;
+
+		Classes() {
+			if(payload(1) >= size)
+				throw malformed(1);
+			starts = new int[payload(1)];
+			int i = child(1);
+			for(int k = 0; k < starts.length; k++, i = next(i))
+				starts[k] = i;
+		}
+
+		public ClassDecl get(int k) {
+			if(k >= starts.length)
+				throw new IndexOutOfBoundsException("Index: " + k + ", Size: " + starts.length);
+			if(k != last) {
+				lastDecl = (ClassDecl) decode(starts[k]);
+				last = k;
+			}
+			return lastDecl;
+		}
+
+		public int size() {
+			return starts.length;
+		}
+
+		// the view is read only
+		public void add(ClassDecl cd) {
+			throw new UnsupportedOperationException("the classes of a FlatTree view cannot be added to");
+		}
+
+		public Iterator<ClassDecl> iterator() {
+			return new Iterator<ClassDecl>() {
+				private int k = 0;
+
+				public boolean hasNext() {
+					return k < starts.length;
+				}
+
+				public ClassDecl next() {
+					if(k >= starts.length)
+						throw new NoSuchElementException();
+					return get(k++);
+				}
+
+				public void remove() {
+					throw new UnsupportedOperationException();
+				}
+			};
+		}
+	}
+}
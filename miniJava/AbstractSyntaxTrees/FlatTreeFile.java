@@ -0,0 +1,221 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+import miniJava.SyntacticAnalyzer.SourcePosition;
+
+/*
+ * a FlatTree saved as a .mjast file, so a later tool can read the
+ * AST back instead of scanning and parsing the source again. map()
+ * maps the file and reads the tree from it in place: nothing is
+ * decoded up front, a class only becomes AST objects when the view's
+ * ClassDeclList hands it out, and a spelling only becomes a String
+ * the first time it is asked for.
+ *
+ * layout, big endian, after a header of MAGIC, VERSION, nodes,
+ * overflows, spellings and bytes of spellings as ints:
+ * 		positions		a long a node, see pack()
+ * 		node words		an int a node, kind and payload as in FlatTree
+ * 		next siblings	an int a node
+ * 		overflows		the positions that do not pack, 4 ints each
+ * 		spelling starts	spellings + 1 byte offsets into the chars
+ * 		chars			the spellings in UTF-8
+ *
+ * positions are stored resolved, so a file needs neither the source
+ * nor its LineIndex, and reads back as SourcePosition objects
+ */
+public class FlatTreeFile {
+	public static final String EXTENSION = ".mjast";
+	private static final int MAGIC = 0x4d4a4153;	// "MJAS"
+	private static final int VERSION = 1;
+	private static final int HEADER = 6;
+
+	/*
+	 * a packed position, low bits first:
+	 * 		13 bits	finish column
+	 * 		13 bits	start column
+	 * 		13 bits	linefinish, 0 if it is 0 or else 1 + its distance
+	 * 				from linestart
+	 * 		24 bits	linestart
+	 * or OVERFLOW and the index of the position in the overflows. 0 is
+	 * no position, as every position is on line 1 or after
+	 */
+	private static final int COLUMN_BITS = 13;
+	private static final int LINE_BITS = 24;
+	private static final long COLUMN_MASK = (1L << COLUMN_BITS) - 1;
+	static final long OVERFLOW = 1L << 63;
+
+	public static void write(FlatTree t, File f) throws IOException {
+		int n = t.size();
+		long[] positions = new long[n];
+		int[] overflows = new int[64];
+		int m = 0;
+		for(int i = 0; i < n; i++) {
+			SourcePosition p = t.position(i);
+			positions[i] = pack(p);
+			if(positions[i] == OVERFLOW) {
+				if(4 * m == overflows.length)
+					overflows = java.util.Arrays.copyOf(overflows, 8 * m);
+				overflows[4 * m] = p.linestart;
+				overflows[4 * m + 1] = p.linefinish;
+				overflows[4 * m + 2] = p.start;
+				overflows[4 * m + 3] = p.finish;
+				positions[i] |= m++;
+			}
+		}
+		byte[][] spellings = new byte[t.spellings()][];
+		int bytes = 0;
+		for(int id = 0; id < spellings.length; id++) {
+			spellings[id] = t.spelling(id).getBytes(StandardCharsets.UTF_8);
+			bytes += spellings[id].length;
+		}
+		FileOutputStream file = new FileOutputStream(f);
+		try {
+			Out out = new Out(file.getChannel());
+			out.putInt(MAGIC);
+			out.putInt(VERSION);
+			out.putInt(n);
+			out.putInt(m);
+			out.putInt(spellings.length);
+			out.putInt(bytes);
+			for(int i = 0; i < n; i++)
+				out.putLong(positions[i]);
+			for(int i = 0; i < n; i++)
+				out.putInt(t.word(i));
+			for(int i = 0; i < n; i++)
+				out.putInt(Math.max(t.next(i), 0));
+			for(int k = 0; k < 4 * m; k++)
+				out.putInt(overflows[k]);
+			int start = 0;
+			for(byte[] s : spellings) {
+				out.putInt(start);
+				start += s.length;
+			}
+			out.putInt(start);
+			for(byte[] s : spellings)
+				out.put(s);
+			out.flush();
+		} finally {
+			file.close();
+		}
+	}
+
+	/*
+	 * the tree in f, read from the file as it is used. the mapping
+	 * stays valid after the file is closed, until the tree is dropped
+	 */
+	public static FlatTree map(File f) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(f, "r");
+		MappedByteBuffer buffer;
+		try {
+			buffer = file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, file.length());
+		} finally {
+			file.close();
+		}
+		if(buffer.limit() < 4 * HEADER || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException(f + " is not a version " + VERSION + " " + EXTENSION + " file");
+		int n = buffer.getInt(8);
+		int m = buffer.getInt(12);
+		int spellings = buffer.getInt(16);
+		int bytes = buffer.getInt(20);
+		// the counts must add up to the file before anything is sliced
+		if(n < 1 || m < 0 || spellings < 0 || bytes < 0
+				|| 4L * HEADER + 16L * n + 16L * m + 4L * (spellings + 1L) + bytes != buffer.limit())
+			throw new IOException(f + " has a bad header or is cut short or too long");
+		long at = 4 * HEADER;
+		LongBuffer positions = slice(buffer, at, 8L * n).asLongBuffer();
+		IntBuffer nodes = slice(buffer, at += 8L * n, 4L * n).asIntBuffer();
+		IntBuffer siblings = slice(buffer, at += 4L * n, 4L * n).asIntBuffer();
+		IntBuffer overflows = slice(buffer, at += 4L * n, 16L * m).asIntBuffer();
+		IntBuffer starts = slice(buffer, at += 16L * m, 4L * (spellings + 1)).asIntBuffer();
+		ByteBuffer chars = slice(buffer, at += 4L * (spellings + 1), bytes);
+		return new FlatTree(nodes, siblings, positions, overflows, starts, chars);
+	}
+
+	private static ByteBuffer slice(ByteBuffer buffer, long from, long length) {
+		ByteBuffer b = buffer.duplicate();
+		b.position((int) from);
+		b.limit((int) (from + length));
+		return b.slice();
+	}
+
+	// OVERFLOW if p does not pack, for LeafPositions too
+	static long pack(SourcePosition p) {
+		if(p == null)
+			return 0;
+		long lf = p.linefinish == 0 ? 0 : (long) p.linefinish - p.linestart + 1;
+		if(p.linestart < 1 || p.linestart >= 1 << LINE_BITS || lf < 0 || lf > COLUMN_MASK
+				|| p.start < 0 || p.start > COLUMN_MASK || p.finish < 0 || p.finish > COLUMN_MASK)
+			return OVERFLOW;
+		return (long) p.linestart << 3 * COLUMN_BITS | lf << 2 * COLUMN_BITS
+				| (long) p.start << COLUMN_BITS | p.finish;
+	}
+
+	// the position packed in code, for FlatTree and LeafPositions
+	static SourcePosition position(long code, IntBuffer overflows) {
+		if(code == 0)
+			return null;
+		if((code & OVERFLOW) != 0) {
+			int k = 4 * (int) (code & ~OVERFLOW);
+			return new SourcePosition(overflows.get(k), overflows.get(k + 1),
+					overflows.get(k + 2), overflows.get(k + 3));
+		}
+		int ls = (int) (code >>> 3 * COLUMN_BITS);
+		int lf = (int) (code >>> 2 * COLUMN_BITS & COLUMN_MASK);
+		return new SourcePosition(ls, lf == 0 ? 0 : ls + lf - 1,
+				(int) (code >>> COLUMN_BITS & COLUMN_MASK), (int) (code & COLUMN_MASK));
+	}
+
+	// writes through a buffer of its own
+	private static class Out {
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 16);
+
+		Out(FileChannel channel) {
+			this.channel = channel;
+		}
+
+		void putInt(int v) throws IOException {
+			if(buffer.remaining() < 4)
+				flush();
+			buffer.putInt(v);
+		}
+
+		void putLong(long v) throws IOException {
+			if(buffer.remaining() < 8)
+				flush();
+			buffer.putLong(v);
+		}
+
+		void put(byte[] b) throws IOException {
+			for(int k = 0; k < b.length; ) {
+				if(!buffer.hasRemaining())
+					flush();
+				int len = Math.min(b.length - k, buffer.remaining());
+				buffer.put(b, k, len);
+				k += len;
+			}
+		}
+
+		void flush() throws IOException {
+			buffer.flip();
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+			buffer.clear();
+		}
+	}
+}
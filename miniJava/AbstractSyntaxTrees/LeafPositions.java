@@ -0,0 +1,217 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+
+import miniJava.SyntacticAnalyzer.PackedPosition;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+
+/*
+ * the positions of one Package's shared leaves (see SharedLeaves),
+ * which have none of their own, each kept by the node it hangs off.
+ * the package holds its table in Package.leaves, so the table goes
+ * when the tree does, while the SharedLeaves it was filled from can
+ * go on sharing leaves with other trees.
+ *
+ * the parser takes a shared leaf before the node it hangs off is
+ * made, so parsed() keeps the leaf's position until adopt() is given
+ * that node. leaves and the nodes they hang off are made innermost
+ * first, so the leaves waiting are a stack and the one adopted is
+ * always the last one parsed.
+ *
+ * like AST.posn and AST.pos, position() gives a leaf's position as a
+ * SourcePosition and pos() as a packed one, whichever the tree has.
+ * a SourcePosition is kept packed in a long, as FlatTreeFile keeps
+ * it, and made again when it is asked for. not thread safe
+ */
+public class LeafPositions {
+	private final SharedLeaves leaves;
+
+	/*
+	 * the positions, by parent, open addressed on identity with
+	 * linear probing. a code is the leaf's AST.pos if the tree packs
+	 * its positions, or else its SourcePosition as FlatTreeFile.pack()
+	 * packs it, or OVERFLOW and its index in overflows
+	 */
+	private AST[] parents = new AST[8];
+	private long[] codes = new long[8];
+	private int entries = 0;
+	private SourcePosition[] overflows = new SourcePosition[0];
+	private int overflowCount = 0;
+	// decided by the first leaf parsed
+	private boolean packed;
+	private boolean started = false;
+
+	// the leaves parsed and not yet adopted, the last one on top
+	private AST[] waiting = new AST[8];
+	private long[] waitingCodes = new long[8];
+	private int waitingCount = 0;
+
+	LeafPositions(SharedLeaves leaves) {
+		this.leaves = leaves;
+	}
+
+	/*
+	 * leaf, a shared instance, was parsed at position and waits for
+	 * the node it hangs off. returns leaf
+	 */
+	public <T extends AST> T parsed(T leaf, SourcePosition position) {
+		boolean p = position instanceof PackedPosition;
+		if (!started) {
+			packed = p;
+			started = true;
+		} else if (packed != p) {
+			throw new IllegalArgumentException("shared leaves are all from trees with packed positions "
+					+ "or all from trees with SourcePositions");
+		}
+		if (waitingCount == waiting.length) {
+			waiting = Arrays.copyOf(waiting, waitingCount * 2);
+			waitingCodes = Arrays.copyOf(waitingCodes, waitingCount * 2);
+		}
+		waiting[waitingCount] = leaf;
+		waitingCodes[waitingCount++] = code(position);
+		return leaf;
+	}
+
+	private long code(SourcePosition position) {
+		if (packed)
+			return ((PackedPosition) position).pack();
+		long code = FlatTreeFile.pack(position);
+		if (code == FlatTreeFile.OVERFLOW) {
+			if (overflowCount == overflows.length)
+				overflows = Arrays.copyOf(overflows, Math.max(16, overflowCount * 2));
+			overflows[overflowCount] = position;
+			code |= overflowCount++;
+		}
+		return code;
+	}
+
+	/*
+	 * parent has been made, with leaf as its child that can be shared
+	 * (null, or a node that is not a leaf, if it has none). a shared
+	 * leaf is the last one parsed, and its position is recorded for
+	 * parent
+	 */
+	public void adopt(AST parent, AST leaf) {
+		if (leaf == null || !(leaf instanceof BaseType || leaf instanceof Literal || leaf instanceof Operator))
+			return;
+		if (waitingCount == 0 || waiting[waitingCount - 1] != leaf)
+			throw new IllegalStateException(leaf + " adopted by " + parent + " is not the last leaf parsed");
+		waiting[--waitingCount] = null;
+		record(parent, waitingCodes[waitingCount]);
+	}
+
+	// leaf, the last one parsed, goes in no node after all
+	public void drop(AST leaf) {
+		if (waitingCount > 0 && waiting[waitingCount - 1] == leaf)
+			waiting[--waitingCount] = null;
+	}
+
+	/*
+	 * the position the last leaf parsed was parsed with, while it
+	 * waits, as position() and pos() give them
+	 */
+	public SourcePosition waitingPosition() {
+		return packed ? null : decode(waitingCodes[waitingCount - 1]);
+	}
+
+	public long waitingPos() {
+		return packed ? waitingCodes[waitingCount - 1] : 0;
+	}
+
+	// the positions recorded in other, which is from the same SharedLeaves
+	public void addAll(LeafPositions other) {
+		if (other.entries == 0)
+			return;
+		if (!started) {
+			packed = other.packed;
+			started = true;
+		} else if (packed != other.packed) {
+			throw new IllegalArgumentException("shared leaves are all from trees with packed positions "
+					+ "or all from trees with SourcePositions");
+		}
+		for (int i = 0; i < other.parents.length; i++) {
+			if (other.parents[i] != null) {
+				long code = other.codes[i];
+				if (!packed && (code & FlatTreeFile.OVERFLOW) != 0)
+					code = code(other.decode(code));
+				record(other.parents[i], code);
+			}
+		}
+	}
+
+	private void record(AST parent, long code) {
+		if (3 * (entries + 1) > 2 * parents.length)
+			grow();
+		int k = slot(parent);
+		if (parents[k] == null) {
+			parents[k] = parent;
+			entries++;
+		}
+		codes[k] = code;
+	}
+
+	// where parent is, or the empty slot it would go in
+	private int slot(AST parent) {
+		int mask = parents.length - 1;
+		int k = System.identityHashCode(parent) & mask;
+		while (parents[k] != null && parents[k] != parent)
+			k = (k + 1) & mask;
+		return k;
+	}
+
+	private void grow() {
+		AST[] oldParents = parents;
+		long[] oldCodes = codes;
+		parents = new AST[oldParents.length * 2];
+		codes = new long[oldParents.length * 2];
+		for (int i = 0; i < oldParents.length; i++) {
+			if (oldParents[i] != null) {
+				int k = slot(oldParents[i]);
+				parents[k] = oldParents[i];
+				codes[k] = oldCodes[i];
+			}
+		}
+	}
+
+	// the SharedLeaves the leaves are instances of
+	public SharedLeaves leaves() {
+		return leaves;
+	}
+
+	public boolean isShared(AST node) {
+		return leaves.isShared(node);
+	}
+
+	/*
+	 * the position the shared leaf of parent was parsed with, null if
+	 * positions are packed or parent has no shared leaf
+	 */
+	public SourcePosition position(AST parent) {
+		int k = slot(parent);
+		if (packed || parents[k] == null)
+			return null;
+		return decode(codes[k]);
+	}
+
+	private SourcePosition decode(long code) {
+		if ((code & FlatTreeFile.OVERFLOW) != 0)
+			return overflows[(int) (code & ~FlatTreeFile.OVERFLOW)];
+		return FlatTreeFile.position(code, null);
+	}
+
+	// the packed position, 0 if positions are not packed
+	public long pos(AST parent) {
+		int k = slot(parent);
+		return packed && parents[k] != null ? codes[k] : 0;
+	}
+
+	// the leaves whose positions are recorded
+	public int size() {
+		return entries;
+	}
+}
@@ -5,30 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class MethodDeclList implements Iterable<MethodDecl>
+public class MethodDeclList extends NodeList<MethodDecl>
 {
-	public MethodDeclList() {
-		methodDeclList = new ArrayList<MethodDecl>();
-	}   
-
-	public void add(MethodDecl cd){
-		methodDeclList.add(cd);
-	}
-
-	public MethodDecl get(int i){
-		return methodDeclList.get(i);
-	}
-
-	public int size() {
-		return methodDeclList.size();
-	}
-
-	public Iterator<MethodDecl> iterator() {
-		return methodDeclList.iterator();
-	}
-
-	private List<MethodDecl> methodDeclList;
+    private static final MethodDecl[] EMPTY = {};
+    
+    public MethodDeclList() {
+        super(EMPTY);
+    }
+    
+    // the list of methodDecls exactly, see NodeList
+    public MethodDeclList(MethodDecl[] methodDecls) {
+        super(methodDecls);
+    }
 }
-
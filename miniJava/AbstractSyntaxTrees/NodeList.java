@@ -0,0 +1,63 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/*
+ * the elements of a list of AST nodes, kept in an array. the Parser
+ * builds each list on its scratch stack and hands it over frozen
+ * into an array of exactly the list's size, which the list keeps.
+ * add() still grows the array, by doubling, for lists built one
+ * element at a time
+ */
+public abstract class NodeList<T> implements Iterable<T> {
+	private T[] elements;
+	private int size;
+	
+	NodeList(T[] elements) {
+		this.elements = elements;
+		size = elements.length;
+	}
+	
+	public void add(T element) {
+		if(size == elements.length)
+			elements = Arrays.copyOf(elements, Math.max(4, size * 2));
+		elements[size++] = element;
+	}
+	
+	public T get(int i) {
+		if(i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i + ", Size: " + size);
+		return elements[i];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public Iterator<T> iterator() {
+		return new Iterator<T>() {
+			private int next = 0;
+			
+			public boolean hasNext() {
+				return next < size;
+			}
+			
+			public T next() {
+				if(next >= size)
+					throw new NoSuchElementException();
+				return elements[next++];
+			}
+			
+			public void remove() {
+				throw new UnsupportedOperationException();
+			}
+		};
+	}
+}
@@ -5,6 +5,7 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
+import miniJava.SyntacticAnalyzer.LineIndex;
 import miniJava.SyntacticAnalyzer.SourcePosition;
 
 public class Package extends AST {
@@ -19,4 +20,10 @@ public class Package extends AST {
     }
 
     public ClassDeclList classDeclList;
+
+    // where packed positions are looked up, null if there are none
+    public LineIndex lineIndex;
+
+    // holds the positions of shared leaves, null if none are shared
+    public LeafPositions leaves;
 }
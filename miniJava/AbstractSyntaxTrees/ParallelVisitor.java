@@ -0,0 +1,137 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/*
+ * runs a Visitor over the classes, or the methods, of a Package on a
+ * ForkJoinPool. a class or method is a unit: the units are cut into
+ * runs, a task each, and every unit gets a visitor of its own from
+ * visitor() and its argument from argument(), on the thread that
+ * visits it. the results come back in source order, the order a
+ * sequential pass would give them in, however the tasks were run,
+ * and merge() makes one of them if a pass wants one.
+ *
+ * a pass's visitors must not share anything they change, and lines
+ * they print, as ASTDisplay does, come out interleaved. the tree
+ * itself is only read. the units are got from the package's lists
+ * before any task starts, so a FlatTree view() decodes its classes on
+ * the caller's thread. a visitor's exception is thrown from visit...()
+ * once the tasks are done. with no pool the units are visited one
+ * after another on the caller's thread, with the same results
+ */
+public abstract class ParallelVisitor<A, R> {
+	// tasks per pool thread, so a thread done early can take another
+	static final int TASKS_PER_THREAD = 8;
+
+	private final ForkJoinPool pool;
+
+	public ParallelVisitor(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	// a visitor for one unit, got on the thread that visits it
+	protected abstract Visitor<A, R> visitor();
+
+	/*
+	 * the argument node is visited with: node is cd or one of its
+	 * methods, arg what visitClasses() or visitMethods() was given
+	 */
+	protected A argument(A arg, ClassDecl cd, AST node) {
+		return arg;
+	}
+
+	// one result of results, in source order, for visitPackage()
+	protected R merge(List<R> results) {
+		return null;
+	}
+
+	// each class of p visited, the results in source order
+	public List<R> visitClasses(Package p, A arg) {
+		List<ClassDecl> classes = new ArrayList<ClassDecl>();
+		for (ClassDecl cd : p.classDeclList)
+			classes.add(cd);
+		ClassDecl[] owners = classes.toArray(new ClassDecl[classes.size()]);
+		return visit(owners, owners, arg);
+	}
+
+	// each method of each class of p visited, the results in source order
+	public List<R> visitMethods(Package p, A arg) {
+		List<ClassDecl> owners = new ArrayList<ClassDecl>();
+		List<MethodDecl> methods = new ArrayList<MethodDecl>();
+		for (ClassDecl cd : p.classDeclList) {
+			for (MethodDecl md : cd.methodDeclList) {
+				owners.add(cd);
+				methods.add(md);
+			}
+		}
+		return visit(owners.toArray(new ClassDecl[owners.size()]),
+				methods.toArray(new MethodDecl[methods.size()]), arg);
+	}
+
+	// the classes' results merged
+	public R visitPackage(Package p, A arg) {
+		return merge(visitClasses(p, arg));
+	}
+
+	private List<R> visit(ClassDecl[] owners, AST[] nodes, A arg) {
+		Object[] results = new Object[nodes.length];
+		if (pool == null) {
+			new UnitTask(owners, nodes, arg, results, 0, nodes.length).visitUnits();
+		} else {
+			int runs = Math.min(nodes.length, pool.getParallelism() * TASKS_PER_THREAD);
+			final List<UnitTask> tasks = new ArrayList<UnitTask>(runs);
+			for (int k = 0; k < runs; k++)
+				tasks.add(new UnitTask(owners, nodes, arg, results,
+						(int) ((long) nodes.length * k / runs), (int) ((long) nodes.length * (k + 1) / runs)));
+			pool.invoke(new RecursiveAction() {
+				protected void compute() {
+					invokeAll(tasks);
+				}
+			});
+		}
+		List<R> list = new ArrayList<R>(results.length);
+		for (Object r : results) {
+			@SuppressWarnings("unchecked")
+			R result = (R) r;
+			list.add(result);
+		}
+		return list;
+	}
+
+	// visits units [from, to), each result in its place
+	private class UnitTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final ClassDecl[] owners;
+		final AST[] nodes;
+		final A arg;
+		final Object[] results;
+		final int from;
+		final int to;
+
+		UnitTask(ClassDecl[] owners, AST[] nodes, A arg, Object[] results, int from, int to) {
+			this.owners = owners;
+			this.nodes = nodes;
+			this.arg = arg;
+			this.results = results;
+			this.from = from;
+			this.to = to;
+		}
+
+		protected void compute() {
+			visitUnits();
+		}
+
+		void visitUnits() {
+			for (int i = from; i < to; i++)
+				results[i] = nodes[i].visit(visitor(), argument(arg, owners[i], nodes[i]));
+		}
+	}
+}
@@ -5,29 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class ParameterDeclList implements Iterable<ParameterDecl>
+public class ParameterDeclList extends NodeList<ParameterDecl>
 {
-    public ParameterDeclList() {
-    	parameterDeclList = new ArrayList<ParameterDecl>();
-    }
-    
-    public void add(ParameterDecl s){
-    	parameterDeclList.add(s);
-    }
+    private static final ParameterDecl[] EMPTY = {};
     
-    public ParameterDecl get(int i){
-        return parameterDeclList.get(i);
-    }
-    
-    public int size() {
-        return parameterDeclList.size();
+    public ParameterDeclList() {
+        super(EMPTY);
     }
     
-    public Iterator<ParameterDecl> iterator() {
-    	return parameterDeclList.iterator();
+    // the list of parameterDecls exactly, see NodeList
+    public ParameterDeclList(ParameterDecl[] parameterDecls) {
+        super(parameterDecls);
     }
-    
-    private List<ParameterDecl> parameterDeclList;
 }
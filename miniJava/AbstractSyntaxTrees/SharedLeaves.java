@@ -0,0 +1,103 @@
+/**
+ * miniJava Abstract Syntax Tree classes
+ * @author prins
+ * @version COMP 520 (v2.2)
+ */
+package miniJava.AbstractSyntaxTrees;
+
+import java.util.HashMap;
+
+import miniJava.SyntacticAnalyzer.Token;
+
+/*
+ * one instance of each leaf that is the same wherever it is: a
+ * BaseType of each TypeKind, an IntLiteral or BooleanLiteral of each
+ * spelling and an Operator of each spelling. a Parser given one (see
+ * Parser.setLeaves()) takes these where it would have made a leaf,
+ * so a tree with a thousand int fields holds one BaseType(INT)
+ * instead of a thousand, each with its own SourcePosition.
+ *
+ * a shared leaf has no position of its own. the position it was
+ * parsed with is kept instead in the LeafPositions of its tree, by
+ * the node it hangs off: every node has at most one leaf child that
+ * can be shared (the type of a declaration, ArrayType or NewArrayExpr,
+ * the operator of a UnaryExpr or BinaryExpr, the literal of a
+ * LiteralExpr), so the parent alone says which leaf is meant. this
+ * keeps only the shared instances, so it holds on to no tree.
+ *
+ * the leaves are shared by every tree parsed with them, and must not
+ * be changed. a pass that would change a leaf, or move positions in
+ * place as IncrementalParser does, needs a tree that shares none,
+ * and FlatTree will not take one. the leaves may be got on any
+ * thread, as the classes of a parallel parse are
+ */
+public class SharedLeaves {
+	private final BaseType[] baseTypes = new BaseType[TypeKind.values().length];
+	private final HashMap<String, IntLiteral> intLiterals = new HashMap<String, IntLiteral>();
+	private final HashMap<String, BooleanLiteral> booleanLiterals = new HashMap<String, BooleanLiteral>();
+	private final HashMap<String, Operator> operators = new HashMap<String, Operator>();
+	private int instances = 0;
+
+	public synchronized BaseType baseType(TypeKind kind) {
+		BaseType t = baseTypes[kind.ordinal()];
+		if (t == null) {
+			t = baseTypes[kind.ordinal()] = new BaseType(kind, null);
+			instances++;
+		}
+		return t;
+	}
+
+	public synchronized IntLiteral intLiteral(String spelling) {
+		IntLiteral l = intLiterals.get(spelling);
+		if (l == null) {
+			intLiterals.put(spelling, l = new IntLiteral(spelling, null));
+			instances++;
+		}
+		return l;
+	}
+
+	public synchronized BooleanLiteral booleanLiteral(String spelling) {
+		BooleanLiteral l = booleanLiterals.get(spelling);
+		if (l == null) {
+			booleanLiterals.put(spelling, l = new BooleanLiteral(spelling, null));
+			instances++;
+		}
+		return l;
+	}
+
+	public synchronized Operator operator(String spelling) {
+		Operator o = operators.get(spelling);
+		if (o == null) {
+			operators.put(spelling, o = new Operator(new Token(Token.BINOP, spelling, null), null));
+			instances++;
+		}
+		return o;
+	}
+
+	// whether node is one of the shared instances
+	public synchronized boolean isShared(AST node) {
+		if (node instanceof BaseType)
+			return baseTypes[((BaseType) node).typeKind.ordinal()] == node;
+		if (node instanceof IntLiteral)
+			return intLiterals.get(((IntLiteral) node).spelling) == node;
+		if (node instanceof BooleanLiteral)
+			return booleanLiterals.get(((BooleanLiteral) node).spelling) == node;
+		if (node instanceof Operator)
+			return operators.get(((Operator) node).spelling) == node;
+		return false;
+	}
+
+	// an empty table, for the positions of one tree's leaves
+	public LeafPositions positions() {
+		return new LeafPositions(this);
+	}
+
+	// the leaves shared instances are made of
+	public synchronized int instances() {
+		return instances;
+	}
+
+	public String toString() {
+		return instances() + " shared instances";
+	}
+}
@@ -5,29 +5,16 @@
  */
 package miniJava.AbstractSyntaxTrees;
 
-import java.util.*;
-
-public class StatementList implements Iterable<Statement>
+public class StatementList extends NodeList<Statement>
 {
-    public StatementList() {
-        slist = new ArrayList<Statement>();
-    }
-    
-    public void add(Statement s){
-        slist.add(s);
-    }
+    private static final Statement[] EMPTY = {};
     
-    public Statement get(int i){
-        return slist.get(i);
-    }
-    
-    public int size() {
-        return slist.size();
+    public StatementList() {
+        super(EMPTY);
     }
     
-    public Iterator<Statement> iterator() {
-    	return slist.iterator();
+    // the list of statements exactly, see NodeList
+    public StatementList(Statement[] statements) {
+        super(statements);
     }
-    
-    private List<Statement> slist;
 }
@@ -12,15 +12,34 @@ package miniJava;
 
 import miniJava.AbstractSyntaxTrees.*;
 import miniJava.AbstractSyntaxTrees.Package;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
 import miniJava.SyntacticAnalyzer.Parser;
 import miniJava.SyntacticAnalyzer.Scanner;
 import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.StreamSourceFile;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
 
 public class Compiler {
+	/*
+	 * part of every ParseCache key: change it whenever a change to
+	 * the scanner, the parser or the AST changes what a source gives
+	 */
+	public static final String VERSION = "miniJava pa1 1";
+	// tokens kept behind the parser when compiling a stream
+	static final int STREAM_TOKEN_WINDOW = 64;
+	// the parse cache's directory and its bound in MB, see main()
+	static final String CACHE_PROPERTY = "miniJava.parseCache";
+	static final String CACHE_MB_PROPERTY = "miniJava.parseCacheMB";
+	static final long CACHE_MB = 256;
+	
 	public static ErrorReporter reporter;
 	static Parser parser;
 	static Scanner scanner;
 	static SourceFile inputFile;
+	// null unless the parse cache is on
+	static ParseCache cache;
 	
 	public static boolean checkArgs(String[] args) {
 		if (args.length > 0) {
@@ -31,22 +50,50 @@ public class Compiler {
 		}
 	}
 
+	// a filename of "-" reads the program from stdin
 	static Package compile(String filename) {
 		Package ast;
+		if (filename.equals("-"))
+			return compile(Channels.newChannel(System.in));
 		reporter = new ErrorReporter();
+		if (cache != null)
+			return cache.parse(filename, reporter);
 		SourceFile source = new SourceFile(filename, reporter);
 		scanner = new Scanner(source, reporter);
-		parser = new Parser(scanner, reporter, true);
+		parser = new Parser(scanner, reporter);
 		ast = parser.parse();
 		return ast;
 	}
 	
+	/*
+	 * compiles a program piped in, e.g. from a generator, without a
+	 * temp file. the source is read through a ring buffer and only a
+	 * window of tokens is kept, so memory does not grow with the
+	 * input (only with the AST)
+	 */
+	static Package compile(ReadableByteChannel in) {
+		reporter = new ErrorReporter();
+		scanner = new Scanner(new StreamSourceFile(in, reporter), reporter);
+		parser = new Parser(new TokenBuffer(scanner, STREAM_TOKEN_WINDOW), reporter);
+		return parser.parse();
+	}
+	
+	/*
+	 * with -DminiJava.parseCache=dir the AST of a file is kept in a
+	 * ParseCache in dir, of at most -DminiJava.parseCacheMB MB, and a
+	 * file compiled before is not parsed again
+	 */
 	public static void main(String[] args) {
 		ASTDisplay ad= new ASTDisplay();
 		Package ast;
+		String cacheDir = System.getProperty(CACHE_PROPERTY);
+		if (cacheDir != null)
+			cache = new ParseCache(new java.io.File(cacheDir),
+					Long.getLong(CACHE_MB_PROPERTY, CACHE_MB) << 20);
 		if (checkArgs(args)) {
 			String filename = args[0];
 			ast = compile(filename);
+			closeCache();
 			if(reporter.getNumErrors() == 0) {
 				ad.showTree(ast);
 				System.exit(0);
@@ -63,4 +110,15 @@ public class Compiler {
 			System.exit(4);
 		}
 	}
+	
+	// the cache's counts go into its totals, see ParseCache.close()
+	static void closeCache() {
+		if (cache == null)
+			return;
+		try {
+			cache.close();
+		} catch (java.io.IOException e) {
+			// only the stats are lost
+		}
+	}
 }
\ No newline at end of file
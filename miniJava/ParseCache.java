@@ -0,0 +1,288 @@
+/*
+ * miniJava ParseCache
+ *
+ * a directory of parsed sources, so a file that has not changed since
+ * it was last compiled is not scanned and parsed again. an entry is
+ * keyed by a SHA-256 of Compiler.VERSION and the source's bytes, and
+ * is two files: key.mjast, the AST as a FlatTreeFile, and key.errors,
+ * the errors reported while scanning and parsing it.
+ *
+ * each file is written under a temp name and renamed into place, the
+ * errors first, so a compiler never sees an entry half written, and
+ * compilers sharing the directory at once at worst both store the
+ * same entry. a hit touches the entry's files, and after each store
+ * the least recently used files are deleted until the directory is
+ * down to maxBytes. hits, misses, stores and evictions are counted,
+ * and close() adds them to the totals in the directory's stats file
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.FlatTreeFile;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+public class ParseCache {
+	static final String ERRORS = ".errors";
+	static final String TEMP = ".tmp";
+	static final String STATS = "stats";
+	// a temp file this old was left by a compiler that died
+	static final long STALE_TEMP_MILLIS = 60 * 60 * 1000;
+
+	private final File dir;
+	private final long maxBytes;
+	private long hits = 0;
+	private long misses = 0;
+	private long stores = 0;
+	private long evictions = 0;
+
+	public ParseCache(File dir, long maxBytes) {
+		this.dir = dir;
+		this.maxBytes = maxBytes;
+		dir.mkdirs();
+	}
+
+	/*
+	 * the AST of filename, loaded from the cache with its errors given
+	 * to reporter, or else scanned and parsed as Compiler.compile()
+	 * would and stored. a file that cannot be read is not cached
+	 */
+	public Package parse(String filename, ErrorReporter reporter) {
+		SourceFile source = new SourceFile(filename, reporter);
+		if (reporter.hasErrors())
+			return new Parser(new Scanner(source, reporter), reporter).parse();
+		String key = key(source);
+		Package ast = load(key, reporter);
+		if (ast == null) {
+			ast = new Parser(new Scanner(source, reporter), reporter).parse();
+			store(key, ast, reporter);
+		}
+		return ast;
+	}
+
+	public static String key(SourceFile source) {
+		MessageDigest md;
+		try {
+			md = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+		md.update(Compiler.VERSION.getBytes(StandardCharsets.UTF_8));
+		md.update((byte) 0);
+		source.digest(md);
+		StringBuilder sb = new StringBuilder();
+		for (byte b : md.digest())
+			sb.append(Character.forDigit(b >> 4 & 0xf, 16)).append(Character.forDigit(b & 0xf, 16));
+		return sb.toString();
+	}
+
+	/*
+	 * the entry's AST, decoded in full, or null on a miss. an entry
+	 * that cannot be read back, damaged or half evicted, is deleted,
+	 * so it is parsed and stored again instead of failing every time
+	 */
+	public Package load(String key, ErrorReporter reporter) {
+		File tree = new File(dir, key + FlatTreeFile.EXTENSION);
+		File errors = new File(dir, key + ERRORS);
+		List<String> reported;
+		Package ast;
+		if (!tree.isFile()) {
+			misses++;
+			return null;
+		}
+		try {
+			reported = readErrors(errors);
+			ast = (Package) FlatTreeFile.map(tree).decode(0);
+		} catch (IOException e) {
+			return damaged(tree, errors);
+		} catch (RuntimeException e) {
+			// anything the file says that decode() cannot make sense of
+			return damaged(tree, errors);
+		}
+		long now = System.currentTimeMillis();
+		tree.setLastModified(now);
+		errors.setLastModified(now);
+		for (String e : reported)
+			reporter.reportError(e);
+		hits++;
+		return ast;
+	}
+
+	private Package damaged(File tree, File errors) {
+		tree.delete();
+		errors.delete();
+		misses++;
+		return null;
+	}
+
+	public void store(String key, Package ast, ErrorReporter reporter) {
+		if (ast == null)
+			return;
+		try {
+			File errors = File.createTempFile(key, TEMP, dir);
+			writeErrors(reporter.errors, errors);
+			rename(errors, new File(dir, key + ERRORS));
+			File tree = File.createTempFile(key, TEMP, dir);
+			FlatTreeFile.write(FlatTree.of(ast), tree);
+			rename(tree, new File(dir, key + FlatTreeFile.EXTENSION));
+			stores++;
+		} catch (IOException e) {
+			// the cache is only a shortcut, the AST is still good
+			return;
+		}
+		evict();
+	}
+
+	private static void rename(File from, File to) throws IOException {
+		try {
+			Files.move(from.toPath(), to.toPath(), StandardCopyOption.ATOMIC_MOVE,
+					StandardCopyOption.REPLACE_EXISTING);
+		} catch (IOException e) {
+			from.delete();
+			throw e;
+		}
+	}
+
+	private static void writeErrors(List<String> errors, File f) throws IOException {
+		DataOutputStream out = new DataOutputStream(new FileOutputStream(f));
+		try {
+			out.writeInt(errors.size());
+			for (String e : errors)
+				out.writeUTF(e);
+		} finally {
+			out.close();
+		}
+	}
+
+	private static List<String> readErrors(File f) throws IOException {
+		DataInputStream in = new DataInputStream(new FileInputStream(f));
+		try {
+			int n = in.readInt();
+			List<String> errors = new ArrayList<String>(n);
+			for (int i = 0; i < n; i++)
+				errors.add(in.readUTF());
+			return errors;
+		} finally {
+			in.close();
+		}
+	}
+
+	// deletes the least recently used files until the rest fit in maxBytes
+	private void evict() {
+		File[] files = dir.listFiles();
+		if (files == null)
+			return;
+		long now = System.currentTimeMillis();
+		final long[] used = new long[files.length];
+		long total = 0;
+		List<File> entries = new ArrayList<File>();
+		for (int i = 0; i < files.length; i++) {
+			File f = files[i];
+			String name = f.getName();
+			if (name.endsWith(TEMP)) {
+				if (now - f.lastModified() > STALE_TEMP_MILLIS)
+					f.delete();
+			} else if (name.endsWith(FlatTreeFile.EXTENSION) || name.endsWith(ERRORS)) {
+				entries.add(f);
+				total += f.length();
+			}
+		}
+		if (total <= maxBytes)
+			return;
+		File[] byAge = entries.toArray(new File[entries.size()]);
+		for (int i = 0; i < byAge.length; i++)
+			used[i] = byAge[i].lastModified();
+		Integer[] order = new Integer[byAge.length];
+		for (int i = 0; i < order.length; i++)
+			order[i] = i;
+		Arrays.sort(order, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return Long.compare(used[a], used[b]);
+			}
+		});
+		for (int k = 0; k < order.length && total > maxBytes; k++) {
+			File f = byAge[order[k]];
+			long size = f.length();
+			if (f.delete()) {
+				total -= size;
+				if (f.getName().endsWith(FlatTreeFile.EXTENSION))
+					evictions++;
+			}
+		}
+	}
+
+	public long hits() {
+		return hits;
+	}
+
+	public long misses() {
+		return misses;
+	}
+
+	public long stores() {
+		return stores;
+	}
+
+	public long evictions() {
+		return evictions;
+	}
+
+	/*
+	 * adds the counts so far to the totals in the stats file, under a
+	 * lock, and starts counting from 0 again. returns the new totals:
+	 * hits, misses, stores, evictions
+	 */
+	public long[] close() throws IOException {
+		long[] counts = { hits, misses, stores, evictions };
+		RandomAccessFile file = new RandomAccessFile(new File(dir, STATS), "rw");
+		try {
+			FileLock lock = file.getChannel().lock();
+			try {
+				long[] totals = new long[counts.length];
+				if (file.length() >= 8 * totals.length)
+					for (int i = 0; i < totals.length; i++)
+						totals[i] = file.readLong();
+				for (int i = 0; i < totals.length; i++)
+					totals[i] += counts[i];
+				file.seek(0);
+				for (long t : totals)
+					file.writeLong(t);
+				hits = misses = stores = evictions = 0;
+				return totals;
+			} finally {
+				lock.release();
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	public String toString() {
+		return hits + " hits, " + misses + " misses, " + stores + " stores, "
+				+ evictions + " evictions";
+	}
+}
@@ -0,0 +1,456 @@
+/*
+ * miniJava IncrementalParser
+ *
+ * keeps a file's tokens and AST from one edit to the next. an edit
+ * is relexed around the changed chars (see Scanner.relex()), then
+ * the Parser runs over the tokens again, but each top-level class,
+ * and each field or method of a class that has to be parsed again,
+ * that lies wholly outside the relexed tokens is taken from the
+ * previous AST instead of being parsed. the parser just skips its
+ * tokens, so the classes and members around it come out as before.
+ *
+ * a class or member is parsed from its own tokens only, it does not
+ * look at what comes before or after it, so one that has the same
+ * tokens as before parses to the same subtree. those before the
+ * edit are kept as they are. those after it have moved by as many
+ * lines as the edit added, and their positions are moved with them,
+ * in place. those on the line the edit ends on have moved columns
+ * too and are parsed again. only a class or member that parsed
+ * without errors is kept, recovery may have cut one short.
+ *
+ * the AST returned is the same as a parse of the edited file from
+ * scratch would give, SourcePosition objects included. it takes over
+ * the previous AST's kept subtrees, which must not be used any more
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+
+public class IncrementalParser {
+	private TokenBuffer tokens;
+	private ErrorReporter reporter;
+	private Package ast;
+
+	/*
+	 * the classes and members of the last parse, each by the tokens
+	 * [start, end) it was parsed from, in source order. a class's
+	 * members are members [first, last)
+	 */
+	private Ranges classes = new Ranges();
+	private Ranges members = new Ranges();
+	// and of the parse under way
+	private Ranges newClasses;
+	private Ranges newMembers;
+	// newMembers.count when the class being parsed started
+	private int firstMember;
+
+	// what the edit did to the tokens, see TokenBuffer.splice()
+	private int editFrom;
+	private int editTo;
+	private int shift;
+	private int lines;
+	private int columnsMovedTo;
+
+	// where the last subtree reusable() handed out ends
+	int reusedEnd;
+
+	private int reusedCount;
+	private int parsedCount;
+
+	// scans and parses source from scratch
+	public IncrementalParser(SourceFile source) {
+		reporter = new ErrorReporter();
+		tokens = new TokenBuffer(source, reporter);
+		editFrom = -1;
+		parse();
+	}
+
+	/*
+	 * the AST of the file with removed chars at offset replaced by
+	 * inserted. errors go to a new reporter, see getReporter()
+	 */
+	public Package edit(int offset, int removed, String inserted) {
+		reporter = new ErrorReporter();
+		Scanner.relex(tokens, offset, removed, inserted, reporter);
+		editFrom = tokens.splicedFrom;
+		editTo = tokens.splicedTo;
+		shift = tokens.splicedLength - (editTo - editFrom);
+		lines = tokens.splicedLines;
+		columnsMovedTo = tokens.columnsMovedTo;
+		parse();
+		return ast;
+	}
+
+	public Package getPackage() {
+		return ast;
+	}
+
+	// the errors of the last parse, scan errors included
+	public ErrorReporter getReporter() {
+		return reporter;
+	}
+
+	// the edited file, which relex() keeps a SourceFile
+	public SourceFile getSourceFile() {
+		return (SourceFile) tokens.getSourceFile();
+	}
+
+	// classes and members taken from the previous AST by the last parse
+	public int reused() {
+		return reusedCount;
+	}
+
+	// and those parsed
+	public int parsed() {
+		return parsedCount;
+	}
+
+	private void parse() {
+		newClasses = new Ranges();
+		newMembers = new Ranges();
+		reusedCount = 0;
+		parsedCount = 0;
+		tokens.seek(0);
+		Parser parser = new Parser(tokens, reporter);
+		parser.reuse = this;
+		ast = parser.parse();
+		classes = newClasses;
+		members = newMembers;
+		newClasses = null;
+		newMembers = null;
+	}
+
+	/*
+	 * for the Parser: the class (or member) of the previous parse that
+	 * starts at token i, if it can be kept, moved to where it is now.
+	 * reusedEnd is then the token after it. null if there is none
+	 */
+	AST reusable(int i, boolean member) {
+		if(editFrom < 0)
+			return null;
+		Ranges old = member ? members : classes;
+		int k;
+		if(i < editFrom) {
+			k = old.find(i);
+			if(k < 0 || old.end[k] > editFrom)
+				return null;
+		} else {
+			if(i - shift < editTo || i < columnsMovedTo)
+				return null;
+			k = old.find(i - shift);
+			if(k < 0)
+				return null;
+		}
+		boolean after = i >= editFrom;
+		int moved = after ? shift : 0;
+		AST node = old.node[k];
+		if(after && lines != 0)
+			node.visit(new Mover(lines), null);
+		reusedEnd = old.end[k] + moved;
+		if(member) {
+			newMembers.add(node, i, reusedEnd);
+		} else {
+			// the class's members, to be kept on their own next time
+			int first = newMembers.count;
+			for(int j = old.first[k]; j < old.last[k]; j++)
+				newMembers.add(members.node[j], members.start[j] + moved, members.end[j] + moved);
+			newClasses.add(node, i, reusedEnd, first, newMembers.count);
+		}
+		reusedCount++;
+		return node;
+	}
+
+	// for the Parser: a class is about to be parsed
+	void classStarts() {
+		firstMember = newMembers.count;
+	}
+
+	/*
+	 * for the Parser: node has been parsed from tokens [start, end),
+	 * without errors
+	 */
+	void parsed(AST node, int start, int end) {
+		if(node instanceof ClassDecl)
+			newClasses.add(node, start, end, firstMember, newMembers.count);
+		else
+			newMembers.add(node, start, end);
+		parsedCount++;
+	}
+
+	// subtrees by the token range they were parsed from, in order
+	private static final class Ranges {
+		AST[] node = new AST[16];
+		int[] start = new int[16];
+		int[] end = new int[16];
+		// of a class, its members' ranges
+		int[] first = new int[16];
+		int[] last = new int[16];
+		int count;
+
+		void add(AST n, int s, int e) {
+			add(n, s, e, 0, 0);
+		}
+
+		void add(AST n, int s, int e, int f, int l) {
+			if(count == node.length) {
+				node = Arrays.copyOf(node, count * 2);
+				start = Arrays.copyOf(start, count * 2);
+				end = Arrays.copyOf(end, count * 2);
+				first = Arrays.copyOf(first, count * 2);
+				last = Arrays.copyOf(last, count * 2);
+			}
+			node[count] = n;
+			start[count] = s;
+			end[count] = e;
+			first[count] = f;
+			last[count] = l;
+			count++;
+		}
+
+		// the subtree starting at token s, or -1
+		int find(int s) {
+			int k = Arrays.binarySearch(start, 0, count, s);
+			return k >= 0 ? k : -1;
+		}
+	}
+
+	/*
+	 * moves every position in a subtree down by lines. a position
+	 * shared by several nodes is moved once, and a node reached twice
+	 * (an Identifier of a statement a.b = ..., see parseSimpleStatement())
+	 * is moved once. a '/' is positioned on line 1 wherever it is, see
+	 * Scanner.position(), and stays there
+	 */
+	private static final class Mover implements Visitor<Object, Object> {
+		private final int lines;
+		private final IdentityHashMap<SourcePosition, SourcePosition> moved =
+				new IdentityHashMap<SourcePosition, SourcePosition>();
+
+		Mover(int lines) {
+			this.lines = lines;
+		}
+
+		private void move(AST node) {
+			SourcePosition p = node.posn;
+			SourcePosition q = moved.get(p);
+			if(q == null) {
+				q = new SourcePosition(p.linestart + lines,
+						p.linefinish == 0 ? 0 : p.linefinish + lines, p.start, p.finish);
+				moved.put(p, q);
+				moved.put(q, q);
+			}
+			node.posn = q;
+		}
+
+		public Object visitPackage(Package prog, Object arg) {
+			move(prog);
+			for(ClassDecl c : prog.classDeclList)
+				c.visit(this, arg);
+			return null;
+		}
+
+		public Object visitClassDecl(ClassDecl cd, Object arg) {
+			move(cd);
+			for(FieldDecl f : cd.fieldDeclList)
+				f.visit(this, arg);
+			for(MethodDecl m : cd.methodDeclList)
+				m.visit(this, arg);
+			return null;
+		}
+
+		public Object visitFieldDecl(FieldDecl fd, Object arg) {
+			move(fd);
+			fd.type.visit(this, arg);
+			return null;
+		}
+
+		public Object visitMethodDecl(MethodDecl md, Object arg) {
+			move(md);
+			md.type.visit(this, arg);
+			for(ParameterDecl pd : md.parameterDeclList)
+				pd.visit(this, arg);
+			for(Statement s : md.statementList)
+				s.visit(this, arg);
+			if(md.returnExp != null)
+				md.returnExp.visit(this, arg);
+			return null;
+		}
+
+		public Object visitParameterDecl(ParameterDecl pd, Object arg) {
+			move(pd);
+			pd.type.visit(this, arg);
+			return null;
+		}
+
+		public Object visitVarDecl(VarDecl decl, Object arg) {
+			move(decl);
+			decl.type.visit(this, arg);
+			return null;
+		}
+
+		public Object visitBaseType(BaseType type, Object arg) {
+			move(type);
+			return null;
+		}
+
+		public Object visitClassType(ClassType type, Object arg) {
+			move(type);
+			type.className.visit(this, arg);
+			return null;
+		}
+
+		public Object visitArrayType(ArrayType type, Object arg) {
+			move(type);
+			type.eltType.visit(this, arg);
+			return null;
+		}
+
+		public Object visitBlockStmt(BlockStmt stmt, Object arg) {
+			move(stmt);
+			for(Statement s : stmt.sl)
+				s.visit(this, arg);
+			return null;
+		}
+
+		public Object visitVardeclStmt(VarDeclStmt stmt, Object arg) {
+			move(stmt);
+			stmt.varDecl.visit(this, arg);
+			stmt.initExp.visit(this, arg);
+			return null;
+		}
+
+		public Object visitAssignStmt(AssignStmt stmt, Object arg) {
+			move(stmt);
+			stmt.ref.visit(this, arg);
+			stmt.val.visit(this, arg);
+			return null;
+		}
+
+		public Object visitCallStmt(CallStmt stmt, Object arg) {
+			move(stmt);
+			stmt.methodRef.visit(this, arg);
+			for(Expression e : stmt.argList)
+				e.visit(this, arg);
+			return null;
+		}
+
+		public Object visitIfStmt(IfStmt stmt, Object arg) {
+			move(stmt);
+			stmt.cond.visit(this, arg);
+			stmt.thenStmt.visit(this, arg);
+			if(stmt.elseStmt != null)
+				stmt.elseStmt.visit(this, arg);
+			return null;
+		}
+
+		public Object visitWhileStmt(WhileStmt stmt, Object arg) {
+			move(stmt);
+			stmt.cond.visit(this, arg);
+			stmt.body.visit(this, arg);
+			return null;
+		}
+
+		public Object visitUnaryExpr(UnaryExpr expr, Object arg) {
+			move(expr);
+			expr.operator.visit(this, arg);
+			expr.expr.visit(this, arg);
+			return null;
+		}
+
+		public Object visitBinaryExpr(BinaryExpr expr, Object arg) {
+			move(expr);
+			expr.operator.visit(this, arg);
+			expr.left.visit(this, arg);
+			expr.right.visit(this, arg);
+			return null;
+		}
+
+		public Object visitRefExpr(RefExpr expr, Object arg) {
+			move(expr);
+			expr.ref.visit(this, arg);
+			return null;
+		}
+
+		public Object visitCallExpr(CallExpr expr, Object arg) {
+			move(expr);
+			expr.functionRef.visit(this, arg);
+			for(Expression e : expr.argList)
+				e.visit(this, arg);
+			return null;
+		}
+
+		public Object visitLiteralExpr(LiteralExpr expr, Object arg) {
+			move(expr);
+			expr.literal.visit(this, arg);
+			return null;
+		}
+
+		public Object visitNewObjectExpr(NewObjectExpr expr, Object arg) {
+			move(expr);
+			expr.classtype.visit(this, arg);
+			return null;
+		}
+
+		public Object visitNewArrayExpr(NewArrayExpr expr, Object arg) {
+			move(expr);
+			expr.eltType.visit(this, arg);
+			expr.sizeExpr.visit(this, arg);
+			return null;
+		}
+
+		public Object visitQualifiedRef(QualifiedRef ref, Object arg) {
+			move(ref);
+			ref.ref.visit(this, arg);
+			ref.id.visit(this, arg);
+			return null;
+		}
+
+		public Object visitIndexedRef(IndexedRef ref, Object arg) {
+			move(ref);
+			ref.ref.visit(this, arg);
+			ref.indexExpr.visit(this, arg);
+			return null;
+		}
+
+		public Object visitIdRef(IdRef ref, Object arg) {
+			move(ref);
+			ref.id.visit(this, arg);
+			return null;
+		}
+
+		public Object visitThisRef(ThisRef ref, Object arg) {
+			move(ref);
+			return null;
+		}
+
+		public Object visitIdentifier(Identifier id, Object arg) {
+			move(id);
+			return null;
+		}
+
+		public Object visitOperator(Operator op, Object arg) {
+			if(!op.spelling.equals("/"))
+				move(op);
+			return null;
+		}
+
+		public Object visitIntLiteral(IntLiteral num, Object arg) {
+			move(num);
+			return null;
+		}
+
+		public Object visitBooleanLiteral(BooleanLiteral bool, Object arg) {
+			move(bool);
+			return null;
+		}
+	}
+}
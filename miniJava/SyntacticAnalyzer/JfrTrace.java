@@ -0,0 +1,71 @@
+/*
+ * miniJava JfrTrace
+ *
+ * the parse as JDK Flight Recorder events, miniJava.ParseRule for a
+ * parse method entered and miniJava.Accept for a token accepted, to
+ * be seen in a recording next to the GC and the JIT. without a
+ * recording that enables them no event is made, a call only reads
+ * a flag, so a parser left with this sink costs little more than one
+ * with OFF
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import jdk.jfr.Category;
+import jdk.jfr.Event;
+import jdk.jfr.EventType;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+public class JfrTrace implements ParseTrace {
+
+	@Name("miniJava.ParseRule")
+	@Label("Parse Rule")
+	@Category({ "miniJava", "Parser" })
+	@StackTrace(false)
+	static final class RuleEvent extends Event {
+		@Label("Rule")
+		String rule;
+	}
+
+	@Name("miniJava.Accept")
+	@Label("Token Accepted")
+	@Category({ "miniJava", "Parser" })
+	@StackTrace(false)
+	static final class AcceptEvent extends Event {
+		@Label("Token")
+		String token;
+		@Label("Expected")
+		String expected;
+		@Label("Line")
+		int line;
+		@Label("Column")
+		int column;
+	}
+
+	private final EventType rules = EventType.getEventType(RuleEvent.class);
+	private final EventType accepts = EventType.getEventType(AcceptEvent.class);
+
+	public void enter(String rule) {
+		if(rules.isEnabled()) {
+			RuleEvent event = new RuleEvent();
+			event.rule = rule;
+			event.commit();
+		}
+	}
+
+	public void accept(TokenBuffer tokens, int i, int expected) {
+		if(accepts.isEnabled()) {
+			AcceptEvent event = new AcceptEvent();
+			event.token = tokens.type(i) == Token.EOT ? "End of Text" : tokens.spelling(i);
+			event.expected = expected < 0 ? null : Token.spell(expected);
+			event.line = tokens.line(i);
+			event.column = tokens.column(i);
+			event.commit();
+		}
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ * miniJava LineIndex
+ *
+ * recorded by a Scanner while it scans, so the line and column of
+ * any source offset can be worked out later instead of being stored
+ * with every token. between two anchors every char moves the column
+ * by one and a tab by four, as Scanner.consume() does, so only the
+ * offsets where that stops holding are kept: after each newline
+ * char and after each block comment (whose chars are not counted).
+ * that is about one anchor per line.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+public class LineIndex {
+	private static final int INITIAL_CAPACITY = 256;
+
+	private SourceText source;
+	private int[] offset;		// anchors, in increasing offset order
+	private int[] line;			// line of the char at offset
+	private int[] column;		// and its column
+	private int count;
+
+	LineIndex(SourceText source) {
+		this.source = source;
+		offset = new int[INITIAL_CAPACITY];
+		line = new int[INITIAL_CAPACITY];
+		column = new int[INITIAL_CAPACITY];
+		count = 0;
+	}
+
+	// the char at off is on line ln at column col
+	void add(int off, int ln, int col) {
+		if(count > 0 && offset[count - 1] == off) {
+			count--;
+		} else if(count == offset.length) {
+			int n = count * 2;
+			offset = java.util.Arrays.copyOf(offset, n);
+			line = java.util.Arrays.copyOf(line, n);
+			column = java.util.Arrays.copyOf(column, n);
+		}
+		offset[count] = off;
+		line[count] = ln;
+		column[count] = col;
+		count++;
+	}
+
+	// index of the last anchor at or before off
+	private int anchor(int off) {
+		int lo = 0;
+		int hi = count - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(offset[mid] <= off)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return Math.max(hi, 0);
+	}
+
+	public int line(int off) {
+		return line[anchor(off)];
+	}
+
+	public int column(int off) {
+		int a = anchor(off);
+		int tabs = source.countTabs(offset[a], Math.min(off, source.length()));
+		return column[a] + (off - offset[a]) + 3 * tabs;
+	}
+
+	/*
+	 * the SourcePosition a packed position stands for, with the same
+	 * fields (so the same toString()) the Parser would have given it
+	 */
+	public SourcePosition position(long p) {
+		int start = PackedPosition.offset(p);
+		int end = start + PackedPosition.length(p);
+		int ls = ((p & PackedPosition.START_DIV) != 0) ? 1 : line(start);
+		if((p & PackedPosition.TOKEN) != 0)
+			return new SourcePosition(ls, column(start), column(end));
+		if((p & PackedPosition.UNFINISHED) != 0)
+			return new SourcePosition(ls, 1, column(start), 1);
+		int lf;
+		if((p & PackedPosition.END_DIV) != 0)
+			lf = 1;
+		else
+			lf = line(((p & PackedPosition.END_EMPTY) != 0) ? end : end - 1);
+		return new SourcePosition(ls, lf, column(start), column(end));
+	}
+
+	public SourceText getSourceFile() {
+		return source;
+	}
+}
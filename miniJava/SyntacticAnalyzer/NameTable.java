@@ -0,0 +1,103 @@
+/*
+ * miniJava NameTable
+ *
+ * interns token spellings. a spelling is looked up straight from
+ * its range of source chars, so a String is only created the first
+ * time a name is seen and every later occurrence shares it. names
+ * from the same table can be compared with ==, or by their int id.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+public class NameTable {
+	private static final int INITIAL_SLOTS = 1024;
+
+	private String[] names;		// id -> canonical spelling
+	private int[] hashes;		// id -> hash of the spelling
+	private int[] slots;		// open addressing, id + 1 or 0 if empty
+	private int count;
+
+	public NameTable() {
+		names = new String[INITIAL_SLOTS / 2];
+		hashes = new int[INITIAL_SLOTS / 2];
+		slots = new int[INITIAL_SLOTS];
+		count = 0;
+	}
+
+	/*
+	 * returns the id of the spelling made of chars [start, start+len)
+	 * of src, adding it if it has not been seen before
+	 */
+	public int intern(CharSequence src, int start, int len) {
+		int h = 0;
+		for(int i = start; i < start + len; i++)
+			h = 31 * h + src.charAt(i);
+
+		int mask = slots.length - 1;
+		int s = spread(h) & mask;
+		while(slots[s] != 0) {
+			int id = slots[s] - 1;
+			if(hashes[id] == h && matches(names[id], src, start, len))
+				return id;
+			s = (s + 1) & mask;
+		}
+
+		if(count == names.length) {
+			names = java.util.Arrays.copyOf(names, count * 2);
+			hashes = java.util.Arrays.copyOf(hashes, count * 2);
+		}
+		int id = count++;
+		names[id] = src.subSequence(start, start + len).toString();
+		hashes[id] = h;
+		slots[s] = id + 1;
+		if(count * 2 > slots.length)
+			rehash();
+		return id;
+	}
+
+	public int intern(String s) {
+		return intern(s, 0, s.length());
+	}
+
+	// the canonical spelling for an id
+	public String name(int id) {
+		return names[id];
+	}
+
+	// canonical copy of s
+	public String canonical(String s) {
+		return names[intern(s)];
+	}
+
+	public int size() {
+		return count;
+	}
+
+	private static boolean matches(String name, CharSequence src, int start, int len) {
+		if(name.length() != len)
+			return false;
+		for(int i = 0; i < len; i++) {
+			if(name.charAt(i) != src.charAt(start + i))
+				return false;
+		}
+		return true;
+	}
+
+	private static int spread(int h) {
+		return h ^ (h >>> 16);
+	}
+
+	private void rehash() {
+		slots = new int[slots.length * 2];
+		int mask = slots.length - 1;
+		for(int id = 0; id < count; id++) {
+			int s = spread(hashes[id]) & mask;
+			while(slots[s] != 0)
+				s = (s + 1) & mask;
+			slots[s] = id + 1;
+		}
+	}
+}
@@ -0,0 +1,113 @@
+/*
+ * miniJava PackedPosition
+ *
+ * a source position packed into one long: the start offset, the
+ * length up to the end of the last token, and a few flags. line and
+ * columns are looked up in the scanner's LineIndex only when the
+ * position is printed.
+ *
+ * a Parser packing positions gives each AST node one of these, made
+ * by span() from where the phrase starts to the last token accepted.
+ * the node keeps pack() in AST.pos and drops the object, so a node
+ * holds a long instead of a SourcePosition. like a SourcePosition it
+ * never changes once made.
+ *
+ * it is a SourcePosition only so it can go through the AST
+ * constructors. the lines and columns it inherits are not looked up
+ * and stay 1, only toString() gives the real ones, so the parser
+ * hands one to nothing but an AST constructor. a ParseListener, say,
+ * gets LineIndex.position() of it instead.
+ *
+ * layout, low bits first:
+ * 		30 bits	start offset
+ * 		29 bits	length, signed (a phrase can finish before it starts
+ * 				when it is empty)
+ * 		5 bits	flags below
+ * so offsets stop at 1 GiB and lengths at 256 MiB, and pack() rejects
+ * anything past them rather than wrap around.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+public class PackedPosition extends SourcePosition {
+	private static final int OFFSET_BITS = 30;
+	private static final int LENGTH_BITS = 29;
+	private static final long OFFSET_MASK = (1L << OFFSET_BITS) - 1;
+	private static final long LENGTH_MASK = (1L << LENGTH_BITS) - 1;
+
+	// a single token, printed as "Line: n (s, f)"
+	public static final long TOKEN = 1L << 59;
+	// starts or ends on a '/', which is positioned on line 1
+	public static final long START_DIV = 1L << 60;
+	public static final long END_DIV = 1L << 61;
+	// the last token has no chars (EOT), its line is that of the end
+	public static final long END_EMPTY = 1L << 62;
+	// never finished, finish and linefinish are still 1
+	public static final long UNFINISHED = 1L << 63;
+
+	private final LineIndex lines;
+	private final long packed;
+
+	PackedPosition(LineIndex lines, long p) {
+		this.lines = lines;
+		packed = p;
+	}
+
+	// the first offset, and length, a packed position cannot hold
+	public static final long MAX_OFFSET = 1L << OFFSET_BITS;
+	public static final long MAX_LENGTH = 1L << (LENGTH_BITS - 1);
+
+	public static long pack(int offset, int length, long flags) {
+		if(offset < 0 || offset >= MAX_OFFSET || length < -MAX_LENGTH || length >= MAX_LENGTH)
+			throw new IllegalArgumentException("offset " + offset + " and length " + length
+					+ " do not fit a packed position");
+		return (offset & OFFSET_MASK) | (length & LENGTH_MASK) << OFFSET_BITS | flags;
+	}
+
+	// token i of tokens as currentPosition() would give it
+	static long token(TokenBuffer tokens, int i) {
+		int t = tokens.type(i);
+		int off = tokens.offset(i);
+		int len = tokens.length(i);
+		if(t == Token.DIV)
+			return pack(off, len, START_DIV | END_DIV);
+		return pack(off, len, TOKEN);
+	}
+
+	public static int offset(long p) {
+		return (int) (p & OFFSET_MASK);
+	}
+
+	public static int length(long p) {
+		// sign extends the length field
+		return (int) (p << (64 - OFFSET_BITS - LENGTH_BITS) >> (64 - LENGTH_BITS));
+	}
+
+	/*
+	 * Parser.span(): from start, packed by token(), to the end of token
+	 * i, or unfinished if no token has been accepted yet
+	 */
+	static long span(long start, TokenBuffer tokens, int i) {
+		int offset = offset(start);
+		long flags = start & START_DIV;
+		if(i < 0)
+			return pack(offset, 0, flags | UNFINISHED);
+		int end = tokens.offset(i) + tokens.length(i);
+		if(tokens.type(i) == Token.DIV)
+			flags |= END_DIV;
+		else if(tokens.length(i) == 0)
+			flags |= END_EMPTY;
+		return pack(offset, end - offset, flags);
+	}
+
+	public long pack() {
+		return packed;
+	}
+
+	public String toString() {
+		return lines.position(packed).toString();
+	}
+}
@@ -0,0 +1,286 @@
+/*
+ * miniJava ParallelScanner
+ *
+ * lexes a large file on a ForkJoinPool. the file is cut into chunks
+ * at line starts and each chunk is scanned at the same time by its
+ * own Scanner, which has to guess the state it starts in: outside
+ * any comment, on line 0 at column 0. only chunk 0 is known to be
+ * right.
+ *
+ * the chunks are then stitched in order. a chunk keeps scanning
+ * past its end until a token begins there, and that token is where
+ * the next chunk truly starts. once both scans begin a token at the
+ * same offset they agree on everything after it, except that lines
+ * are off by a constant and so are columns until the next newline
+ * resets them, and the speculative tokens are shifted to match. if
+ * the guess was wrong (the chunk began inside a block comment and
+ * lost track of it) the chunk is rescanned from its true start until
+ * a token lines up again.
+ *
+ * the result is the same TokenBuffer a sequential scan would give,
+ * down to scan errors and the error for an unterminated comment.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import miniJava.ErrorReporter;
+
+public class ParallelScanner {
+	public static final int DEFAULT_CHUNK_SIZE = 1 << 18;
+
+	private SourceFile source;
+	private ErrorReporter reporter;
+	private ForkJoinPool pool;
+	private int chunkSize;
+	private boolean tableDriven;
+
+	public ParallelScanner(SourceFile source, ErrorReporter reporter, ForkJoinPool pool) {
+		this(source, reporter, pool, DEFAULT_CHUNK_SIZE, false);
+	}
+
+	public ParallelScanner(SourceFile source, ErrorReporter reporter, ForkJoinPool pool,
+			int chunkSize, boolean tableDriven) {
+		this.source = source;
+		this.reporter = reporter;
+		this.pool = pool;
+		this.chunkSize = Math.max(chunkSize, 1);
+		this.tableDriven = tableDriven;
+	}
+
+	public TokenBuffer scanAll() {
+		int[] starts = chunkStarts();
+		final Chunk[] chunks = new Chunk[starts.length];
+		for(int k = 0; k < starts.length; k++) {
+			int end = (k + 1 < starts.length) ? starts[k + 1] : Integer.MAX_VALUE;
+			if(k == 0)
+				chunks[k] = new Chunk(0, end, 1, 1, 0);
+			else
+				chunks[k] = new Chunk(starts[k], end, 0, 0, 0);
+		}
+		pool.invoke(new RecursiveAction() {
+			protected void compute() {
+				invokeAll(chunks);
+			}
+		});
+		return stitch(chunks);
+	}
+
+	// chunk k starts just after the first '\n' at or past k chunk sizes
+	private int[] chunkStarts() {
+		int n = source.length();
+		int[] starts = new int[n / chunkSize + 1];
+		int count = 1;
+		int at = chunkSize;
+		while(at < n) {
+			int nl = source.lineEnd(at);
+			while(nl < n && source.charAt(nl) != '\n')
+				nl = source.lineEnd(nl + 1);
+			if(nl + 1 >= n)
+				break;
+			starts[count++] = nl + 1;
+			at = nl + 1 + chunkSize;
+		}
+		return java.util.Arrays.copyOf(starts, count);
+	}
+
+	private TokenBuffer stitch(Chunk[] chunks) {
+		int capacity = 0;
+		for(Chunk c : chunks)
+			capacity += c.size;
+		TokenBuffer out = new TokenBuffer(source, reporter, new NameTable(), capacity);
+
+		// c's tokens from index from on are right
+		Chunk c = chunks[0];
+		int from = 0;
+		int k = 0;
+		while(true) {
+			int last = c.size - 1;
+			if(c.type[last] == Token.EOT) {
+				c.emit(out, from, c.size);
+				return out;
+			}
+			c.emit(out, from, last);
+
+			// c's last token is the first one of the next chunk
+			Chunk next = chunks[++k];
+			int p = next.find(c.offset[last]);
+			if(p < 0) {
+				Chunk fix = new Chunk(c.offset[last], next.end,
+						c.line[last], c.column[last], c.resets[last]);
+				fix.scan(next);
+				int l = fix.size - 1;
+				p = next.find(fix.offset[l]);
+				if(p < 0) {
+					// never lined up, fix covers the whole chunk
+					c = fix;
+					from = 0;
+					continue;
+				}
+				fix.emit(out, 0, l);
+				next.shift(p, fix, l);
+			} else {
+				next.shift(p, c, last);
+			}
+			c = next;
+			from = p;
+		}
+	}
+
+	// the tokens of one chunk, in the same arrays as TokenBuffer
+	private class Chunk extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		final int start;
+		final int end;
+		final int startLine;
+		final int startColumn;
+		final int startResets;
+
+		int[] type;
+		int[] offset;
+		int[] length;
+		int[] line;
+		int[] column;
+		int[] finish;
+		int[] resets;
+		int size;
+
+		int[] errorToken = new int[0];
+		String[] errorMessage = new String[0];
+		int errorCount;
+		boolean unterminated;
+
+		Chunk(int start, int end, int startLine, int startColumn, int startResets) {
+			this.start = start;
+			this.end = end;
+			this.startLine = startLine;
+			this.startColumn = startColumn;
+			this.startResets = startResets;
+			int capacity = Math.max(16, (Math.min(end, source.length()) - start) / 4);
+			type = new int[capacity];
+			offset = new int[capacity];
+			length = new int[capacity];
+			line = new int[capacity];
+			column = new int[capacity];
+			finish = new int[capacity];
+			resets = new int[capacity];
+		}
+
+		protected void compute() {
+			scan(null);
+		}
+
+		/*
+		 * scans from start until EOT or a token that begins at or
+		 * past end, which is kept as the last token. with a guide it
+		 * also stops on the first token beginning where one of the
+		 * guide's does
+		 */
+		void scan(Chunk guide) {
+			SourceFile src = source.duplicate();
+			src.seek(start);
+			ErrorReporter errors = new ErrorReporter();
+			Scanner s = new Scanner(src, errors, tableDriven, startLine, startColumn);
+			s.columnResets = startResets;
+			s.speculative = true;
+			while(true) {
+				int t = s.scanNext();
+				add(t, s);
+				while(errorCount < errors.getNumErrors())
+					addError(size - 1, errors.errors.get(errorCount));
+				if(t == Token.EOT) {
+					unterminated = s.unterminated;
+					return;
+				}
+				if(s.tokenOffset >= end || (guide != null && guide.find(s.tokenOffset) >= 0))
+					return;
+			}
+		}
+
+		private void add(int t, Scanner s) {
+			if(size == type.length) {
+				int n = size * 2;
+				type = java.util.Arrays.copyOf(type, n);
+				offset = java.util.Arrays.copyOf(offset, n);
+				length = java.util.Arrays.copyOf(length, n);
+				line = java.util.Arrays.copyOf(line, n);
+				column = java.util.Arrays.copyOf(column, n);
+				finish = java.util.Arrays.copyOf(finish, n);
+				resets = java.util.Arrays.copyOf(resets, n);
+			}
+			type[size] = t;
+			offset[size] = s.tokenOffset;
+			length[size] = s.tokenLength;
+			line[size] = s.tokenLine;
+			column[size] = s.tokenColumn;
+			finish[size] = s.tokenFinish;
+			resets[size] = s.columnResets;
+			size++;
+		}
+
+		private void addError(int i, String m) {
+			if(errorCount == errorToken.length) {
+				errorToken = java.util.Arrays.copyOf(errorToken, errorCount * 2 + 1);
+				errorMessage = java.util.Arrays.copyOf(errorMessage, errorCount * 2 + 1);
+			}
+			errorToken[errorCount] = i;
+			errorMessage[errorCount] = m;
+			errorCount++;
+		}
+
+		// index of the token beginning at off, or -1
+		int find(int off) {
+			int lo = 0;
+			int hi = size - 1;
+			while(lo <= hi) {
+				int mid = (lo + hi) >>> 1;
+				if(offset[mid] < off)
+					lo = mid + 1;
+				else if(offset[mid] > off)
+					hi = mid - 1;
+				else
+					return mid;
+			}
+			return -1;
+		}
+
+		/*
+		 * token p begins where token r of ref does, and ref's is
+		 * right. moves lines and columns from p on to agree with it
+		 */
+		void shift(int p, Chunk ref, int r) {
+			int lines = ref.line[r] - line[p];
+			int columns = ref.column[r] - column[p];
+			int resetCount = ref.resets[r] - resets[p];
+			int epoch = resets[p];
+			for(int j = p; j < size; j++) {
+				line[j] += lines;
+				if(resets[j] == epoch) {
+					column[j] += columns;
+					finish[j] += columns;
+				}
+				resets[j] += resetCount;
+			}
+		}
+
+		// appends tokens [from, to) with their scan errors
+		void emit(TokenBuffer out, int from, int to) {
+			int e = 0;
+			while(e < errorCount && errorToken[e] < from)
+				e++;
+			for(int j = from; j < to; j++) {
+				int i = out.append(type[j], offset[j], length[j],
+						line[j], column[j], finish[j], resets[j]);
+				for(; e < errorCount && errorToken[e] == j; e++)
+					out.deferError(i, errorMessage[e]);
+				if(unterminated && j == size - 1)
+					out.deferUnterminated(i);
+			}
+		}
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * miniJava ParseListener
+ *
+ * what a Parser with a listener (see Parser.setListener) hands over
+ * as it goes, for a tool that only wants declarations, signatures or
+ * identifiers and not the whole Package. each callback gets the AST
+ * of one phrase as soon as the grammar code has built it; the parser
+ * keeps no class once exitClass has returned, so a listener that does
+ * not keep them either parses any input in the memory of its largest
+ * class.
+ *
+ * within a class the events come in source order, a statement after
+ * the statements nested in it and a reference before the rest of the
+ * phrase it starts. calling stop() from a callback ends the parse
+ * right after it, and parse() returns null. the methods here do
+ * nothing, a listener overrides the ones it wants
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FieldDecl;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+import miniJava.AbstractSyntaxTrees.ParameterDeclList;
+import miniJava.AbstractSyntaxTrees.Reference;
+import miniJava.AbstractSyntaxTrees.Statement;
+
+public abstract class ParseListener {
+	boolean stopped = false;
+
+	// class name has been read, at pos
+	public void enterClass(String name, SourcePosition pos) {}
+
+	// the whole class, with its members
+	public void exitClass(ClassDecl cd) {}
+
+	public void field(FieldDecl fd) {}
+
+	// the method's declarators, name and parameters, before its body
+	public void enterMethod(FieldDecl signature, ParameterDeclList parameters) {}
+
+	public void exitMethod(MethodDecl md) {}
+
+	public void statement(Statement s) {}
+
+	public void reference(Reference r) {}
+
+	// no more events are wanted
+	public final void stop() {
+		stopped = true;
+	}
+
+	public final boolean stopped() {
+		return stopped;
+	}
+}
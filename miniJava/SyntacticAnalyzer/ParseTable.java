@@ -0,0 +1,289 @@
+/*
+ * miniJava ParseTable
+ *
+ * generated by tester.LL1Generator from grammarv2.txt, do not edit.
+ *
+ * the LL(1) tables of the grammar and the driver that runs them for
+ * the Parser's table driven mode. nonterminals are numbered from
+ * NONTERMINAL and actions from ACTION, below them a symbol is a
+ * token type. a PREDICT set has bit t set for token type t.
+ */
+package miniJava.SyntacticAnalyzer;
+
+final class ParseTable {
+	static final int NONTERMINAL = 64;
+	static final int ACTION = 1024;
+	// ends a named nonterminal's phrase
+	static final int END = ACTION - 1;
+
+	// actions, as Parser.reduce() gets them
+	static final int CLASSES = 0;
+	static final int ADD_CLASS = 1;
+	static final int PROGRAM = 2;
+	static final int MEMBERS = 3;
+	static final int CLASS_DECL = 4;
+	static final int FIELD = 5;
+	static final int STATEMENTS = 6;
+	static final int ADD_STATEMENT = 7;
+	static final int NULL = 8;
+	static final int METHOD = 9;
+	static final int FALSE = 10;
+	static final int TRUE = 11;
+	static final int DECLARATORS = 12;
+	static final int PARAMETERS = 13;
+	static final int PARAMETER = 14;
+	static final int BLOCK = 15;
+	static final int IF_ELSE = 16;
+	static final int IF = 17;
+	static final int WHILE = 18;
+	static final int INT = 19;
+	static final int VAR_DECL = 20;
+	static final int BOOLEAN = 21;
+	static final int VOID = 22;
+	static final int THIS = 23;
+	static final int CLASS_TYPE = 24;
+	static final int ARRAY_TYPE = 25;
+	static final int ID_REF = 26;
+	static final int INDEXED = 27;
+	static final int COPY = 28;
+	static final int REQUALIFY = 29;
+	static final int BINARY = 30;
+	static final int ASSIGN = 31;
+	static final int CALL = 32;
+	static final int DROP_BASE = 33;
+	static final int QUALIFIED = 34;
+	static final int ARGUMENTS = 35;
+	static final int ADD_ARGUMENT = 36;
+	static final int REF_EXPR = 37;
+	static final int UNARY = 38;
+	static final int LITERAL = 39;
+	static final int CALL_EXPR = 40;
+	static final int NEW_ARRAY = 41;
+	static final int NEW_OBJECT = 42;
+
+	// FIRST sets of the named nonterminals
+	// class EOT
+	static final long FIRST_START = 0x40000040000L;
+	// class EOT
+	static final long FIRST_PROGRAM = 0x40000040000L;
+	// class
+	static final long FIRST_CLASS_DECLARATION = 0x40000L;
+	// <identifier> public private static int boolean void
+	static final long FIRST_MEMBER = 0x3f00002L;
+	// <identifier> public private static int boolean void
+	static final long FIRST_DECLARATORS = 0x3f00002L;
+	// <identifier> int boolean void, or nothing
+	static final long FIRST_PARAMETER_LIST = 0x3800002L;
+	// <identifier> int boolean void this if while {
+	static final long FIRST_STATEMENT = 0x1002f800002L;
+	// return
+	static final long FIRST_RETURN_EXPR = 0x80000L;
+	// <identifier> int boolean void
+	static final long FIRST_TYPE = 0x3800002L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_EXPRESSION = 0x11c4005003L;
+	// [
+	static final long FIRST_ARR_END = 0x4000000000L;
+	// ., or nothing
+	static final long FIRST_REF_TAIL = 0x200000000L;
+	// = (
+	static final long FIRST_SMT_REF_TAIL = 0x1000020000L;
+	// <identifier>
+	static final long FIRST_DOT_FOLLOW = 0x2L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_A = 0x11c4005003L;
+	// <int> <identifier> ! - this true false new (, or nothing
+	static final long FIRST_ARGUMENT_LIST = 0x11c4005003L;
+	// [
+	static final long FIRST_REF_ARR_ID = 0x4000000000L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_B = 0x11c4005003L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_C = 0x11c4005003L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_D = 0x11c4005003L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_E = 0x11c4005003L;
+	// <int> <identifier> ! - this true false new (
+	static final long FIRST_F = 0x11c4005003L;
+	// <identifier> this
+	static final long FIRST_REFERENCE = 0x4000002L;
+	// (
+	static final long FIRST_REF_EXP = 0x1000000000L;
+	// <identifier> int
+	static final long FIRST_EXP_DECL = 0x800002L;
+	// <identifier> this
+	static final long FIRST_BASE_REF = 0x4000002L;
+
+	// the name of each nonterminal, a nameless one has its rule's
+	private static final String[] NAMES = {
+		"Start", "Program", "ClassDeclaration", "Program", "Member", "ClassDeclaration",
+		"Declarators", "ParameterList", "Statement", "Member", "ReturnExpr", "Member",
+		"Member", "Declarators", "Declarators", "Type", "ParameterList", "ParameterList",
+		"Statement", "Expression", "Statement", "ArrEnd", "Statement", "RefTail",
+		"SmtRefTail", "Statement", "DotFollow", "Statement", "Type", "Type",
+		"A", "Expression", "RefTail", "ArgumentList", "RefArrID", "DotFollow",
+		"B", "A", "ArgumentList", "ArgumentList", "C", "B",
+		"B", "D", "C", "C", "E", "D",
+		"D", "F", "E", "E", "Reference", "RefExp",
+		"F", "ExpDecl", "BaseRef", "ExpDecl", "BaseRef",
+	};
+
+	// whether a nonterminal is named, and so keeps a mark
+	private static final boolean[] MARKED = {
+		true, true, true, false, true, false, true, true,
+		true, false, true, false, false, false, false, true,
+		false, false, false, true, false, true, false, true,
+		true, false, true, false, false, false, true, false,
+		false, true, true, false, true, false, false, false,
+		true, false, false, true, false, false, true, false,
+		false, true, false, false, true, true, false, true,
+		true, false, false,
+	};
+
+	// nonterminal n's productions are FIRST_PRODUCTION[n] up to FIRST_PRODUCTION[n + 1]
+	private static final int[] FIRST_PRODUCTION = {
+		0, 1, 2, 3, 5, 6, 8, 9, 10, 18, 20, 21,
+		23, 25, 28, 30, 34, 36, 38, 40, 41, 43, 44, 46,
+		47, 49, 51, 52, 56, 58, 60, 61, 63, 65, 66, 67,
+		69, 70, 72, 74, 76, 77, 79, 81, 82, 86, 88, 89,
+		91, 93, 101, 103, 105, 106, 107, 109, 111, 113, 115, 117,
+	};
+
+	// the tokens each production is chosen on
+	private static final long[] PREDICT = {
+		0x40000040000L, 0x40000040000L, 0x40000L, 0x40000L,
+		0x40000000000L, 0x3f00002L, 0x3f00002L, 0x20000000000L,
+		0x3f00002L, 0x2003800002L, 0x10000000000L, 0x8000000L,
+		0x20000000L, 0x800000L, 0x1000000L, 0x2000000L,
+		0x4000000L, 0x2L, 0x1002f800002L, 0x20000080000L,
+		0x80000L, 0x80000L, 0x20000000000L, 0x800000000L,
+		0x1000000000L, 0x100000L, 0x200000L, 0x3c00002L,
+		0x400000L, 0x3800002L, 0x800000L, 0x1000000L,
+		0x2000000L, 0x2L, 0x400000000L, 0x2000000000L,
+		0x3800002L, 0x2000000000L, 0x1002f800002L, 0x20000000000L,
+		0x11c4005003L, 0x10000000L, 0x3002f880002L, 0x4000000000L,
+		0x4000000000L, 0x2L, 0xbe0003eff0L, 0x20000L,
+		0x1000000000L, 0x8000000000L, 0x11c4005003L, 0x2L,
+		0x4000000000L, 0x200000000L, 0x2L, 0x1000020000L,
+		0x4000000000L, 0x2L, 0x4000000000L, 0x2L,
+		0x11c4005003L, 0x800L, 0xac0001e7f0L, 0x200000000L,
+		0xbc0003eff0L, 0x31c4005003L, 0x4000000000L, 0x4000000000L,
+		0xbe0003eff0L, 0x11c4005003L, 0x400L, 0xac0001ebf0L,
+		0x400000000L, 0x2000000000L, 0x11c4005003L, 0x2000000000L,
+		0x11c4005003L, 0x40L, 0x200L, 0x240L,
+		0xac0001edb0L, 0x11c4005003L, 0x80L, 0x20L,
+		0x10L, 0x100L, 0x1b0L, 0xac0001ee40L,
+		0x11c4005003L, 0x2000L, 0x4000L, 0x6000L,
+		0xac00018ff0L, 0x4000002L, 0x1000000000L, 0x4000L,
+		0x1000L, 0x1L, 0x40000000L, 0x80000000L,
+		0x100000000L, 0x8000L, 0x10000L, 0x18000L,
+		0xac00006ff0L, 0x4000002L, 0x1000000000L, 0x1000000000L,
+		0xac0001eff0L, 0x800000L, 0x2L, 0x4000000L,
+		0x2L, 0x1000000000L, 0x4000000000L, 0x4000000000L,
+		0xbe0001eff0L,
+	};
+
+	// production p is RHS[RHS_START[p]] up to RHS[RHS_START[p + 1]]
+	private static final int[] RHS_START = {
+		0, 1, 5, 12, 15, 15, 18, 20, 20, 24, 26, 31,
+		37, 43, 51, 58, 65, 69, 71, 74, 74, 77, 78, 79,
+		81, 90, 92, 94, 95, 97, 98, 101, 103, 105, 108, 113,
+		113, 117, 117, 120, 120, 122, 125, 126, 129, 130, 130, 131,
+		135, 140, 148, 154, 156, 158, 165, 171, 173, 174, 174, 175,
+		175, 177, 181, 181, 184, 184, 186, 190, 193, 194, 196, 200,
+		200, 204, 204, 207, 207, 209, 210, 211, 215, 215, 217, 218,
+		219, 220, 221, 225, 225, 227, 228, 229, 233, 233, 235, 238,
+		241, 244, 246, 248, 250, 252, 253, 254, 258, 258, 260, 264,
+		265, 266, 272, 275, 277, 280, 283, 287, 288, 288,
+	};
+
+	private static final int[] RHS = {
+		65, 1024, 67, 42, 1026, 18, 1, 40, 1027, 69, 41, 1028,
+		66, 1025, 67, 70, 1, 76, 68, 69, 77, 78, 79, 1036,
+		1037, 81, 40, 1030, 82, 41, 1039, 27, 36, 83, 37, 72,
+		84, 29, 36, 83, 37, 72, 1042, 23, 1043, 86, 1, 17,
+		83, 35, 1044, 24, 1045, 1, 17, 83, 35, 1044, 25, 1046,
+		1, 17, 83, 35, 1044, 26, 1047, 87, 88, 1, 91, 72,
+		1031, 73, 19, 83, 35, 74, 1032, 35, 1029, 36, 71, 37,
+		40, 1030, 73, 75, 41, 1033, 20, 1034, 21, 1035, 1034, 22,
+		1035, 1034, 23, 1043, 92, 24, 1045, 25, 1046, 1, 1048, 93,
+		34, 79, 1, 1038, 80, 79, 1, 1038, 80, 72, 1031, 82,
+		94, 95, 28, 72, 1040, 1041, 38, 39, 1049, 85, 96, 17,
+		83, 35, 1055, 36, 97, 37, 35, 1056, 39, 1048, 1049, 1,
+		17, 83, 35, 1044, 1050, 83, 39, 1051, 87, 88, 1, 99,
+		38, 89, 1052, 1050, 33, 90, 87, 1053, 88, 1048, 1, 17,
+		83, 35, 1044, 1050, 88, 85, 85, 100, 101, 11, 94, 1054,
+		95, 33, 90, 96, 1059, 103, 38, 83, 39, 1051, 1050, 98,
+		1057, 1058, 104, 106, 10, 100, 1054, 101, 34, 83, 1060, 102,
+		83, 1060, 102, 107, 109, 6, 9, 105, 104, 1054, 106, 110,
+		112, 7, 5, 4, 8, 108, 107, 1054, 109, 113, 115, 13,
+		14, 111, 110, 1054, 112, 116, 118, 36, 83, 37, 14, 83,
+		1062, 12, 83, 1062, 0, 1063, 30, 1063, 31, 1063, 32, 119,
+		15, 16, 114, 113, 1054, 115, 120, 87, 36, 97, 37, 1064,
+		117, 1061, 23, 1043, 38, 83, 39, 1065, 1, 1048, 121, 26,
+		1047, 1, 1050, 122, 36, 37, 1066, 38, 83, 39, 1065, 98,
+	};
+
+	// the production of nonterminal n for token t, TABLE[n << 6 | t], or -1
+	private static final short[] TABLE = new short[NAMES.length << 6];
+
+	static {
+		java.util.Arrays.fill(TABLE, (short) -1);
+		// an earlier production keeps a token, as in PREDICT
+		for(int n = 0; n < NAMES.length; n++)
+			for(int p = FIRST_PRODUCTION[n + 1] - 1; p >= FIRST_PRODUCTION[n]; p--)
+				for(int t = 0; t < NONTERMINAL; t++)
+					if((PREDICT[p] >>> t & 1) != 0)
+						TABLE[n << 6 | t] = (short) p;
+	}
+
+	/*
+	 * a stack of symbols still to be parsed, starting from the first
+	 * rule. a token is matched and shifted, a nonterminal replaced by
+	 * the production TABLE has for the current token and an
+	 * action run. a named nonterminal also keeps a mark of where its
+	 * phrase starts until its END, for the actions to position what
+	 * they build. stops at the first error, returning null
+	 */
+	static Object parse(Parser parser) {
+		int[] stack = new int[256];
+		long[] marks = new long[64];
+		int top = 0;
+		int mark = 0;
+		stack[top++] = NONTERMINAL;
+		while(top > 0) {
+			int s = stack[--top];
+			if(s < NONTERMINAL) {
+				if(parser.lookahead() != s) {
+					parser.expected(s);
+					return null;
+				}
+				parser.shift();
+			} else if(s < END) {
+				int n = s - NONTERMINAL;
+				int t = parser.lookahead();
+				int p = TABLE[n << 6 | t];
+				if(p < 0) {
+					parser.unexpected(NAMES[n]);
+					return null;
+				}
+				if(top + RHS_START[p + 1] - RHS_START[p] + 1 > stack.length)
+					stack = java.util.Arrays.copyOf(stack, stack.length * 2);
+				if(MARKED[n]) {
+					if(mark == marks.length)
+						marks = java.util.Arrays.copyOf(marks, mark * 2);
+					marks[mark++] = parser.mark();
+					stack[top++] = END;
+				}
+				for(int i = RHS_START[p + 1] - 1; i >= RHS_START[p]; i--)
+					stack[top++] = RHS[i];
+			} else if(s == END) {
+				mark--;
+			} else {
+				parser.reduce(s - ACTION, marks[mark - 1]);
+			}
+		}
+		return parser.result();
+	}
+}
@@ -0,0 +1,42 @@
+/*
+ * miniJava ParseTrace
+ *
+ * where a Parser reports what it does as it goes: each parse method
+ * it enters and each token it accepts. the parser hands over no more
+ * than it has at hand, a constant rule name and a token's index in
+ * its TokenBuffer, so a call builds nothing and a sink only spells
+ * out what it keeps.
+ *
+ * OFF, the default, does nothing. as long as a call site has only
+ * ever seen OFF the JIT inlines the empty method and the call is
+ * gone, so a parser that does not trace pays nothing for it. the
+ * other sinks are PrintTrace (the verbose output on a PrintStream),
+ * RingTrace (the last events in memory) and JfrTrace (JFR events).
+ * a sink is used by one parser at a time
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+public interface ParseTrace {
+	ParseTrace OFF = new Off();
+
+	// the parse method rule has been entered, e.g. "parseStatement()"
+	void enter(String rule);
+
+	/*
+	 * token i of tokens has been accepted, where expected was the
+	 * type asked for by accept(), or -1 by acceptIt()
+	 */
+	void accept(TokenBuffer tokens, int i, int expected);
+
+	final class Off implements ParseTrace {
+		private Off() {}
+
+		public void enter(String rule) {}
+
+		public void accept(TokenBuffer tokens, int i, int expected) {}
+	}
+}
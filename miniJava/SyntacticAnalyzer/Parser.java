@@ -11,34 +11,269 @@
 
 package miniJava.SyntacticAnalyzer;
 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
 import miniJava.*;
 import miniJava.AbstractSyntaxTrees.*;
 import miniJava.AbstractSyntaxTrees.Package;
 
 public class Parser {
-    private Scanner scanner;
-    private Token currentToken;
+    private TokenBuffer tokens;
+    private int currentType;
     private ErrorReporter errorReporter;
-    private SourcePosition previousTokenPosition;
-    private boolean verbose = false;
+    // line and finishing column of the last accepted token
+    private int previousLine = 1;
+    private int previousFinish = 1;
+    private int previousToken = -1;
+    // what the parser does, as it does it, see ParseTrace
+    private ParseTrace trace = ParseTrace.OFF;
+    // null unless positions are packed
+    private LineIndex lines;
+    // statements and expressions on an explicit stack, see run()
+    private boolean iterative = false;
+    // the generated LL(1) parser instead, see ParseTable
+    private boolean tableDriven = false;
+    // top-level classes parsed on this pool, see parseClasses()
+    private ForkJoinPool pool;
+    // in panic mode after a syntax error, see syncStatement()
+    private boolean recovering = false;
+    // the previous parse, when reparsing after an edit, see reused()
+    IncrementalParser reuse;
+    // gets each phrase as it is parsed, see setListener()
+    private ParseListener listener;
+    // shares the AST's leaves, see setLeaves()
+    private SharedLeaves leaves;
+    // and keeps their positions for parse()'s Package
+    private LeafPositions leafPositions;
+    // the last position span() made, and what for
+    private SourcePosition lastSpan;
+    private long spanMark = -1;
+    private int spanToken = -2;
 
     public Parser(Scanner lexer, ErrorReporter reporter) {
-        scanner = lexer;
-        errorReporter = reporter;
-        previousTokenPosition = new SourcePosition();
+        this(new TokenBuffer(lexer), reporter);
     }
     
     public Parser(Scanner lexer, ErrorReporter reporter, boolean verbo) {
-    	if(verbo) {
-    		verbose = true;
+    	this(new TokenBuffer(lexer), reporter, verbo);
+    }
+    
+    /*
+     * with packPositions the AST nodes get packed positions (see
+     * PackedPosition) instead of SourcePosition objects, looked up
+     * in a LineIndex the scanner records. lexer must not have
+     * scanned anything yet. a source of 1 GiB or more cannot be
+     * packed, see PackedPosition
+     */
+    public Parser(Scanner lexer, ErrorReporter reporter, boolean verbo, boolean packPositions) {
+    	this(lexer, reporter, verbo);
+    	if(packPositions) {
+    		if(lexer.getSourceFile() instanceof SourceFile
+    				&& lexer.getSourceFile().length() >= PackedPosition.MAX_OFFSET)
+    			throw new IllegalArgumentException("a source of " + lexer.getSourceFile().length()
+    					+ " chars is too large for packed positions");
+    		lines = lexer.indexLines();
     	}
-    	scanner = lexer;
+    }
+    
+    public Parser(TokenBuffer tokenBuffer, ErrorReporter reporter) {
+    	tokens = tokenBuffer;
     	errorReporter = reporter;
-    	previousTokenPosition = new SourcePosition();
+    }
+    
+    public Parser(TokenBuffer tokenBuffer, ErrorReporter reporter, boolean verbo) {
+    	this(tokenBuffer, reporter);
+    	if(verbo) {
+    		trace = new PrintTrace(System.out);
+    	}
+    }
+    
+    /*
+     * parse nested statements and expressions with a work stack on
+     * the heap instead of recursion, so nesting depth is only limited
+     * by memory and not by the thread's stack. the AST is the same
+     */
+    public void setIterative(boolean on) {
+    	iterative = on;
+    }
+    
+    /*
+     * parse with the LL(1) tables generated from grammarv2.txt, see
+     * reduce(). the AST has the same shape, each node positioned over
+     * its own phrase. stops at the first syntax error, when parse()
+     * returns null
+     */
+    public void setTableDriven(boolean on) {
+    	tableDriven = on;
+    }
+    
+    /*
+     * parse the top-level classes at the same time on pool, or one
+     * after another if it is null. the AST and errors are the same
+     */
+    public void setParallel(ForkJoinPool pool) {
+    	this.pool = pool;
+    }
+    
+    /*
+     * report each parse method entered and each token accepted to
+     * trace (verbose is a PrintTrace on System.out). while tracing,
+     * classes are not parsed in parallel
+     */
+    public void setTrace(ParseTrace trace) {
+    	this.trace = trace;
+    }
+    
+    /*
+     * hand classes, members, statements and references to listener
+     * as they are parsed (see ParseListener) and keep no classes, so
+     * parse() returns an empty Package. with a listener the classes
+     * are parsed by recursive descent or iteratively, neither by the
+     * tables nor in parallel
+     */
+    public void setListener(ParseListener listener) {
+    	this.listener = listener;
+    }
+    
+    /*
+     * take leaves' shared BaseTypes, literals and operators instead of
+     * making new ones, and give parse()'s Package the LeafPositions
+     * that keep their positions. not when reparsing after an edit, as
+     * IncrementalParser moves positions in place
+     */
+    public void setLeaves(SharedLeaves leaves) {
+    	this.leaves = leaves;
+    }
+    
+    // the current token's spelling and position are built on demand
+    private String currentSpelling() {
+    	return tokens.spelling();
+    }
+    
+    private SourcePosition currentPosition() {
+    	if(lines != null)
+    		return new PackedPosition(lines, PackedPosition.token(tokens, tokens.cursor()));
+    	return tokens.position();
+    }
+    
+    // an operator only needs the spelling
+    private Token currentToken() {
+    	if(lines != null)
+    		return new Token(currentType, currentSpelling(), null);
+    	return tokens.token();
+    }
+    
+    /*
+     * node's position, for another node over the same phrase. packed,
+     * a position for node.pos
+     */
+    private SourcePosition positionOf(AST node) {
+    	if(lines != null)
+    		return new PackedPosition(lines, node.pos);
+    	return node.posn;
+    }
+    
+    /*
+     * the leaves that can be shared, see setLeaves(). while sharing,
+     * the shared instance is taken where a leaf would be made, and
+     * the position it would have had waits in leafPositions until
+     * the node it hangs off is made and adopt()s it
+     */
+    private BaseType baseType(TypeKind kind, SourcePosition position) {
+    	if(leafPositions == null)
+    		return new BaseType(kind, position);
+    	return leafPositions.parsed(leaves.baseType(kind), position);
+    }
+    
+    // the current token as a leaf
+    private IntLiteral intLiteral() {
+    	if(leafPositions == null)
+    		return new IntLiteral(currentSpelling(), currentPosition());
+    	return leafPositions.parsed(leaves.intLiteral(currentSpelling()), currentPosition());
+    }
+    
+    private BooleanLiteral booleanLiteral() {
+    	if(leafPositions == null)
+    		return new BooleanLiteral(currentSpelling(), currentPosition());
+    	return leafPositions.parsed(leaves.booleanLiteral(currentSpelling()), currentPosition());
+    }
+    
+    private Operator operator() {
+    	if(leafPositions == null)
+    		return new Operator(currentToken(), currentPosition());
+    	return leafPositions.parsed(leaves.operator(currentSpelling()), currentPosition());
+    }
+    
+    // node, just made over leaf, which gets the position leaf waits with
+    private <T extends AST> T adopt(T node, AST leaf) {
+    	if(leafPositions != null)
+    		leafPositions.adopt(node, leaf);
+    	return node;
+    }
+    
+    // position as anything but an AST constructor may see it
+    private SourcePosition resolved(SourcePosition position) {
+    	if(lines != null)
+    		return lines.position(((PackedPosition) position).pack());
+    	return position;
+    }
+    
+    private void setPosition(AST node, SourcePosition position) {
+    	if(lines != null)
+    		node.pos = ((PackedPosition) position).pack();
+    	else
+    		node.posn = position;
+    }
+    
+    // moves to token i as if the tokens before it had been accepted
+    private void seek(int i) {
+    	if(i > 0) {
+    		previousLine = tokens.line(i - 1);
+    		previousFinish = tokens.finish(i - 1);
+    		previousToken = i - 1;
+    	}
+    	tokens.seek(i);
+    	currentType = tokens.type();
+    }
+    
+    /*
+     * the class (or member) of the previous parse that starts at the
+     * current token, if the edit left it alone, with the parser moved
+     * past it. null if there is none, and always when not reparsing
+     */
+    private AST reused(boolean member) {
+    	if(reuse == null)
+    		return null;
+    	AST node = reuse.reusable(tokens.cursor(), member);
+    	if(node != null)
+    		seek(reuse.reusedEnd);
+    	return node;
+    }
+    
+    /*
+     * a class or member has been parsed from start on. it can be
+     * reused next time only if it had no errors
+     */
+    private void parsed(AST node, int start, int errors) {
+    	if(reuse != null && !recovering && errorReporter.getNumErrors() == errors)
+    		reuse.parsed(node, start, tokens.cursor());
+    }
+    
+    private void nextToken() {
+    	int c = tokens.cursor();
+    	previousLine = tokens.line(c);
+    	previousFinish = tokens.finish(c);
+    	previousToken = c;
+    	currentType = tokens.advance();
     }
 
+    // in panic mode only the first error before the next sync point counts
     void syntacticError(String tmpl, String tk) {
-        SourcePosition pos = currentToken.position;
+    	if(recovering)
+    		return;
+    	recovering = true;
+        SourcePosition pos = currentPosition();
         String msg = tk != null ? 
         	tmpl + " " + tk + " " + pos : // include token name
         	tmpl + " " + pos; // without token name
@@ -46,122 +281,496 @@ public class Parser {
     }
 
     void accept(int tokenExpected) {
-    	String msg = null;
-        if(currentToken.type == tokenExpected) {
-        	if(verbose) {
-        		System.out.println("CurrentToken: " + currentToken.spelling +
-        				"\nExpectedToken: " + Token.spell(tokenExpected));
-        		msg = currentToken.type == Token.EOT ? "End of Text" :
-        			"Accept: " + currentToken.spelling;
-        		System.out.println(msg);
-        		
-        	}
-            previousTokenPosition = currentToken.position;
-            currentToken = scanner.scan();
+        if(currentType == tokenExpected) {
+        	trace.accept(tokens, tokens.cursor(), tokenExpected);
+            nextToken();
         } else {
         	//Sometimes tokenExpected is whitespace
         	//and the message should be different
         	// class id {*} error for example
         	syntacticError(Token.spell(tokenExpected) + " expected, instead of '" +
-        		currentToken.spelling + "'", null);
+        		currentSpelling() + "'", null);
         }
     }
 
     void acceptIt() {
-    	if(verbose)
-    		System.out.println("CurrentToken: " + currentToken.spelling);
-    		System.out.println("AcceptIt: " + currentToken.spelling);
-        previousTokenPosition = currentToken.position;
-        currentToken = scanner.scan();
+    	trace.accept(tokens, tokens.cursor(), -1);
+        nextToken();
     }
 
-    // start records the position of the 1st char of 1st token of phrase
-    void start(SourcePosition position) {
-        position.start = currentToken.position.start;
-        position.linestart = currentToken.position.linestart;
+    /*
+     * positions
+     * 
+     * a phrase's position is made once the phrase is complete, as a
+     * value that never changes (see SourcePosition), so nodes over the
+     * same phrase can share it and a node's position cannot change
+     * under it as the parser goes on. startMark() records where the
+     * phrase starts in a long, span() makes the position from there
+     * to the last token accepted
+     */
+    private long startMark() {
+    	int c = tokens.cursor();
+    	if(lines != null)
+    		return PackedPosition.token(tokens, c);
+    	return (long) tokens.line(c) << 32 | tokens.column(c);
     }
-
-    // finish records the position of last char of last token of phrase
-    void finish(SourcePosition position) {
-        position.finish = previousTokenPosition.finish;
-        position.linefinish = previousTokenPosition.linestart;
+    
+    // the mark a phrase starting where node does would have
+    private long markOf(AST node) {
+    	if(leafPositions != null && leaves.isShared(node)) {
+    		// the leaf waiting for its parent, which is about to be made
+    		if(lines != null)
+    			return leafPositions.waitingPos();
+    		SourcePosition p = leafPositions.waitingPosition();
+    		return (long) p.linestart << 32 | p.start;
+    	}
+    	if(lines != null)
+    		return node.pos;
+    	return (long) node.posn.linestart << 32 | node.posn.start;
+    }
+    
+    /*
+     * from mark to the last token accepted. nodes over the same phrase
+     * are usually made one after another (an IdRef and its Identifier,
+     * a RefExpr and its Reference), so the last span is kept and
+     * handed out again
+     */
+    private SourcePosition span(long mark) {
+    	if(mark == spanMark && previousToken == spanToken)
+    		return lastSpan;
+    	spanMark = mark;
+    	spanToken = previousToken;
+    	if(lines != null)
+    		lastSpan = new PackedPosition(lines, PackedPosition.span(mark, tokens, previousToken));
+    	else
+    		lastSpan = new SourcePosition((int) (mark >>> 32), previousLine, (int) mark, previousFinish);
+    	return lastSpan;
+    }
+    
+    // from where node starts to the last token accepted
+    private SourcePosition spanFrom(AST node) {
+    	return span(markOf(node));
+    }
+    
+    /*
+     * the scratch stack
+     * 
+     * the elements of every list being built, the innermost list's on
+     * top, as lists nest the way the phrases holding them do. a list
+     * starts at the stack's top, its elements are kept as they are
+     * parsed, and once it is complete freeze() moves them into an
+     * array of exactly their number for the list to keep. the stack
+     * is reused from list to list, so a list costs one array
+     */
+    private AST[] scratch = new AST[64];
+    private int scratchTop = 0;
+    
+    private void keep(AST node) {
+    	if(scratchTop == scratch.length)
+    		scratch = java.util.Arrays.copyOf(scratch, scratchTop * 2);
+    	scratch[scratchTop++] = node;
+    }
+    
+    // the nodes kept since base, off the stack into an array of type
+    private <T extends AST> T[] freeze(int base, Class<T[]> type) {
+    	T[] nodes = java.util.Arrays.copyOfRange(scratch, base, scratchTop, type);
+    	drop(base);
+    	return nodes;
+    }
+    
+    private void drop(int base) {
+    	java.util.Arrays.fill(scratch, base, scratchTop, null);
+    	scratchTop = base;
+    }
+    
+    /*
+     * events
+     * 
+     * with a listener, each statement and reference goes to it once
+     * built, through these, and the other phrases where they are
+     * parsed. after each event the parse ends if the listener asked
+     * to stop: Stopped unwinds every parse method up to parse()
+     */
+    private static final class Stopped extends RuntimeException {
+    	private static final long serialVersionUID = 1L;
+    	
+    	Stopped() {
+    		super(null, null, false, false);
+    	}
+    }
+    
+    private static final Stopped STOPPED = new Stopped();
+    
+    private void stopIfAsked() {
+    	if(listener.stopped)
+    		throw STOPPED;
+    }
+    
+    // null if it was too malformed to build
+    private Statement statement(Statement s) {
+    	if(listener != null && s != null) {
+    		listener.statement(s);
+    		stopIfAsked();
+    	}
+    	return s;
+    }
+    
+    private Reference reference(Reference r) {
+    	if(listener != null && r != null) {
+    		listener.reference(r);
+    		stopIfAsked();
+    	}
+    	return r;
     }
 
     public Package parse() {
     	ClassDeclList cdl;
-    	SourcePosition pkgpos = new SourcePosition();
     	
-    	if(verbose) System.out.println("parse()");
-        currentToken = scanner.scan();
-    	start(pkgpos);
-        cdl = parseProgram();
-        finish(pkgpos);
-        return new Package(cdl, pkgpos);
+    	trace.enter("parse()");
+        currentType = tokens.type();
+        leafPositions = leaves != null && reuse == null ? leaves.positions() : null;
+        if(tableDriven && listener == null)
+        	return (Package) ParseTable.parse(this);
+    	long pkgmark = startMark();
+    	try {
+    		cdl = parseProgram();
+    	} catch(Stopped e) {
+    		return null;
+    	}
+        Package p = new Package(cdl, span(pkgmark));
+        p.lineIndex = lines;
+        p.leaves = leafPositions;
+        return p;
     }
     
     /*
      * Program -> (ClassDeclaration)* EOT
      */
     private ClassDeclList parseProgram() {
-    	ClassDeclList cdl = new ClassDeclList();
+    	ClassDeclList cdl = null;
     	ClassDecl cdAST;
     	
-    	if(verbose) System.out.println("parseProgram()");
-    	while(currentToken.type == Token.CLASS) {
-    		cdAST = parseClassDeclaration();
-    		cdl.add(cdAST);
+    	trace.enter("parseProgram()");
+    	if(pool != null && trace == ParseTrace.OFF && listener == null)
+    		cdl = parseClasses();
+    	if(cdl == null) {
+    		int base = scratchTop;
+    		while(currentType != Token.EOT) {
+    			if(currentType == Token.CLASS) {
+    				int start = tokens.cursor();
+    				int errors = errorReporter.getNumErrors();
+    				cdAST = (ClassDecl) reused(false);
+    				if(cdAST == null) {
+    					if(reuse != null)
+    						reuse.classStarts();
+    					cdAST = parseClassDeclaration();
+    					parsed(cdAST, start, errors);
+    				}
+    				if(listener == null) {
+    					keep(cdAST);
+    				} else {
+    					listener.exitClass(cdAST);
+    					stopIfAsked();
+    				}
+    			} else {
+    				// anything else is an error, up to the next class
+    				accept(Token.EOT);
+    			}
+    			skipTo(CLASS_SYNC);
+    		}
+    		cdl = new ClassDeclList(freeze(base, ClassDecl[].class));
     	}
     	accept(Token.EOT);
     	return cdl;
     }
     
+    /*
+     * panic mode recovery
+     * 
+     * after a syntax error the parser carries on without reporting
+     * any more errors until it reaches the end of the statement,
+     * member or class the error is in. from there it skips tokens up
+     * to one that can go on at that point, and is back in step, so
+     * one pass reports every independent error, and each only once.
+     * the sync sets are bitsets of token types, like ParseTable's
+     */
+    private static long set(int... types) {
+    	long s = 1L << Token.EOT;
+    	for(int t : types)
+    		s |= 1L << t;
+    	return s;
+    }
+    
+    /*
+     * the end of a statement, or what can start one or come after it.
+     * not return, a misplaced return statement is skipped whole
+     */
+    private static final long STATEMENT_SYNC = set(Token.SEMICOLON, Token.LCURLY, Token.RCURLY,
+    		Token.IF, Token.WHILE, Token.INT, Token.BOOLEAN, Token.VOID, Token.THIS,
+    		Token.PUBLIC, Token.PRIVATE, Token.STATIC, Token.CLASS);
+    // what ends a list of statements (or should have)
+    private static final long STATEMENTS_END = set(Token.RCURLY, Token.RETURN,
+    		Token.PUBLIC, Token.PRIVATE, Token.STATIC, Token.CLASS);
+    // a method's body, or the next member or class
+    private static final long METHOD_BODY_SYNC = set(Token.LCURLY, Token.RCURLY,
+    		Token.PUBLIC, Token.PRIVATE, Token.STATIC, Token.CLASS);
+    // a class's body, or the next class
+    private static final long CLASS_BODY_SYNC = set(Token.LCURLY, Token.CLASS);
+    private static final long CLASS_SYNC = set(Token.CLASS);
+    
+    // skips to a token of sync, or EOT, if an error needs it
+    private void skipTo(long sync) {
+    	if(!recovering)
+    		return;
+    	while(!in(sync, currentType))
+    		nextToken();
+    	recovering = false;
+    }
+    
+    /*
+     * after a statement: skips the rest of it, up to and past its ;
+     * unless that has been accepted already
+     */
+    private void syncStatement() {
+    	if(recovering && (previousToken < 0 || tokens.type(previousToken) != Token.SEMICOLON))
+    		skipStatement();
+    	recovering = false;
+    }
+    
+    private void skipStatement() {
+    	while(!in(STATEMENT_SYNC, currentType))
+    		nextToken();
+    	if(currentType == Token.SEMICOLON)
+    		nextToken();
+    }
+    
+    /*
+     * after a member: skips the rest of it, past its ; or over its
+     * body, stopping at the next member or class or at the } that
+     * ends the class
+     */
+    private void syncMember() {
+    	if(!recovering)
+    		return;
+    	int depth = 0;
+    	while(currentType != Token.EOT && currentType != Token.CLASS) {
+    		if(currentType == Token.LCURLY) {
+    			depth++;
+    		} else if(currentType == Token.RCURLY) {
+    			if(depth == 0)
+    				break;
+    			if(--depth == 0) {
+    				nextToken();
+    				break;
+    			}
+    		} else if(depth == 0) {
+    			if(currentType == Token.SEMICOLON) {
+    				nextToken();
+    				break;
+    			}
+    			if(currentType == Token.PUBLIC || currentType == Token.PRIVATE
+    					|| currentType == Token.STATIC)
+    				break;
+    		}
+    		nextToken();
+    	}
+    	recovering = false;
+    }
+    
+    /*
+     * the parallel mode
+     * 
+     * the whole token stream is scanned first and cut into the
+     * top-level classes by brace depth, class id { to the } that
+     * closes it. each class is parsed on the pool by a Parser of its
+     * own, with its own cursor into the shared tokens and its own
+     * error reporter, and the results are put in source order.
+     * 
+     * returns null, and the classes are parsed one after another as
+     * usual, if the tokens are not just a run of such classes or any
+     * class does not parse cleanly up to its closing }, so errors are
+     * reported exactly as without the pool. scan errors are all
+     * reported first, as the tokens are scanned up front
+     */
+    private ClassDeclList parseClasses() {
+    	if(currentType != Token.CLASS || !tokens.freeze())
+    		return null;
+    	int[] starts = classStarts();
+    	if(starts == null || starts.length < 3)
+    		return null;
+    	final ClassTask[] tasks = new ClassTask[starts.length - 1];
+    	for(int k = 0; k < tasks.length; k++)
+    		tasks[k] = new ClassTask(starts[k], starts[k + 1]);
+    	pool.invoke(new RecursiveAction() {
+    		protected void compute() {
+    			invokeAll(tasks);
+    		}
+    	});
+    	ClassDecl[] decls = new ClassDecl[tasks.length];
+    	for(int k = 0; k < tasks.length; k++) {
+    		if(tasks[k].decl == null)
+    			return null;
+    		decls[k] = tasks[k].decl;
+    	}
+    	if(leafPositions != null) {
+    		for(ClassTask task : tasks)
+    			leafPositions.addAll(task.leafPositions);
+    	}
+    	seek(starts[starts.length - 1]);
+    	return new ClassDeclList(decls);
+    }
+    
+    /*
+     * where each top-level class starts from the cursor on, then
+     * where the last one ends (at EOT), or null if the tokens are
+     * not classes of balanced braces
+     */
+    private int[] classStarts() {
+    	int[] starts = new int[16];
+    	int count = 0;
+    	int i = tokens.cursor();
+    	while(true) {
+    		if(count == starts.length)
+    			starts = java.util.Arrays.copyOf(starts, count * 2);
+    		starts[count++] = i;
+    		if(tokens.type(i) == Token.EOT)
+    			return java.util.Arrays.copyOf(starts, count);
+    		if(tokens.type(i) != Token.CLASS || tokens.type(i + 1) != Token.ID
+    				|| tokens.type(i + 2) != Token.LCURLY)
+    			return null;
+    		i += 3;
+    		for(int depth = 1; depth > 0; i++) {
+    			switch(tokens.type(i)) {
+    			case Token.LCURLY:
+    				depth++;
+    				break;
+    			case Token.RCURLY:
+    				depth--;
+    				break;
+    			case Token.EOT:
+    				return null;
+    			}
+    		}
+    	}
+    }
+    
+    // parses tokens [start, end) as one class, decl is null if it does not
+    private class ClassTask extends RecursiveAction {
+    	private static final long serialVersionUID = 1L;
+    	final int start;
+    	final int end;
+    	ClassDecl decl;
+    	LeafPositions leafPositions;
+    	
+    	ClassTask(int start, int end) {
+    		this.start = start;
+    		this.end = end;
+    	}
+    	
+    	protected void compute() {
+    		ErrorReporter reporter = new ErrorReporter();
+    		Parser parser = new Parser(new TokenBuffer(tokens), reporter);
+    		parser.lines = lines;
+    		parser.iterative = iterative;
+    		if(Parser.this.leafPositions != null) {
+    			parser.leaves = leaves;
+    			parser.leafPositions = leafPositions = leaves.positions();
+    		}
+    		parser.seek(start);
+    		ClassDecl cd;
+    		try {
+    			cd = parser.parseClassDeclaration();
+    		} catch(StackOverflowError e) {
+    			// a worker's stack is smaller, the caller may still manage
+    			return;
+    		}
+    		if(!reporter.hasErrors() && parser.tokens.cursor() == end)
+    			decl = cd;
+    	}
+    }
+    
     /*
      * Class Declaration -> class id {
      * 		(FieldDeclaration | MethodDeclaration)*
      * }
      */
     private ClassDecl parseClassDeclaration() {
-    	FieldDeclList fdl = new FieldDeclList();
-    	MethodDeclList mdl = new MethodDeclList();
-    	SourcePosition classpos = new SourcePosition();
+    	// fields and methods go on the scratch stack in source order
+    	int base = scratchTop;
+    	int fields = 0;
     	String className;
     	
-    	if(verbose) System.out.println("parseClassDeclaration()");
-    	start(classpos);
+    	trace.enter("parseClassDeclaration()");
+    	long classmark = startMark();
     	accept(Token.CLASS);
-    	className = currentToken.spelling;
+    	className = currentSpelling();
     	accept(Token.ID);
+    	if(listener != null) {
+    		listener.enterClass(className, resolved(span(classmark)));
+    		stopIfAsked();
+    	}
+    	skipTo(CLASS_BODY_SYNC);
     	accept(Token.LCURLY);
     	// (FieldDeclaration | MethodDeclaration)*
-    	while(inDeclaratorStarterSet(currentToken.type)) {
+    	while(inDeclaratorStarterSet(currentType)) {
     		FieldDecl f;
     		MethodDecl m;
+    		MemberDecl r = (MemberDecl) reused(true);
+    		if(r != null) {
+    			keep(r);
+    			if(r instanceof FieldDecl)
+    				fields++;
+    			continue;
+    		}
+    		int start = tokens.cursor();
+    		int errors = errorReporter.getNumErrors();
     		f = parseDeclarators();
-    		f.name = currentToken.spelling;
+    		f.name = currentSpelling();
     		accept(Token.ID);
-    		if(currentToken.type == Token.LPAREN) {
+    		if(currentType == Token.LPAREN) {
     			m = parseMethodDeclaration(f);
-    			mdl.add(m);
-    		} else if(currentToken.type == Token.SEMICOLON) {
-    			fdl.add(f);
+    			keep(m);
+    			parsed(m, start, errors);
+    		} else if(currentType == Token.SEMICOLON) {
+    			keep(adopt(f, f.type));
+    			fields++;
     			acceptIt();
+    			parsed(f, start, errors);
+    			if(listener != null) {
+    				listener.field(f);
+    				stopIfAsked();
+    			}
     		} else {
+    			if(leafPositions != null)
+    				leafPositions.drop(f.type);
     			syntacticError("'(' or ';' expected\n "+
-    					"instead of ", currentToken.spelling);
+    					"instead of ", currentSpelling());
     		}
+    		syncMember();
     	}
     	/* 
     	 * Class declaration body
     	 * 		can be empty -> accept }
     	 */
-    	if(currentToken.type == Token.RCURLY) {
+    	if(currentType == Token.RCURLY) {
     		acceptIt();
     	} else {
     		syntacticError("Empty class declaration not empty.\n\t'"+
-    				currentToken.spelling + "' not allowed.", null);
+    				currentSpelling() + "' not allowed.", null);
     	}
-    	finish(classpos);
-    	return new ClassDecl(className, fdl, mdl, classpos);
+    	// then each kind is frozen into its own list
+    	FieldDecl[] fdl = new FieldDecl[fields];
+    	MethodDecl[] mdl = new MethodDecl[scratchTop - base - fields];
+    	int nf = 0, nm = 0;
+    	for(int i = base; i < scratchTop; i++) {
+    		if(scratch[i] instanceof FieldDecl)
+    			fdl[nf++] = (FieldDecl) scratch[i];
+    		else
+    			mdl[nm++] = (MethodDecl) scratch[i];
+    	}
+    	drop(base);
+    	return new ClassDecl(className, new FieldDeclList(fdl), new MethodDeclList(mdl),
+    			span(classmark));
     };
     
     /* 
@@ -171,113 +780,114 @@ public class Parser {
      * 		}
      */
     private MethodDecl parseMethodDeclaration(FieldDecl f) {
-    	ParameterDeclList pdl = new ParameterDeclList();
-    	StatementList sl = new StatementList();
-    	SourcePosition mthddeclpos = f.posn;
+    	ParameterDeclList pdl;
+    	StatementList sl;
     	Expression e = null;
     	
-    	if(verbose) System.out.println("parseMethodDeclaration()");
+    	trace.enter("parseMethodDeclaration()");
     	// previously parsed Declarators & id
     	// currentToken == LPAREN
     	accept(Token.LPAREN);
-    	if(inParameterListStarterSet(currentToken.type))
+    	if(inParameterListStarterSet(currentType))
     		pdl = parseParameterList();
-    	System.out.println(currentToken.spelling);
+    	else
+    		pdl = new ParameterDeclList();
     	accept(Token.RPAREN);
+    	if(listener != null) {
+    		listener.enterMethod(f, pdl);
+    		stopIfAsked();
+    	}
+    	skipTo(METHOD_BODY_SYNC);
     	accept(Token.LCURLY);
     	
-    	while(inStatementStarterSet(currentToken.type)) {
-    		sl.add(parseStatement());
-    	}
+    	sl = parseStatements();
     	
-    	if(currentToken.type == Token.RETURN) {
+    	if(currentType == Token.RETURN) {
     		acceptIt();
     		e = parseExpression();
     		accept(Token.SEMICOLON);
+    		syncStatement();
     	}
     	accept(Token.RCURLY);
-    	finish(mthddeclpos);
-    	return new MethodDecl(f, pdl, sl, e, mthddeclpos);
+    	MethodDecl md = adopt(new MethodDecl(f, pdl, sl, e, spanFrom(f)), f.type);
+    	if(listener != null) {
+    		listener.exitMethod(md);
+    		stopIfAsked();
+    	}
+    	return md;
     }
     
     /* Declarators -> 
      * 		(public | private)? static? Type
+     * 
+     * the type's position, if it is shared, waits for the field or
+     * method
      */
     private FieldDecl parseDeclarators() {
     	boolean isPriv, isStatic;
     	isPriv = false;
     	Type typeAST;
-    	SourcePosition declpos = new SourcePosition();
     	
-    	if(verbose) System.out.println("parseDeclarators()");
-    	start(declpos);
-    	if(currentToken.type == Token.PUBLIC ||
-    			currentToken.type == Token.PRIVATE) {
-    		if(currentToken.type == Token.PUBLIC)
+    	trace.enter("parseDeclarators()");
+    	long declmark = startMark();
+    	if(currentType == Token.PUBLIC ||
+    			currentType == Token.PRIVATE) {
+    		if(currentType == Token.PUBLIC)
     			isPriv = false;
     		else
     			isPriv = true;
     		acceptIt();
     	}
 
-    	if(currentToken.type == Token.STATIC) {
+    	if(currentType == Token.STATIC) {
     		acceptIt();
     		isStatic = true;
     	} else {
     		isStatic = false;
     	}
     	typeAST = parseType();
-    	finish(declpos);
-    	return new FieldDecl(isPriv, isStatic, typeAST, typeAST.typeKind.name(), declpos);
+    	return new FieldDecl(isPriv, isStatic, typeAST, typeAST.typeKind.name(), span(declmark));
     }
     
     /* Type ->
      * 		PrimType | ClassType | ArrType
      */
     private Type parseType() {
-    	SourcePosition typepos = new SourcePosition();
-    	if(verbose) System.out.println("parseType()");
-    	start(typepos);
-    	switch(currentToken.type) {
+    	trace.enter("parseType()");
+    	long typemark = startMark();
+    	switch(currentType) {
     	case Token.BOOLEAN:
     		acceptIt();
-    		finish(typepos);
-    		return new BaseType(TypeKind.BOOLEAN, typepos);
+    		return baseType(TypeKind.BOOLEAN, span(typemark));
     	case Token.VOID:
     		acceptIt();
-    		finish(typepos);
-    		return new BaseType(TypeKind.VOID, typepos);
+    		return baseType(TypeKind.VOID, span(typemark));
     	case Token.ID:
-    		String cn = currentToken.spelling;
-    		Identifier classname = new Identifier(cn, currentToken.position);
+    		String cn = currentSpelling();
+    		Identifier classname = new Identifier(cn, currentPosition());
     		acceptIt();
-    		if(currentToken.type == Token.LBRACKET){
+    		if(currentType == Token.LBRACKET){
     			acceptIt();
     			accept(Token.RBRACKET);
-    			finish(typepos);
     			return new ArrayType(
-    					new ClassType(classname, classname.posn), typepos);
+    					new ClassType(classname, positionOf(classname)), span(typemark));
     		} else {
-    			finish(typepos);
-    			return new ClassType(classname, typepos);
+    			return new ClassType(classname, span(typemark));
     		}
     	case Token.INT:
     		acceptIt();
-    		if(currentToken.type == Token.LBRACKET) {
+    		if(currentType == Token.LBRACKET) {
     			acceptIt();
     			accept(Token.RBRACKET);
-    			finish(typepos);
-    			return new ArrayType(
-    					new BaseType(TypeKind.INT, currentToken.position), typepos);
+    			BaseType elt = baseType(TypeKind.INT, currentPosition());
+    			return adopt(new ArrayType(elt, span(typemark)), elt);
     		} else {
-    			finish(typepos);
-    			return new BaseType(TypeKind.INT, typepos);
+    			return baseType(TypeKind.INT, span(typemark));
     		}
     	default:
     		syntacticError("Type Declarator expected here\n\t"
-    			+ "instead of ", currentToken.spelling);
-    		finish(typepos);
-    		return new BaseType(TypeKind.ERROR, typepos);
+    			+ "instead of ", currentSpelling());
+    		return baseType(TypeKind.ERROR, span(typemark));
     	}
     }
     
@@ -286,54 +896,53 @@ public class Parser {
      * 		Type id ParameterListTail*
      */
     private ParameterDeclList parseParameterList() {
-    	ParameterDeclList pdl = new ParameterDeclList();
-    	SourcePosition pdpos = new SourcePosition();
+    	int base = scratchTop;
     	String declName;
-    	start(pdpos);
+    	long pdmark = startMark();
     	Type t = parseType();
-    	declName = currentToken.spelling;
-    	if(verbose) System.out.println("parseParameterList()");
+    	declName = currentSpelling();
+    	trace.enter("parseParameterList()");
     	accept(Token.ID);
-    	finish(pdpos);
-    	pdl.add(new ParameterDecl(t, declName, pdpos));
+    	keep(adopt(new ParameterDecl(t, declName, span(pdmark)), t));
     	/*
     	 * ParameterListTail ->
     	 * 		, Type id
     	 */
-    	while(currentToken.type == Token.COMMA) {
+    	while(currentType == Token.COMMA) {
     		Type tt;
     		acceptIt();
-    		start(pdpos);
+    		pdmark = startMark();
     		tt = parseType();
-    		declName = currentToken.spelling;
+    		declName = currentSpelling();
     		accept(Token.ID);
-    		finish(pdpos);
-    		pdl.add(new ParameterDecl(tt, declName, pdpos));
+    		keep(adopt(new ParameterDecl(tt, declName, span(pdmark)), tt));
     	}
-    	return pdl;
+    	return new ParameterDeclList(freeze(base, ParameterDecl[].class));
     }
     
     /* ArgumentList ->
      * 		Expression ArgumentListTail*
      */
     private ExprList parseArgumentList() {
-    	ExprList el = new ExprList();
+    	if(iterative)
+    		return (ExprList) run(ARGUMENT_LIST, null);
+    	int base = scratchTop;
     	Expression e;
     	
-    	if(verbose) System.out.println("parseArgumentList()");
-    	if(inExpressionStarterSet(currentToken.type)) {
+    	trace.enter("parseArgumentList()");
+    	if(inExpressionStarterSet(currentType)) {
     		e = parseExpression();
-    		el.add(e);
-    		while(currentToken.type == Token.COMMA) {
+    		keep(e);
+    		while(currentType == Token.COMMA) {
     			acceptIt();
     			e = parseExpression();
-    			el.add(e);
+    			keep(e);
     		}
     	} else {
     		syntacticError("Expression expected here.\n\t"
     				+"argument list is malformed", null);
     	}
-    	return el;
+    	return new ExprList(freeze(base, Expression[].class));
     }
  
     /* Reference ->
@@ -341,47 +950,39 @@ public class Parser {
      */
 	private Reference parseReference() {
 		Reference r;
-		if(verbose) System.out.println("parseReference()");
+		trace.enter("parseReference()");
 		// BaseRef
 		r = parseBaseRef();
-		return (inRefTailStarterSet(currentToken.type) ? parseRefTail(r) : r);
+		return (inRefTailStarterSet(currentType) ? parseRefTail(r) : r);
 	};
 	
 	/* BaseRef ->
 	 * 		this | DotFollow
 	 */
 	private Reference parseBaseRef() {
-		SourcePosition refpos = new SourcePosition();
 		Identifier id;
-		start(refpos);
+		long refmark = startMark();
 		
-		if(verbose) System.out.println("parseBaseReference()");
-		switch(currentToken.type) {
+		trace.enter("parseBaseReference()");
+		switch(currentType) {
 		case(Token.THIS):
-			SourcePosition thispos = new SourcePosition();
-			start(thispos);
 			acceptIt();
-			finish(thispos);
-			return new ThisRef(thispos);
+			return new ThisRef(span(refmark));
 		// DotFollow
 		// id | id RefArrID
 		case (Token.ID):
-			SourcePosition idpos = new SourcePosition();
-			String name = currentToken.spelling;
-			start(idpos);
+			String name = currentSpelling();
 			acceptIt();
-			finish(idpos);
+			SourcePosition idpos = span(refmark);
 			id = new Identifier(name, idpos);
-			if(currentToken.type == Token.LBRACKET) {
-				finish(refpos);
-				return parseRefArrID(new IdRef(id, refpos));
+			if(currentType == Token.LBRACKET) {
+				return parseRefArrID(new IdRef(id, idpos));
 			} else {
-				finish(refpos);
-				return new IdRef(id, refpos);
+				return new IdRef(id, idpos);
 			}
 		default:
 			syntacticError("Malformed Reference\n\t"+
-					"expected 'this' or an 'id', instead of ", currentToken.spelling);
+					"expected 'this' or an 'id', instead of ", currentSpelling());
 			return null;
 		}
 	}
@@ -391,29 +992,28 @@ public class Parser {
      */
     //IndexedRef
     private IndexedRef parseRefArrID(Reference ref) {
-    	SourcePosition refpos = ref.posn;
     	Expression e;
-    	if(verbose) System.out.println("parseRefArrID()");
+    	trace.enter("parseRefArrID()");
 		accept(Token.LBRACKET);
 		e = parseExpression();
 		accept(Token.RBRACKET);
-		finish(refpos);
-		return new IndexedRef(ref, e, refpos);
+		return new IndexedRef(ref, e, spanFrom(ref));
 	}
     
     /* RefTail ->
      * 		. DotFollow RefTail?
      */
 	private Reference parseRefTail(Reference ref){
+		if(iterative)
+			return (Reference) run(REF_TAIL, ref);
 		Reference r;
-		if(verbose) System.out.println("parseRefTail()");
+		trace.enter("parseRefTail()");
 		accept(Token.DOT);
 		r = parseDotFollow(ref);
-		if(inRefTailStarterSet(currentToken.type)) {
+		if(inRefTailStarterSet(currentType)) {
 			return parseRefTail(r);
 		} else {
-			finish(ref.posn);
-			r.posn = ref.posn;
+			setPosition(r, spanFrom(ref));
 			return r;
 		}
 	};
@@ -423,22 +1023,52 @@ public class Parser {
 	 */
     private Reference parseDotFollow(Reference r){
     	IdRef id;
-    	SourcePosition idpos = new SourcePosition();
     	String name;
-    	if(verbose) System.out.println("parseDotFollow()");
-    	start(idpos);
-    	name = currentToken.spelling;
+    	trace.enter("parseDotFollow()");
+    	long idmark = startMark();
+    	name = currentSpelling();
     	accept(Token.ID);
-    	finish(idpos);
+    	SourcePosition idpos = span(idmark);
     	Identifier i = new Identifier(name, idpos);
-    	id = new IdRef(i, i.posn);
-    	if(inRefArrIDStarterSet(currentToken.type)) {
+    	id = new IdRef(i, idpos);
+    	if(inRefArrIDStarterSet(currentType)) {
     		return parseRefArrID(id);
     	} else {
-    		finish(r.posn);
-    		return new QualifiedRef(r, i, r.posn);
+    		return new QualifiedRef(r, i, spanFrom(r));
     	}
     };
+    /*
+     * Statement* up to the } or return that ends the list, or the next
+     * member or class if it is missing. a token that cannot start a
+     * statement is an error, skipped with the rest of its statement
+     */
+    private StatementList parseStatements() {
+    	int base = scratchTop;
+    	while(true) {
+    		if(inStatementStarterSet(currentType))
+    			addStatement(parseStatement());
+    		else if(in(STATEMENTS_END, currentType))
+    			return new StatementList(freeze(base, Statement[].class));
+    		else
+    			skipStrayStatement();
+    	}
+    }
+    
+    // null if it was too malformed to build
+    private void addStatement(Statement s) {
+    	if(s != null)
+    		keep(s);
+    	statement(s);
+    	syncStatement();
+    }
+    
+    private void skipStrayStatement() {
+    	syntacticError("Malformed Statement.\n\t"
+    			+ "Error with the token ", currentSpelling());
+    	skipStatement();
+    	recovering = false;
+    }
+    
     /*
      * Statement ->
      * 		BlockStmt
@@ -449,124 +1079,118 @@ public class Parser {
      * 	|	WhileStmt
      */
     private Statement parseStatement() {
-		SourcePosition idpos = new SourcePosition();
-		start(idpos);
-    	if(verbose) System.out.println("parseStatement()");
-    	switch(currentToken.type) {
+    	if(iterative)
+    		return (Statement) run(STATEMENT, null);
+		long mark = startMark();
+    	trace.enter("parseStatement()");
+    	switch(currentType) {
     	case(Token.LCURLY):
-    		StatementList bsl = new StatementList();
-    		SourcePosition bspos = new SourcePosition();
-    		start(bspos);
+    		StatementList bsl;
     		acceptIt();
-    		while(inStatementStarterSet(currentToken.type))
-    			bsl.add(parseStatement());
+    		bsl = parseStatements();
     		accept(Token.RCURLY);
-    		finish(bspos);
-    		return new BlockStmt(bsl, bspos);
+    		return new BlockStmt(bsl, span(mark));
+    	/*
+    	 * IfStmt
+    	 * if ( Expression ) Statement (else Statement)?
+    	 */
+    	case(Token.IF):
+    		Expression ie;
+    		Statement is;
+    		acceptIt();
+    		accept(Token.LPAREN);
+    		ie = parseExpression();
+    		accept(Token.RPAREN);
+    		is = statement(parseStatement());
+    		if(currentType == Token.ELSE){
+    			Statement s;
+    			acceptIt();
+    			s = statement(parseStatement());
+    			return new IfStmt(ie, is, s, span(mark));
+    		} else {
+    			return new IfStmt(ie, is, span(mark));
+    		}
+    	// while ( Expression ) Statement
+    	case(Token.WHILE):
+    		Expression we;
+    		Statement ws;
+    		acceptIt();
+    		accept(Token.LPAREN);
+    		we = parseExpression();
+    		accept(Token.RPAREN);
+    		ws = statement(parseStatement());
+    		return new WhileStmt(we, ws, span(mark));
+    	default:
+    		return parseSimpleStatement(mark);
+    	}
+    }
+    
+    /*
+     * the statements that have no statement inside them. nodes made
+     * at the same point share their position
+     */
+    private Statement parseSimpleStatement(long mark) {
+    	SourcePosition pos;
+    	switch(currentType) {
     	case(Token.ID):
-    		Identifier id, cid;
-    		IdRef ir;
+    		Identifier id;
+    		Reference r;
     		Expression e;
     		VarDecl vd;
-    		String name = currentToken.spelling;
-    		SourcePosition declpos = new SourcePosition();
-    		start(declpos);
+    		String name = currentSpelling();
+    		/*
+    		 * the two tokens after the id tell a declaration from a
+    		 * reference, so only the nodes of the one it is get made
+    		 */
+    		boolean arrayDecl = tokens.peek(1) == Token.LBRACKET
+    				&& tokens.peek(2) == Token.RBRACKET;
     		acceptIt();
-    		
-    		finish(idpos);
-    		cid = new Identifier(name, idpos);
-    		if(currentToken.type == Token.LBRACKET) {
+    		pos = span(mark);
+    		// VarDecl
+    		// id[] id = Expression ;
+    		if(arrayDecl) {
     			acceptIt();
-    			// VarDecl
-    			// Type id = Expression ;
-    			// id[] id = Expression ;
-    			if(currentToken.type == Token.RBRACKET) {
-    				acceptIt();
-    				finish(idpos);
-    				ArrayType cat = new ArrayType(new ClassType(cid, cid.posn), idpos);
-    				name = currentToken.spelling;
-    				accept(Token.ID);
-    				accept(Token.ASSIGN);
-    				e = parseExpression();
-    				finish(idpos);
-    				accept(Token.SEMICOLON);
-    				vd = new VarDecl(cat, name, idpos);
-    				finish(idpos);
-    				return new VarDeclStmt(vd, e, idpos);
-    			// Reference SmtRefTail
-    			// id RefArrId RefTail? SmtRefTail
-    			} else {
-    				//Indexed Ref
-    				IndexedRef inr;
-    				e = parseExpression();
-    				accept(Token.RBRACKET);
-    				finish(idpos);
-    				id = new Identifier(name, idpos);
-    				ir = new IdRef(id, idpos);
-    				inr = new IndexedRef(ir, e, idpos);
-    				
-    				//Qualified Ref
-    				if(inRefTailStarterSet(currentToken.type)) {
-    					Reference qrr = parseRefTail(inr);
-    					return parseSmtRefTail(qrr);
-    				} else {
-    					return parseSmtRefTail(inr);
-    				}
-    			}
-    		// Reference SmtRefTail
-    		// id RefTail SmtRefTail
-    		} else if(inRefTailStarterSet(currentToken.type)) {
-    			QualifiedRef qr = null;
-    			Reference r = null;
-    			finish(idpos);
-    			id = new Identifier(name, idpos);
-    			ir = new IdRef(id, id.posn);
-    			r = parseRefTail(ir);
-    			finish(idpos);
-    			qr = new QualifiedRef(r, id, idpos);
-    			return parseSmtRefTail(qr);
-    		// Type id = Expression ;
-    		// id id = Expression ;
-    		} else if(currentToken.type == Token.ID) {
-    			ClassType ct = null;
-    			String varname = currentToken.spelling;
     			acceptIt();
-    			finish(idpos);
-    			id = new Identifier(name, idpos);
-    			ct = new ClassType(id, idpos);
+    			ArrayType cat = new ArrayType(new ClassType(new Identifier(name, pos), pos),
+    					span(mark));
+    			name = currentSpelling();
+    			accept(Token.ID);
     			accept(Token.ASSIGN);
     			e = parseExpression();
+    			pos = span(mark);
     			accept(Token.SEMICOLON);
-    			finish(idpos);
-    			vd = new VarDecl(ct, varname, idpos);
-    			return new VarDeclStmt(vd, e, idpos);
-    		// Assign Statement
-    		// Reference StmRefTail
-    		// id = Expression;
-    		} else if(currentToken.type == Token.ASSIGN){
-    			finish(idpos);
-    			id = new Identifier(name, idpos);
-    			ir = new IdRef(id, idpos);
+    			vd = new VarDecl(cat, name, pos);
+    			return new VarDeclStmt(vd, e, span(mark));
+    		// id id = Expression ;
+    		} else if(currentType == Token.ID) {
+    			String varname = currentSpelling();
     			acceptIt();
+    			pos = span(mark);
+    			ClassType ct = new ClassType(new Identifier(name, pos), pos);
+    			accept(Token.ASSIGN);
     			e = parseExpression();
     			accept(Token.SEMICOLON);
-    			finish(idpos);
-    			return new AssignStmt(ir, e, idpos);
+    			pos = span(mark);
+    			vd = new VarDecl(ct, varname, pos);
+    			return new VarDeclStmt(vd, e, pos);
+    		}
     		// Reference SmtRefTail
-    		// id ( ArgumentList? ) ;
-    		} else if(currentToken.type == Token.LPAREN) {
-    			ExprList el = new ExprList();
-    			finish(idpos);
-    			id = new Identifier(name, idpos);
-    			ir = new IdRef(id, idpos);
+    		// id ([ Expression ])? RefTail? SmtRefTail
+    		if(currentType == Token.LBRACKET) {
     			acceptIt();
-    			if(inArgumentListStarterSet(currentToken.type))
-    				el = parseArgumentList();
-    			accept(Token.RPAREN);
-    			accept(Token.SEMICOLON);
-    			finish(idpos);
-    			return new CallStmt(ir, el, idpos);
+    			e = parseExpression();
+    			accept(Token.RBRACKET);
+    			pos = span(mark);
+    			r = new IndexedRef(new IdRef(new Identifier(name, pos), pos), e, pos);
+    			if(inRefTailStarterSet(currentType))
+    				r = parseRefTail(r);
+    		} else {
+    			id = new Identifier(name, pos);
+    			r = new IdRef(id, pos);
+    			if(inRefTailStarterSet(currentType))
+    				r = new QualifiedRef(parseRefTail(r), id, span(mark));
     		}
+    		return parseSmtRefTail(r);
     	/*
     	 * VarDecl
     	 * Type id SmtRefTail
@@ -580,24 +1204,23 @@ public class Parser {
     		BaseType bt = null;
     		VarDecl vd1 = null;
     		acceptIt();
-    		if(currentToken.type == Token.LBRACKET){
+    		if(currentType == Token.LBRACKET){
     			acceptIt();
     			accept(Token.RBRACKET);
-    			finish(idpos);
-    			bt = new BaseType(TypeKind.INT, idpos);
-    			i = new ArrayType(bt, idpos);
+    			pos = span(mark);
+    			bt = baseType(TypeKind.INT, pos);
+    			i = adopt(new ArrayType(bt, pos), bt);
     		} else {
-    			finish(idpos);
-    			i = new BaseType(TypeKind.INT, idpos);
+    			i = baseType(TypeKind.INT, span(mark));
     		}
-    		iname = currentToken.spelling;
+    		iname = currentSpelling();
     		accept(Token.ID);
     		accept(Token.ASSIGN);
     		e1 = parseExpression();
     		accept(Token.SEMICOLON);
-    		finish(idpos);
-    		vd1 = new VarDecl(i, iname, idpos);
-    		return new VarDeclStmt(vd1, e1, idpos);
+    		pos = span(mark);
+    		vd1 = adopt(new VarDecl(i, iname, pos), i);
+    		return new VarDeclStmt(vd1, e1, pos);
     	/*
     	 * Boolean id = Expression;
     	 * void id = Expression;
@@ -608,23 +1231,21 @@ public class Parser {
     		BaseType bv;
     		Expression e2;
     		VarDecl vd2;
-    		if(currentToken.type == Token.BOOLEAN) {
+    		if(currentType == Token.BOOLEAN) {
     			acceptIt();
-    			finish(idpos);
-    			bv = new BaseType(TypeKind.BOOLEAN, idpos);
+    			bv = baseType(TypeKind.BOOLEAN, span(mark));
     		} else {
     			acceptIt();
-    			finish(idpos);
-    			bv = new BaseType(TypeKind.VOID, idpos);
+    			bv = baseType(TypeKind.VOID, span(mark));
     		}
-    		bvname = currentToken.spelling;
+    		bvname = currentSpelling();
     		accept(Token.ID);
     		accept(Token.ASSIGN);
     		e2 = parseExpression();
     		accept(Token.SEMICOLON);
-    		finish(idpos);
-    		vd2 = new VarDecl(bv, bvname, idpos);
-    		return new VarDeclStmt(vd2, e2, idpos);
+    		pos = span(mark);
+    		vd2 = adopt(new VarDecl(bv, bvname, pos), bv);
+    		return new VarDeclStmt(vd2, e2, pos);
     	/*
     	 * Reference SmtRefTail
     	 * this RefTail? SmtRefTail
@@ -633,50 +1254,16 @@ public class Parser {
     		Reference r1;
     		ThisRef tr;
     		acceptIt();
-    		finish(idpos);
-    		tr = new ThisRef(idpos);
-    		if(inRefTailStarterSet(currentToken.type)) {
+    		tr = new ThisRef(span(mark));
+    		if(inRefTailStarterSet(currentType)) {
     			r1 = parseRefTail(tr);
     			return parseSmtRefTail(r1);
     		} else {
     			return parseSmtRefTail(tr);
     		}
-    	/*
-    	 * IfStmt
-    	 * if ( Expression ) Statement (else Statement)?
-    	 */
-    	case(Token.IF):
-    		Expression ie;
-    		Statement is;
-    		acceptIt();
-    		accept(Token.LPAREN);
-    		ie = parseExpression();
-    		accept(Token.RPAREN);
-    		is = parseStatement();
-    		if(currentToken.type == Token.ELSE){
-    			Statement s;
-    			acceptIt();
-    			s = parseStatement();
-    			finish(idpos);
-    			return new IfStmt(ie, is, s, idpos);
-    		} else {
-    			finish(idpos);
-    			return new IfStmt(ie, is, idpos);
-    		}
-    	// while ( Expression ) Statement
-    	case(Token.WHILE):
-    		Expression we;
-    		Statement ws;
-    		acceptIt();
-    		accept(Token.LPAREN);
-    		we = parseExpression();
-    		accept(Token.RPAREN);
-    		ws = parseStatement();
-    		finish(idpos);
-    		return new WhileStmt(we, ws, idpos);
     	default:
     		syntacticError("Malformed Statement.\n\t"
-    				+ "Error with the token ", currentToken.spelling);
+    				+ "Error with the token ", currentSpelling());
     		return null;
     	}
     }
@@ -687,155 +1274,87 @@ public class Parser {
      */
     private Statement parseSmtRefTail(Reference r) {
     	Expression re;
-    	ExprList args = new ExprList();
-    	SourcePosition spos = r.posn;
-    	if(verbose) System.out.println("parseSmtRefTail()");
-    	switch(currentToken.type) {
+    	ExprList args;
+    	trace.enter("parseSmtRefTail()");
+    	reference(r);
+    	switch(currentType) {
     	// = Expression ;
     	case(Token.ASSIGN):
     		acceptIt();
     		re = parseExpression();
     		accept(Token.SEMICOLON);
-    		finish(spos);
-    		return new AssignStmt(r, re, spos);
+    		return new AssignStmt(r, re, spanFrom(r));
     	// ( ArgumentList? ) ;
     	case(Token.LPAREN):
     		acceptIt();
-    		if(inArgumentListStarterSet(currentToken.type)) {
+    		if(inArgumentListStarterSet(currentType)) {
     			args = parseArgumentList();
+    		} else {
+    			args = new ExprList();
     		}
     		accept(Token.RPAREN);
     		accept(Token.SEMICOLON);
-    		finish(spos);
-    		return new CallStmt(r, args, spos);
+    		return new CallStmt(r, args, spanFrom(r));
     	default:
     		syntacticError("Malformed SmtRefTail\n\t"
-    				+ "expected '=' or '(', instead of ", currentToken.spelling);
+    				+ "expected '=' or '(', instead of ", currentSpelling());
     		return null;
     	}
 	}
     /*
      * Expression ->
-     * 		A (|| Expression)*
+     * 		F (binop F)*
+     * 
+     * by precedence climbing over the operator table below, lowest
+     * first:
+     * 		||
+     * 		&&
+     * 		== !=
+     * 		<= < > >=
+     * 		+ -
+     * 		* /
+     * all left associative. parseBinary(p) parses a run of operators
+     * of precedence p or higher, so it only recurses for an operator
+     * that binds tighter than the one before it
      */
     private Expression parseExpression() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseExpression()");
-    	l = parseA();
-    	while(currentToken.type == Token.OR) {
-    		//becomes left operator
-    		o = new Operator(currentToken, currentToken.position);
-    		accept(Token.OR);
-    		tmp = parseExpression();
-    		finish(epos);
-    		l = new BinaryExpr(o, l, tmp, epos);
-    	}
-    	return l;
+    	if(iterative)
+    		return (Expression) run(EXPRESSION, null);
+    	trace.enter("parseExpression()");
+    	return parseBinary(1);
     }
-
-	/*
-     * A -> B (&& A)*
-     */
-    private Expression parseA() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseA()");
-    	l = parseB();
-    	while(currentToken.type == Token.AND) {
-    		o = new Operator(currentToken, currentToken.position);
-    		accept(Token.AND);
-    		tmp = parseA();
-    		l = new BinaryExpr(o, l, tmp, epos);
-    	}
-    	return l;
-    }
-    /* 
-     * B -> C (( == | != ) B)*
-     */
-    private Expression parseB() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseB()");
-    	l = parseC();
-    	while(currentToken.type == Token.EQUAL ||
-    			currentToken.type == Token.NOTEQUAL) {
-    		o = new Operator(currentToken, currentToken.position);
-    		acceptIt();
-    		tmp = parseB();
-    		finish(epos);
-    		l = new BinaryExpr(o, l, tmp, epos);
-    	}
-    	return l;
-    }
-    /*
-     * C -> D ((<= | < | > | >=) C)*
-     */
-    private Expression parseC() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseC()");
-    	l = parseD();
-    	while(currentToken.type == Token.LTEQUAL ||
-    			currentToken.type == Token.LESS ||
-    			currentToken.type == Token.GREATER ||
-    			currentToken.type == Token.GTEQUAL) {
-    		o = new Operator(currentToken, currentToken.position);
-    		acceptIt();
-    		tmp = parseC();
-    		finish(epos);
-    		l = new BinaryExpr(o, l, tmp, epos);
-    	}
-    	return l;
-    }
-    /*
-     * D -> E ((+ | -) D)*
-     */
-    private Expression parseD() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseD()");
-    	l = parseE();
-    	while(currentToken.type == Token.PLUS ||
-    			currentToken.type == Token.MINUS) {
-    		o = new Operator(currentToken, currentToken.position);
-    		acceptIt();
-    		tmp = parseD();
-    		finish(epos);
-    		l = new BinaryExpr(o, l, tmp, epos);
-    	}
-    	return l;
+    
+    private static final int[] precedence = new int[Token.ERROR + 1];
+    
+    static {
+    	precedence[Token.OR] = 1;
+    	precedence[Token.AND] = 2;
+    	precedence[Token.EQUAL] = 3;
+    	precedence[Token.NOTEQUAL] = 3;
+    	precedence[Token.LTEQUAL] = 4;
+    	precedence[Token.LESS] = 4;
+    	precedence[Token.GREATER] = 4;
+    	precedence[Token.GTEQUAL] = 4;
+    	precedence[Token.PLUS] = 5;
+    	precedence[Token.MINUS] = 5;
+    	precedence[Token.TIMES] = 6;
+    	precedence[Token.DIV] = 6;
     }
-    /*
-     * E -> F ((* | /) E)*
-     */
-    private Expression parseE() {
-    	Expression l, tmp;
-    	Operator o;
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
-    	if(verbose) System.out.println("parseE()");
-    	l = parseF();
-    	while(currentToken.type == Token.TIMES ||
-    			currentToken.type == Token.DIV) {
-    		o = new Operator(currentToken, currentToken.position);
+    
+    private Expression parseBinary(int minPrecedence) {
+    	long first = startMark();
+    	Expression l = parseF();
+    	int p;
+    	while((p = precedence[currentType]) >= minPrecedence) {
+    		Operator o = operator();
     		acceptIt();
-    		tmp = parseE();
-    		finish(epos);
-    		l = new BinaryExpr(o, l, tmp, epos);
+    		Expression r = parseBinary(p + 1);
+    		// spans from the first token of the leftmost operand
+    		l = adopt(new BinaryExpr(o, l, r, span(first)), o);
     	}
     	return l;
     }
+
     /*
      * F ->
      * 		Reference RefExp?
@@ -845,61 +1364,53 @@ public class Parser {
      * 	|	new ExpDecl
      */
     private Expression parseF() {
-    	if(verbose) System.out.println("parseF()");
-    	SourcePosition epos = new SourcePosition();
-    	start(epos);
+    	trace.enter("parseF()");
+    	long emark = startMark();
     	// Reference RefExp?
-    	if(inReferenceStarterSet(currentToken.type)) {
-    		Reference r1 = parseReference();
-    		finish(epos);
-    		if(inRefExpStarterSet(currentToken.type)) {
+    	if(inReferenceStarterSet(currentType)) {
+    		Reference r1 = reference(parseReference());
+    		if(inRefExpStarterSet(currentType)) {
     			return parseRefExp(r1);
     		} else {
-    			return new RefExpr(r1, epos);
+    			return new RefExpr(r1, span(emark));
     		}
     	// unop Expression
-    	} else if(currentToken.type == Token.MINUS || 
-    			currentToken.type == Token.NOT) {
+    	} else if(currentType == Token.MINUS || 
+    			currentType == Token.NOT) {
     		Expression e1;
-    		Token op = currentToken;
-    		Operator o = new Operator(op, op.position);
+    		Operator o = operator();
     		acceptIt();
     		e1 = parseExpression();
-    		finish(epos);
-    		return new UnaryExpr(o, e1, epos);
+    		return adopt(new UnaryExpr(o, e1, span(emark)), o);
     	// ( Expression )
-    	} else if(currentToken.type == Token.LPAREN) {
+    	} else if(currentType == Token.LPAREN) {
     		Expression e;
     		acceptIt();
     		e = parseExpression();
     		accept(Token.RPAREN);
     		return e;
     	// num
-    	} else if(currentToken.type == Token.INTLITERAL){
+    	} else if(currentType == Token.INTLITERAL){
     		IntLiteral numlit;
-    		String name = currentToken.spelling;
-    		numlit = new IntLiteral(name, currentToken.position);
+    		numlit = intLiteral();
     		acceptIt();
-    		finish(epos);
-    		return new LiteralExpr(numlit, epos);
+    		return adopt(new LiteralExpr(numlit, span(emark)), numlit);
     	// true | false
-    	} else if(currentToken.type == Token.TRUE ||
-    			currentToken.type == Token.FALSE) {
+    	} else if(currentType == Token.TRUE ||
+    			currentType == Token.FALSE) {
     		BooleanLiteral bl;
-    		String name = currentToken.spelling;
-    		bl = new BooleanLiteral(name, currentToken.position);
+    		bl = booleanLiteral();
     		acceptIt();
-    		finish(epos);
-    		return new LiteralExpr(bl, epos);
+    		return adopt(new LiteralExpr(bl, span(emark)), bl);
     	// new ExpDecl
-    	} else if(currentToken.type == Token.NEW) {
+    	} else if(currentType == Token.NEW) {
     		Expression e;
     		acceptIt();
     		e = parseExpDecl();
     		return e;
     	} else {
     		syntacticError("Malformed Expression\n"
-    				+ "\t epxression cannot begin with ", currentToken.spelling);
+    				+ "\t epxression cannot begin with ", currentSpelling());
     		return null;
     	}	
     }
@@ -909,54 +1420,49 @@ public class Parser {
      * 	  | id (() | [ Expression ])
      */
     private NewExpr parseExpDecl() {
-    	SourcePosition newpos = new SourcePosition();
-    	if(verbose) System.out.println("oldparseExpDecl");
-    	start(newpos);
+    	trace.enter("oldparseExpDecl");
+    	long newmark = startMark();
     	// NewArrayExpr
     	// int [ Expression ]
-    	switch(currentToken.type) {
+    	switch(currentType) {
     	case(Token.INT):
     		BaseType it;
     		Expression ie;
-    		it = new BaseType(TypeKind.INT, currentToken.position);
+    		it = baseType(TypeKind.INT, currentPosition());
     		acceptIt();
     		accept(Token.LBRACKET);
     		ie = parseExpression();
     		accept(Token.RBRACKET);
-    		finish(newpos);
-    		return new NewArrayExpr(it, ie, newpos);
+    		return adopt(new NewArrayExpr(it, ie, span(newmark)), it);
     	// NewObjectExpr
     	// id ( () | [ Expression ] )
     	case(Token.ID):
     		ClassType ct;
     		Identifier ci;
-    		String cname = currentToken.spelling;
-    		ci = new Identifier(cname, currentToken.position);
+    		String cname = currentSpelling();
+    		ci = new Identifier(cname, currentPosition());
     		acceptIt();
-    		finish(newpos);
-    		ct = new ClassType(ci, newpos);
+    		ct = new ClassType(ci, span(newmark));
     		// NewObjectExpr
-    		if(currentToken.type == Token.LPAREN) {
+    		if(currentType == Token.LPAREN) {
     			acceptIt();
     			accept(Token.RPAREN);
-    			finish(newpos);
-    			return new NewObjectExpr(ct, newpos);
+    			return new NewObjectExpr(ct, span(newmark));
     		// NewArrayExpr
-    		} else if(currentToken.type == Token.LBRACKET){
+    		} else if(currentType == Token.LBRACKET){
     			Expression e;
     			acceptIt();
     			e = parseExpression();
     			accept(Token.RBRACKET);
-    			finish(newpos);
-    			return new NewArrayExpr(ct, e, newpos);
+    			return new NewArrayExpr(ct, e, span(newmark));
     		} else {
     			syntacticError("Malformed id\n"
-    				+ "\tid cannot be followed by ", currentToken.spelling);
+    				+ "\tid cannot be followed by ", currentSpelling());
     			return null;
     		}
     	default:
     		syntacticError("Malformed id\n"
-    				+ "\tid cannot be followed by ", currentToken.spelling);
+    				+ "\tid cannot be followed by ", currentSpelling());
     		return null;
     	}	
 	}
@@ -965,66 +1471,736 @@ public class Parser {
      * 		( ArgumentList? )
      */
 	private CallExpr parseRefExp(Reference r) {
-		ExprList el = new ExprList();
-		SourcePosition cexpr = r.posn;
-		if(verbose) System.out.println("oldparseExoldparseRefTail");
+		ExprList el;
+		trace.enter("oldparseExoldparseRefTail");
 		accept(Token.LPAREN);
-		if(inArgumentListStarterSet(currentToken.type)) {
+		if(inArgumentListStarterSet(currentType)) {
 			el = parseArgumentList();
+		} else {
+			el = new ExprList();
 		}
 		accept(Token.RPAREN);
-		finish(cexpr);
-		return new CallExpr(r, el, cexpr);
+		return new CallExpr(r, el, spanFrom(r));
 	}
 
+	/*
+	 * the iterative mode
+	 * 
+	 * run() is the recursive descent parser for statements and
+	 * expressions turned inside out: each parseX() method that can
+	 * nest is a procedure whose calls to other such procedures are
+	 * split into states, and its locals are kept in a Frame on a
+	 * stack of frames instead of on the thread's stack. a call pushes
+	 * the callee's frame after saving where to carry on, a return
+	 * pops it and leaves the value in result for the caller. every
+	 * state does what the same stretch of the recursive method does,
+	 * in the same order, so the tokens accepted, positions, errors
+	 * and trace events all come out the same.
+	 * 
+	 * statements that cannot hold a statement are still parsed by
+	 * parseSimpleStatement(), whose expressions start another run()
+	 * on the same stack, so the Java stack never gets more than a few
+	 * calls deep
+	 */
+	
+	// procedures
+	private static final int STATEMENT = 0;
+	private static final int EXPRESSION = 1;
+	private static final int BINARY = 2;
+	private static final int F = 3;
+	private static final int EXP_DECL = 4;
+	private static final int REF_EXP = 5;
+	private static final int ARGUMENT_LIST = 6;
+	private static final int REFERENCE = 7;
+	private static final int BASE_REF = 8;
+	private static final int REF_ARR_ID = 9;
+	private static final int REF_TAIL = 10;
+	private static final int DOT_FOLLOW = 11;
+	// and the states they return to
+	private static final int BLOCK_NEXT = 12;
+	private static final int BLOCK_ADD = 13;
+	private static final int IF_THEN = 14;
+	private static final int IF_ELSE = 15;
+	private static final int WHILE_BODY = 16;
+	private static final int BINARY_LEFT = 17;
+	private static final int BINARY_NEXT = 18;
+	private static final int BINARY_RIGHT = 19;
+	private static final int F_REFERENCE = 20;
+	private static final int F_UNARY = 21;
+	private static final int F_PAREN = 22;
+	private static final int EXP_DECL_END = 23;
+	private static final int REF_EXP_ARGUMENTS = 24;
+	private static final int REF_EXP_END = 25;
+	private static final int ARGUMENT_NEXT = 26;
+	private static final int REFERENCE_END = 27;
+	private static final int REF_ARR_ID_END = 28;
+	private static final int REF_TAIL_END = 29;
+	
+	// a procedure's locals, named for what most of them keep there
+	private static final class Frame {
+		int state;
+		long mark;
+		Object node;
+		Object other;
+		int minPrecedence;
+		// where the list being built starts on the scratch stack
+		int base;
+	}
+	
+	private Frame[] frames = new Frame[0];
+	private int depth = 0;
+	private Object result;
+	
+	private Frame push(int procedure, Object node) {
+		if(depth == frames.length) {
+			frames = java.util.Arrays.copyOf(frames, Math.max(64, depth * 2));
+			for(int i = depth; i < frames.length; i++)
+				frames[i] = new Frame();
+		}
+		Frame f = frames[depth++];
+		f.state = procedure;
+		f.node = node;
+		return f;
+	}
+	
+	private void ret(Object value) {
+		Frame f = frames[--depth];
+		f.node = null;
+		f.other = null;
+		result = value;
+	}
+	
+	// the caller's frame is done with, the callee returns for it
+	private Frame tail(int procedure, Object node) {
+		ret(null);
+		return push(procedure, node);
+	}
+	
+	// call() saves where f carries on
+	private Frame call(Frame f, int state, int procedure, Object node) {
+		f.state = state;
+		return push(procedure, node);
+	}
+	
+	private Object run(int procedure, Object argument) {
+		int base = depth;
+		push(procedure, argument);
+		while(depth > base) {
+			Frame f = frames[depth - 1];
+			switch(f.state) {
+			
+			// parseStatement()
+			case STATEMENT:
+				f.mark = startMark();
+				trace.enter("parseStatement()");
+				switch(currentType) {
+				case(Token.LCURLY):
+					acceptIt();
+					f.base = scratchTop;
+					f.state = BLOCK_NEXT;
+					break;
+				case(Token.IF):
+					acceptIt();
+					accept(Token.LPAREN);
+					f.node = parseExpression();
+					accept(Token.RPAREN);
+					call(f, IF_THEN, STATEMENT, null);
+					break;
+				case(Token.WHILE):
+					acceptIt();
+					accept(Token.LPAREN);
+					f.node = parseExpression();
+					accept(Token.RPAREN);
+					call(f, WHILE_BODY, STATEMENT, null);
+					break;
+				default:
+					ret(parseSimpleStatement(f.mark));
+				}
+				break;
+			case BLOCK_NEXT:
+				if(inStatementStarterSet(currentType)) {
+					call(f, BLOCK_ADD, STATEMENT, null);
+				} else if(!in(STATEMENTS_END, currentType)) {
+					skipStrayStatement();
+				} else {
+					StatementList sl = new StatementList(freeze(f.base, Statement[].class));
+					accept(Token.RCURLY);
+					ret(new BlockStmt(sl, span(f.mark)));
+				}
+				break;
+			case BLOCK_ADD:
+				addStatement((Statement) result);
+				f.state = BLOCK_NEXT;
+				break;
+			case IF_THEN:
+				statement((Statement) result);
+				if(currentType == Token.ELSE) {
+					f.other = result;
+					acceptIt();
+					call(f, IF_ELSE, STATEMENT, null);
+				} else {
+					ret(new IfStmt((Expression) f.node, (Statement) result, span(f.mark)));
+				}
+				break;
+			case IF_ELSE:
+				statement((Statement) result);
+				ret(new IfStmt((Expression) f.node, (Statement) f.other,
+						(Statement) result, span(f.mark)));
+				break;
+			case WHILE_BODY:
+				statement((Statement) result);
+				ret(new WhileStmt((Expression) f.node, (Statement) result, span(f.mark)));
+				break;
+			
+			// parseExpression() and parseBinary()
+			case EXPRESSION:
+				trace.enter("parseExpression()");
+				tail(BINARY, null).minPrecedence = 1;
+				break;
+			case BINARY:
+				f.mark = startMark();
+				call(f, BINARY_LEFT, F, null);
+				break;
+			case BINARY_LEFT:
+				f.node = result;
+				f.state = BINARY_NEXT;
+				break;
+			case BINARY_NEXT: {
+				int p = precedence[currentType];
+				if(p >= f.minPrecedence) {
+					f.other = operator();
+					acceptIt();
+					call(f, BINARY_RIGHT, BINARY, null).minPrecedence = p + 1;
+				} else {
+					ret(f.node);
+				}
+				break;
+			}
+			case BINARY_RIGHT:
+				f.node = adopt(new BinaryExpr((Operator) f.other, (Expression) f.node,
+						(Expression) result, span(f.mark)), (Operator) f.other);
+				f.state = BINARY_NEXT;
+				break;
+			
+			// parseF()
+			case F:
+				trace.enter("parseF()");
+				f.mark = startMark();
+				if(inReferenceStarterSet(currentType)) {
+					call(f, F_REFERENCE, REFERENCE, null);
+				} else if(currentType == Token.MINUS ||
+						currentType == Token.NOT) {
+					f.other = operator();
+					acceptIt();
+					call(f, F_UNARY, EXPRESSION, null);
+				} else if(currentType == Token.LPAREN) {
+					acceptIt();
+					call(f, F_PAREN, EXPRESSION, null);
+				} else if(currentType == Token.INTLITERAL) {
+					IntLiteral numlit = intLiteral();
+					acceptIt();
+					ret(adopt(new LiteralExpr(numlit, span(f.mark)), numlit));
+				} else if(currentType == Token.TRUE ||
+						currentType == Token.FALSE) {
+					BooleanLiteral bl = booleanLiteral();
+					acceptIt();
+					ret(adopt(new LiteralExpr(bl, span(f.mark)), bl));
+				} else if(currentType == Token.NEW) {
+					acceptIt();
+					tail(EXP_DECL, null);
+				} else {
+					syntacticError("Malformed Expression\n"
+							+ "\t epxression cannot begin with ", currentSpelling());
+					ret(null);
+				}
+				break;
+			case F_REFERENCE:
+				reference((Reference) result);
+				if(inRefExpStarterSet(currentType))
+					tail(REF_EXP, result);
+				else
+					ret(new RefExpr((Reference) result, span(f.mark)));
+				break;
+			case F_UNARY:
+				ret(adopt(new UnaryExpr((Operator) f.other, (Expression) result, span(f.mark)),
+						(Operator) f.other));
+				break;
+			case F_PAREN:
+				accept(Token.RPAREN);
+				ret(result);
+				break;
+			
+			// parseExpDecl()
+			case EXP_DECL:
+				trace.enter("oldparseExpDecl");
+				f.mark = startMark();
+				if(currentType == Token.INT) {
+					f.node = baseType(TypeKind.INT, currentPosition());
+					acceptIt();
+					accept(Token.LBRACKET);
+					call(f, EXP_DECL_END, EXPRESSION, null);
+				} else if(currentType == Token.ID) {
+					Identifier ci = new Identifier(currentSpelling(), currentPosition());
+					acceptIt();
+					ClassType ct = new ClassType(ci, span(f.mark));
+					if(currentType == Token.LPAREN) {
+						acceptIt();
+						accept(Token.RPAREN);
+						ret(new NewObjectExpr(ct, span(f.mark)));
+					} else if(currentType == Token.LBRACKET) {
+						f.node = ct;
+						acceptIt();
+						call(f, EXP_DECL_END, EXPRESSION, null);
+					} else {
+						syntacticError("Malformed id\n"
+								+ "\tid cannot be followed by ", currentSpelling());
+						ret(null);
+					}
+				} else {
+					syntacticError("Malformed id\n"
+							+ "\tid cannot be followed by ", currentSpelling());
+					ret(null);
+				}
+				break;
+			case EXP_DECL_END:
+				accept(Token.RBRACKET);
+				ret(adopt(new NewArrayExpr((Type) f.node, (Expression) result, span(f.mark)),
+						(Type) f.node));
+				break;
+			
+			// parseRefExp()
+			case REF_EXP:
+				trace.enter("oldparseExoldparseRefTail");
+				accept(Token.LPAREN);
+				if(inArgumentListStarterSet(currentType)) {
+					call(f, REF_EXP_ARGUMENTS, ARGUMENT_LIST, null);
+				} else {
+					f.other = new ExprList();
+					f.state = REF_EXP_END;
+				}
+				break;
+			case REF_EXP_ARGUMENTS:
+				f.other = result;
+				f.state = REF_EXP_END;
+				break;
+			case REF_EXP_END:
+				accept(Token.RPAREN);
+				ret(new CallExpr((Reference) f.node, (ExprList) f.other,
+						spanFrom((Reference) f.node)));
+				break;
+			
+			// parseArgumentList()
+			case ARGUMENT_LIST:
+				f.base = scratchTop;
+				trace.enter("parseArgumentList()");
+				if(inExpressionStarterSet(currentType)) {
+					call(f, ARGUMENT_NEXT, EXPRESSION, null);
+				} else {
+					syntacticError("Expression expected here.\n\t"
+							+"argument list is malformed", null);
+					ret(new ExprList());
+				}
+				break;
+			case ARGUMENT_NEXT:
+				keep((Expression) result);
+				if(currentType == Token.COMMA) {
+					acceptIt();
+					call(f, ARGUMENT_NEXT, EXPRESSION, null);
+				} else {
+					ret(new ExprList(freeze(f.base, Expression[].class)));
+				}
+				break;
+			
+			// parseReference() and parseBaseRef()
+			case REFERENCE:
+				trace.enter("parseReference()");
+				call(f, REFERENCE_END, BASE_REF, null);
+				break;
+			case REFERENCE_END:
+				if(inRefTailStarterSet(currentType))
+					tail(REF_TAIL, result);
+				else
+					ret(result);
+				break;
+			case BASE_REF: {
+				long refmark = startMark();
+				trace.enter("parseBaseReference()");
+				if(currentType == Token.THIS) {
+					acceptIt();
+					ret(new ThisRef(span(refmark)));
+				} else if(currentType == Token.ID) {
+					String name = currentSpelling();
+					acceptIt();
+					SourcePosition idpos = span(refmark);
+					Identifier id = new Identifier(name, idpos);
+					if(currentType == Token.LBRACKET)
+						tail(REF_ARR_ID, new IdRef(id, idpos));
+					else
+						ret(new IdRef(id, idpos));
+				} else {
+					syntacticError("Malformed Reference\n\t"+
+							"expected 'this' or an 'id', instead of ", currentSpelling());
+					ret(null);
+				}
+				break;
+			}
+			
+			// parseRefArrID()
+			case REF_ARR_ID:
+				trace.enter("parseRefArrID()");
+				accept(Token.LBRACKET);
+				call(f, REF_ARR_ID_END, EXPRESSION, null);
+				break;
+			case REF_ARR_ID_END:
+				accept(Token.RBRACKET);
+				ret(new IndexedRef((Reference) f.node, (Expression) result,
+						spanFrom((Reference) f.node)));
+				break;
+			
+			// parseRefTail(), whose recursion is a tail call, and parseDotFollow()
+			case REF_TAIL:
+				trace.enter("parseRefTail()");
+				accept(Token.DOT);
+				call(f, REF_TAIL_END, DOT_FOLLOW, f.node);
+				break;
+			case REF_TAIL_END:
+				if(inRefTailStarterSet(currentType)) {
+					tail(REF_TAIL, result);
+				} else {
+					Reference r = (Reference) result;
+					setPosition(r, spanFrom((Reference) f.node));
+					ret(r);
+				}
+				break;
+			case DOT_FOLLOW: {
+				trace.enter("parseDotFollow()");
+				long idmark = startMark();
+				String name = currentSpelling();
+				accept(Token.ID);
+				SourcePosition idpos = span(idmark);
+				Identifier i = new Identifier(name, idpos);
+				IdRef id = new IdRef(i, idpos);
+				if(inRefArrIDStarterSet(currentType)) {
+					tail(REF_ARR_ID, id);
+				} else {
+					ret(new QualifiedRef((Reference) f.node, i, spanFrom((Reference) f.node)));
+				}
+				break;
+			}
+			}
+		}
+		Object value = result;
+		result = null;
+		return value;
+	}
+
+	/*
+	 * the table driven mode
+	 * 
+	 * ParseTable.parse() runs the LL(1) tables and calls back here:
+	 * shift() accepts a token, pushing the terminal it is if it is
+	 * one, and reduce() runs an action of the grammar, which pops
+	 * what its phrase pushed and pushes what it builds. mark is where
+	 * the innermost named nonterminal's phrase starts, as startMark()
+	 * gave it
+	 */
+	private Object[] values = new Object[64];
+	private int top = 0;
+
+	private void push(Object value) {
+		if(top == values.length)
+			values = java.util.Arrays.copyOf(values, top * 2);
+		values[top++] = value;
+	}
+
+	private Object pop() {
+		Object value = values[--top];
+		values[top] = null;
+		return value;
+	}
+
+	private Object peek(int below) {
+		return values[top - 1 - below];
+	}
+
+	int lookahead() {
+		return currentType;
+	}
+
+	long mark() {
+		return startMark();
+	}
+
+	void shift() {
+		switch(currentType) {
+		case Token.ID:
+			push(new Identifier(currentSpelling(), currentPosition()));
+			break;
+		case Token.INTLITERAL:
+			push(intLiteral());
+			break;
+		case Token.TRUE:
+		case Token.FALSE:
+			push(booleanLiteral());
+			break;
+		default:
+			if(precedence[currentType] > 0 || currentType == Token.NOT)
+				push(operator());
+		}
+		acceptIt();
+	}
+
+	void expected(int type) {
+		accept(type);
+	}
+
+	void unexpected(String nonterminal) {
+		syntacticError("Malformed " + nonterminal + "\n\t"
+				+ "it cannot begin with", currentSpelling());
+	}
+
+	Object result() {
+		Object value = top > 0 ? pop() : null;
+		top = 0;
+		return value;
+	}
+
+	void reduce(int action, long mark) {
+		Object a, b, c;
+		switch(action) {
+		case ParseTable.CLASSES:
+			push(new ClassDeclList());
+			break;
+		case ParseTable.ADD_CLASS:
+			a = pop();
+			((ClassDeclList) peek(0)).add((ClassDecl) a);
+			break;
+		case ParseTable.PROGRAM:
+			Package p = new Package((ClassDeclList) pop(), span(mark));
+			p.lineIndex = lines;
+			p.leaves = leafPositions;
+			push(p);
+			break;
+		case ParseTable.MEMBERS:
+			push(new FieldDeclList());
+			push(new MethodDeclList());
+			break;
+		case ParseTable.CLASS_DECL:
+			a = pop();
+			b = pop();
+			push(new ClassDecl(((Identifier) pop()).spelling, (FieldDeclList) b,
+					(MethodDeclList) a, span(mark)));
+			break;
+		case ParseTable.FIELD:
+			a = pop();
+			FieldDecl field = (FieldDecl) pop();
+			field.name = ((Identifier) a).spelling;
+			((FieldDeclList) peek(1)).add(adopt(field, field.type));
+			break;
+		case ParseTable.STATEMENTS:
+			push(new StatementList());
+			break;
+		case ParseTable.ADD_STATEMENT:
+			a = pop();
+			((StatementList) peek(0)).add((Statement) a);
+			break;
+		case ParseTable.NULL:
+			push(null);
+			break;
+		case ParseTable.METHOD:
+			a = pop();
+			b = pop();
+			c = pop();
+			Identifier name = (Identifier) pop();
+			FieldDecl f = (FieldDecl) pop();
+			f.name = name.spelling;
+			((MethodDeclList) peek(0)).add(adopt(new MethodDecl(f, (ParameterDeclList) c,
+					(StatementList) b, (Expression) a, span(mark)), f.type));
+			break;
+		case ParseTable.TRUE:
+			push(Boolean.TRUE);
+			break;
+		case ParseTable.FALSE:
+			push(Boolean.FALSE);
+			break;
+		case ParseTable.DECLARATORS:
+			Type t = (Type) pop();
+			a = pop();
+			b = pop();
+			push(new FieldDecl((Boolean) b, (Boolean) a, t, t.typeKind.name(), span(mark)));
+			break;
+		case ParseTable.INT:
+			push(baseType(TypeKind.INT, span(mark)));
+			break;
+		case ParseTable.BOOLEAN:
+			push(baseType(TypeKind.BOOLEAN, span(mark)));
+			break;
+		case ParseTable.VOID:
+			push(baseType(TypeKind.VOID, span(mark)));
+			break;
+		case ParseTable.CLASS_TYPE:
+			a = pop();
+			push(new ClassType((Identifier) a, positionOf((Identifier) a)));
+			break;
+		case ParseTable.ARRAY_TYPE:
+			a = pop();
+			push(adopt(new ArrayType((Type) a, spanFrom((Type) a)), (Type) a));
+			break;
+		case ParseTable.PARAMETERS:
+			push(new ParameterDeclList());
+			break;
+		case ParseTable.PARAMETER:
+			a = pop();
+			t = (Type) pop();
+			((ParameterDeclList) peek(0)).add(
+					adopt(new ParameterDecl(t, ((Identifier) a).spelling, spanFrom(t)), t));
+			break;
+		case ParseTable.ARGUMENTS:
+			push(new ExprList());
+			break;
+		case ParseTable.ADD_ARGUMENT:
+			a = pop();
+			((ExprList) peek(0)).add((Expression) a);
+			break;
+		case ParseTable.THIS:
+			push(new ThisRef(span(mark)));
+			break;
+		case ParseTable.ID_REF:
+			a = pop();
+			push(new IdRef((Identifier) a, positionOf((Identifier) a)));
+			break;
+		// a.b[e] is b[e], see parseDotFollow()
+		case ParseTable.DROP_BASE:
+			a = pop();
+			pop();
+			push(a);
+			break;
+		case ParseTable.QUALIFIED:
+			a = pop();
+			b = pop();
+			push(new QualifiedRef((Reference) b, (Identifier) a, spanFrom((Reference) b)));
+			break;
+		case ParseTable.INDEXED:
+			a = pop();
+			b = pop();
+			push(new IndexedRef((Reference) b, (Expression) a, spanFrom((Reference) b)));
+			break;
+		case ParseTable.COPY:
+			push(peek(0));
+			break;
+		// a.b... = is the reference qualified by a, see parseSimpleStatement()
+		case ParseTable.REQUALIFY:
+			a = pop();
+			b = pop();
+			push(new QualifiedRef((Reference) a, (Identifier) b, span(mark)));
+			break;
+		case ParseTable.BLOCK:
+			push(new BlockStmt((StatementList) pop(), span(mark)));
+			break;
+		case ParseTable.IF:
+			a = pop();
+			push(new IfStmt((Expression) pop(), (Statement) a, span(mark)));
+			break;
+		case ParseTable.IF_ELSE:
+			a = pop();
+			b = pop();
+			push(new IfStmt((Expression) pop(), (Statement) b, (Statement) a, span(mark)));
+			break;
+		case ParseTable.WHILE:
+			a = pop();
+			push(new WhileStmt((Expression) pop(), (Statement) a, span(mark)));
+			break;
+		case ParseTable.VAR_DECL:
+			a = pop();
+			b = pop();
+			SourcePosition declpos = span(mark);
+			t = (Type) pop();
+			VarDecl vd = adopt(new VarDecl(t, ((Identifier) b).spelling, declpos), t);
+			push(new VarDeclStmt(vd, (Expression) a, declpos));
+			break;
+		case ParseTable.ASSIGN:
+			a = pop();
+			b = pop();
+			push(new AssignStmt((Reference) b, (Expression) a, spanFrom((Reference) b)));
+			break;
+		case ParseTable.CALL:
+			a = pop();
+			b = pop();
+			push(new CallStmt((Reference) b, (ExprList) a, spanFrom((Reference) b)));
+			break;
+		case ParseTable.BINARY:
+			a = pop();
+			b = pop();
+			push(adopt(new BinaryExpr((Operator) b, (Expression) pop(), (Expression) a, span(mark)),
+					(Operator) b));
+			break;
+		case ParseTable.REF_EXPR:
+			push(new RefExpr((Reference) pop(), span(mark)));
+			break;
+		case ParseTable.UNARY:
+			a = pop();
+			b = pop();
+			push(adopt(new UnaryExpr((Operator) b, (Expression) a, span(mark)), (Operator) b));
+			break;
+		case ParseTable.LITERAL:
+			a = pop();
+			push(adopt(new LiteralExpr((Literal) a, span(mark)), (Literal) a));
+			break;
+		case ParseTable.CALL_EXPR:
+			a = pop();
+			b = pop();
+			push(new CallExpr((Reference) b, (ExprList) a, spanFrom((Reference) b)));
+			break;
+		case ParseTable.NEW_ARRAY:
+			a = pop();
+			b = pop();
+			push(adopt(new NewArrayExpr((Type) b, (Expression) a, span(mark)), (Type) b));
+			break;
+		case ParseTable.NEW_OBJECT:
+			push(new NewObjectExpr((ClassType) pop(), span(mark)));
+			break;
+		}
+	}
+
+	/*
+	 * the starter sets are the FIRST sets generated from the grammar,
+	 * one bit per token type
+	 */
+	private static boolean in(long set, int type) {
+		return (set >>> type & 1) != 0;
+	}
 	private boolean inDeclaratorStarterSet(int type) {
-    	return (type == Token.PUBLIC ||
-    			type == Token.PRIVATE ||
-    			type == Token.STATIC ||
-    			inTypeStarterSet(type));
-    }
-    private boolean inTypeStarterSet(int type) {
-    	return (type == Token.INT ||
-    			type == Token.BOOLEAN ||
-    			type == Token.VOID ||
-    			type == Token.ID);
-    } 
-    private boolean inStatementStarterSet(int type) {
-    	return (type == Token.LCURLY ||
-    			inTypeStarterSet(type) ||
-    			inReferenceStarterSet(type) ||
-    			type == Token.IF ||
-    			type == Token.WHILE
-    			);
-    }   
-    private boolean inParameterListStarterSet(int type) {
-    	return (inTypeStarterSet(type));
-    } 
-    private boolean inExpressionStarterSet(int type) {
-		return (inReferenceStarterSet(type) ||
-				type == Token.MINUS || type == Token.NOT || //unop 
-				type == Token.LPAREN ||
-				type == Token.INTLITERAL ||
-				type == Token.NEW
-				);
-	}  
-    private boolean inRefTailStarterSet(int type) {
-		return (type == Token.DOT);
+		return in(ParseTable.FIRST_DECLARATORS, type);
+	}
+	private boolean inTypeStarterSet(int type) {
+		return in(ParseTable.FIRST_TYPE, type);
+	}
+	private boolean inStatementStarterSet(int type) {
+		return in(ParseTable.FIRST_STATEMENT, type);
+	}
+	private boolean inParameterListStarterSet(int type) {
+		return in(ParseTable.FIRST_PARAMETER_LIST, type);
+	}
+	private boolean inExpressionStarterSet(int type) {
+		return in(ParseTable.FIRST_EXPRESSION, type);
+	}
+	private boolean inRefTailStarterSet(int type) {
+		return in(ParseTable.FIRST_REF_TAIL, type);
 	}
 	private boolean inBaseRefStarterSet(int type) {
-		return (type == Token.THIS);
+		return in(ParseTable.FIRST_BASE_REF, type);
 	}
 	private boolean inRefArrIDStarterSet(int type) {
-		return (type == Token.LBRACKET);
+		return in(ParseTable.FIRST_REF_ARR_ID, type);
 	}
 	private boolean inArgumentListStarterSet(int type) {
-		return (inExpressionStarterSet(type));
+		return in(ParseTable.FIRST_ARGUMENT_LIST, type);
 	}
 	private boolean inReferenceStarterSet(int type) {
-		return (inBaseRefStarterSet(type) || type == Token.ID);
+		return in(ParseTable.FIRST_REFERENCE, type);
 	}
 	private boolean inRefExpStarterSet(int type) {
-		return (type == Token.LPAREN);
+		return in(ParseTable.FIRST_REF_EXP, type);
 	}/*
     private boolean isBinop(int type) {
 		return (type == Token.AND ||
@@ -0,0 +1,37 @@
+/*
+ * miniJava PrintTrace
+ *
+ * the parser's verbose output: every parse method entered, and for
+ * each token accepted the current token, the one expected and the
+ * token accepted, a line each, as the parser used to print them
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import java.io.PrintStream;
+
+public class PrintTrace implements ParseTrace {
+	private final PrintStream out;
+
+	public PrintTrace(PrintStream out) {
+		this.out = out;
+	}
+
+	public void enter(String rule) {
+		out.println(rule);
+	}
+
+	public void accept(TokenBuffer tokens, int i, int expected) {
+		String spelling = tokens.spelling(i);
+		out.println("CurrentToken: " + spelling);
+		if(expected < 0) {
+			out.println("AcceptIt: " + spelling);
+		} else {
+			out.println("ExpectedToken: " + Token.spell(expected));
+			out.println(tokens.type(i) == Token.EOT ? "End of Text" : "Accept: " + spelling);
+		}
+	}
+}
@@ -0,0 +1,83 @@
+/*
+ * miniJava RingTrace
+ *
+ * keeps the last events of a parse in memory, overwriting the oldest,
+ * to be looked at after the parse (or after it failed). an event is a
+ * few ints and a reference to a constant in parallel arrays, so
+ * recording one allocates nothing; it is spelled out by events().
+ * a token's spelling is kept as its id in the NameTable, which outlives
+ * a windowed TokenBuffer's tokens
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public class RingTrace implements ParseTrace {
+	private final int mask;
+	// the rule entered, or null for a token accepted
+	private final String[] rule;
+	private final int[] type;
+	private final int[] name;
+	private final int[] line;
+	private final int[] column;
+	private final int[] expected;
+	private NameTable names;
+	private long count = 0;
+
+	// keeps the last capacity events (rounded up to a power of 2)
+	public RingTrace(int capacity) {
+		int n = Integer.highestOneBit(Math.max(capacity, 2) * 2 - 1);
+		mask = n - 1;
+		rule = new String[n];
+		type = new int[n];
+		name = new int[n];
+		line = new int[n];
+		column = new int[n];
+		expected = new int[n];
+	}
+
+	public void enter(String r) {
+		rule[(int) count++ & mask] = r;
+	}
+
+	public void accept(TokenBuffer tokens, int i, int exp) {
+		int j = (int) count++ & mask;
+		rule[j] = null;
+		type[j] = tokens.type(i);
+		name[j] = tokens.nameId(i);
+		line[j] = tokens.line(i);
+		column[j] = tokens.column(i);
+		expected[j] = exp;
+		names = tokens.getNameTable();
+	}
+
+	// events recorded in all, including those overwritten
+	public long count() {
+		return count;
+	}
+
+	// the events kept, oldest first
+	public List<String> events() {
+		List<String> out = new ArrayList<String>();
+		for(long k = Math.max(0, count - mask - 1); k < count; k++) {
+			int j = (int) k & mask;
+			if(rule[j] != null) {
+				out.add(rule[j]);
+			} else {
+				String spelling = type[j] == Token.EOT ? "End of Text" : names.name(name[j]);
+				out.add((expected[j] < 0 ? "AcceptIt: " : "Accept: ") + spelling
+						+ " " + line[j] + ":" + column[j]);
+			}
+		}
+		return out;
+	}
+
+	public void clear() {
+		count = 0;
+	}
+}
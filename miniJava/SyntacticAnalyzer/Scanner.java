@@ -14,25 +14,74 @@ import miniJava.SyntacticAnalyzer.Token;
 import miniJava.ErrorReporter;
 
 public class Scanner {
-	private SourceFile sourceFile;
+	static final String AMP_ERROR = "Must have 2 ampersands.";
+	static final String BAR_ERROR = "Must have 2 | for a valid or.";
+	static final String UNTERMINATED_ERROR = "Unterminated comment.";
+	
+	private SourceText sourceFile;
 	private char currentChar;
 	private char previousChar;
-	private StringBuffer currentSpelling;
-	private boolean currentlyScanningToken;
 	
 	private int comStart;
 	private int comFinish;
+	private int comOffset;
 	int currentCharNum = 1;
 	int currentLineNum = 1;
+	// times a newline has put the column back to the line start
+	int columnResets = 0;
+	
+	/*
+	 * description of the token found by the last scanNext().
+	 * the spelling is the source range [tokenOffset, tokenOffset
+	 * + tokenLength), nothing is allocated until scan() asks
+	 */
+	int tokenType;
+	int tokenOffset;
+	int tokenLength;
+	int tokenLine;
+	int tokenColumn;
+	int tokenFinish;
 	
 	private ErrorReporter reporter;
+	private NameTable names = new NameTable();
+	private boolean tableDriven = false;
+	// null unless indexLines() was called
+	private LineIndex lines;
+	
+	/*
+	 * an unterminated comment ends the stream with EOT, reported as
+	 * a scan error. when scanning ahead of time (see ParallelScanner)
+	 * it only sets unterminated, for the error to be deferred
+	 */
+	boolean speculative = false;
+	boolean unterminated = false;
 	
-	public Scanner(SourceFile source, ErrorReporter r) {
+	public Scanner(SourceText source, ErrorReporter r) {
 		sourceFile = source;
 		reporter = r;
 		currentChar = sourceFile.getSource();
 	}
 	
+	/*
+	 * tableDriven selects the DFA in scanTable() instead of
+	 * the hand-written scanToken()/scanSeparator() switches.
+	 * both produce the same token stream
+	 */
+	public Scanner(SourceText source, ErrorReporter r, boolean tableDriven) {
+		this(source, r);
+		this.tableDriven = tableDriven;
+	}
+	
+	/*
+	 * starts at the source's current read position, with the
+	 * line and column the first char is known (or assumed) to have
+	 */
+	Scanner(SourceText source, ErrorReporter r, boolean tableDriven, int line, int column) {
+		this(source, r, tableDriven);
+		currentLineNum = line;
+		currentCharNum = column;
+	}
+	
 	private void consume() {
 		previousChar = currentChar;
 		if(currentChar == '\t')
@@ -42,10 +91,14 @@ public class Scanner {
 		
 		if(currentChar == '\n' || (previousChar == '\r' && currentChar == '\n'))
 			currentLineNum++;
-		if(currentlyScanningToken) {
-			currentSpelling.append(currentChar);
-		}
 		currentChar = sourceFile.getSource();
+		if(lines != null && (previousChar == '\n' || previousChar == '\r'))
+			lines.add(offset(), currentLineNum, currentCharNum);
+	}
+	
+	// source offset of currentChar
+	private int offset() {
+		return sourceFile.getPosition() - 1;
 	}
 	
 	private int scanToken() {
@@ -102,7 +155,7 @@ public class Scanner {
 	    case '&':
 	    	consume();
 	        if(currentChar != '&') {
-	        	scanError("Must have 2 ampersands.");
+	        	scanError(AMP_ERROR);
 	        }
 	        consume();
 	        return Token.AND;
@@ -110,7 +163,7 @@ public class Scanner {
 	    case '|':
 	    	consume();
 	        if(currentChar != '|')
-	        	scanError("Must have 2 | for a valid or.");
+	        	scanError(BAR_ERROR);
 	        consume();
 	        return Token.OR;
 	
@@ -187,6 +240,7 @@ public class Scanner {
 		switch(currentChar) {
 		case '/':
 			comStart = currentCharNum;
+			comOffset = offset();
 			consume();
 			comFinish = currentCharNum;
 			
@@ -198,7 +252,11 @@ public class Scanner {
 				return true;
 			break;
 			
-		case ' ': case '\n': case '\r': case '\t':
+		case ' ': case '\t':
+			skipBlanks();
+			break;
+			
+		case '\n': case '\r':
 			consume();
 			break;
 		}
@@ -206,61 +264,483 @@ public class Scanner {
 	}
 	
 	private void SLComment() {
-		while(currentChar != '\n'
-				&& currentChar != '\r'
-				&& currentChar != SourceFile.EOT)
-			consume();
+		skipToLineEnd();
 		consume();
 	}
 	
 	private void MLComment() {
-		currentChar = sourceFile.getSource();
-		char nextChar = sourceFile.getSource();
-		
-		while(currentChar != '*' || nextChar != '/') {
-			if(currentChar == SourceFile.EOT) {
-				System.exit(4);
-			}
-			currentChar = nextChar;
-			nextChar = sourceFile.getSource();
+		skipBlockComment();
+	}
+	
+	/*
+	 * bulk skipping, backed by the word at a time searches in
+	 * SourceFile. each leaves currentChar, the line and column
+	 * exactly where consuming one char at a time would
+	 */
+	
+	// currentChar is the '*' of "/*", stops after the closing "*/"
+	private void skipBlockComment() {
+		int end = sourceFile.blockCommentEnd(sourceFile.getPosition());
+		if(sourceFile.charAt(end) == SourceFile.EOT) {
+			if(!speculative)
+				scanError(UNTERMINATED_ERROR);
+			unterminated = true;
+			sourceFile.seek(end);
+			currentChar = sourceFile.getSource();
+		} else {
+			sourceFile.seek(end + 2);
+			currentChar = sourceFile.getSource();
 		}
+		if(lines != null)
+			lines.add(offset(), currentLineNum, currentCharNum);
+	}
+	
+	// stops on the '\n', '\r' or EOT ending the line
+	private void skipToLineEnd() {
+		advanceTo(sourceFile.lineEnd(offset()));
+	}
+	
+	// stops on the first char that is not ' ' or '\t'
+	private void skipBlanks() {
+		advanceTo(sourceFile.skipBlanks(offset()));
+	}
+	
+	// consumes everything up to offset end, which holds no newlines
+	private void advanceTo(int end) {
+		int start = offset();
+		if(end <= start)
+			return;
+		currentCharNum += (end - start) + 3 * sourceFile.countTabs(start, end);
+		previousChar = sourceFile.charAt(end - 1);
+		sourceFile.seek(end);
 		currentChar = sourceFile.getSource();
 	}
 	
 	public Token scan() {
-		Token tok;
-		SourcePosition pos;
-		int type;
+		int type = scanNext();
+		return new Token(type, tokenSpelling(), tokenPosition());
+	}
+	
+	/*
+	 * scans the next token without allocating anything, leaving
+	 * its description in the token* fields. returns its type
+	 * with reserved words already classified
+	 */
+	int scanNext() {
+		if(tableDriven)
+			scanTable();
+		else
+			scanSwitch();
+		if(tokenType == Token.ID)
+			tokenType = Token.reservedWord(sourceFile, tokenOffset, tokenLength);
+		return tokenType;
+	}
+	
+	String tokenSpelling() {
+		return names.name(names.intern(sourceFile, tokenOffset, tokenLength));
+	}
+	
+	SourcePosition tokenPosition() {
+		return position(tokenType, tokenLine, tokenColumn, tokenFinish);
+	}
+	
+	/*
+	 * a '/' found while skipping separators is positioned as
+	 * SourcePosition() would be, spanning lines (1,1) whatever
+	 * line it is really on
+	 */
+	static SourcePosition position(int type, int line, int column, int finish) {
+		if(type == Token.DIV)
+			return new SourcePosition(1, 1, column, finish);
+		return new SourcePosition(line, column, finish);
+	}
+	
+	// every '/' token comes out of the separator skipping
+	private void divToken() {
+		tokenType = Token.DIV;
+		tokenOffset = comOffset;
+		tokenLength = 1;
+		tokenLine = currentLineNum;
+		tokenColumn = comStart;
+		tokenFinish = comFinish;
+	}
+	
+	// chars before the token are not needed again, see StreamSourceFile
+	private void beginToken() {
+		tokenOffset = offset();
+		sourceFile.release(tokenOffset);
+		tokenLine = currentLineNum;
+		tokenColumn = currentCharNum;
+	}
+	
+	private void endToken(int type) {
+		tokenType = type;
+		tokenLength = offset() - tokenOffset;
+		tokenFinish = currentCharNum;
+	}
+	
+	private void scanSwitch() {
 		boolean isDiv;
 		
-		currentlyScanningToken = false;
 		while(currentChar == '/'
 				|| currentChar == ' '
 				|| currentChar == '\n'
 				|| currentChar == '\r'
 				|| currentChar == '\t') {
-			if (currentChar == '\n' || currentChar == '\r')
+			sourceFile.release(offset());
+			if (currentChar == '\n' || currentChar == '\r') {
 				currentCharNum = 0;
+				columnResets++;
+			}
 			isDiv = scanSeparator();
 			if(isDiv) {
-				pos = new SourcePosition();
-				pos.start = comStart;
-				pos.finish = comFinish;
-				tok = new Token(Token.DIV, "/", pos);
-				return tok;
+				divToken();
+				return;
 			}
 		}
 		
-		currentlyScanningToken = true;
-		currentSpelling = new StringBuffer("");
-		pos = new SourcePosition(currentLineNum, currentCharNum, 0);
-		type = scanToken();
-		pos.finish = currentCharNum;
-		tok = new Token(type, currentSpelling.toString(), pos);
-		return tok;
+		beginToken();
+		endToken(scanToken());
+	}
+	
+	/*
+	 * Table driven scanning
+	 * 
+	 * every char is mapped to a class through charClass[], and
+	 * delta[state][class] gives the next state, or NONE when the
+	 * current state ends the token. accept[state] is the token
+	 * type produced by a state that has no further transition.
+	 * separators (whitespace and comments) are states of the same
+	 * machine so there is no separate skipping loop.
+	 */
+	private static final int
+		C_OTHER = 0, C_LETTER = 1, C_XLETTER = 2, C_DIGIT = 3,
+		C_UNDERSCORE = 4, C_GT = 5, C_LT = 6, C_EQ = 7, C_BANG = 8,
+		C_AMP = 9, C_BAR = 10, C_SLASH = 11, C_STAR = 12, C_PLUS = 13,
+		C_MINUS = 14, C_DOT = 15, C_COMMA = 16, C_SEMI = 17,
+		C_LPAREN = 18, C_RPAREN = 19, C_LBRACKET = 20, C_RBRACKET = 21,
+		C_LCURLY = 22, C_RCURLY = 23, C_BLANK = 24, C_NEWLINE = 25,
+		C_EOT = 26,
+		NUM_CLASSES = 27;
+	
+	private static final int
+		NONE = -1,
+		// separators
+		S_START = 0, S_SLASH = 1, S_SLC = 2, S_MLC = 3, S_MLSTAR = 4,
+		// tokens that may continue
+		S_ID = 5, S_NUM = 6, S_GT = 7, S_LT = 8, S_EQ = 9, S_BANG = 10,
+		S_AMP = 11, S_BAR = 12,
+		// finished tokens
+		S_GTEQ = 13, S_LTEQ = 14, S_EQEQ = 15, S_NOTEQ = 16, S_AND = 17,
+		S_OR = 18, S_PLUS = 19, S_MINUS = 20, S_TIMES = 21, S_DOT = 22,
+		S_COMMA = 23, S_SEMI = 24, S_LPAREN = 25, S_RPAREN = 26,
+		S_LBRACKET = 27, S_RBRACKET = 28, S_LCURLY = 29, S_RCURLY = 30,
+		S_ERROR = 31,
+		NUM_STATES = 32;
+	
+	private static final byte[] charClass = new byte[128];
+	private static final int[][] delta = new int[NUM_STATES][NUM_CLASSES];
+	private static final int[] accept = new int[NUM_STATES];
+	
+	static {
+		for(char c = 'a'; c <= 'z'; c++) charClass[c] = C_LETTER;
+		for(char c = 'A'; c <= 'Z'; c++) charClass[c] = C_LETTER;
+		for(char c = '0'; c <= '9'; c++) charClass[c] = C_DIGIT;
+		charClass['_'] = C_UNDERSCORE;
+		charClass['>'] = C_GT;
+		charClass['<'] = C_LT;
+		charClass['='] = C_EQ;
+		charClass['!'] = C_BANG;
+		charClass['&'] = C_AMP;
+		charClass['|'] = C_BAR;
+		charClass['/'] = C_SLASH;
+		charClass['*'] = C_STAR;
+		charClass['+'] = C_PLUS;
+		charClass['-'] = C_MINUS;
+		charClass['.'] = C_DOT;
+		charClass[','] = C_COMMA;
+		charClass[';'] = C_SEMI;
+		charClass['('] = C_LPAREN;
+		charClass[')'] = C_RPAREN;
+		charClass['['] = C_LBRACKET;
+		charClass[']'] = C_RBRACKET;
+		charClass['{'] = C_LCURLY;
+		charClass['}'] = C_RCURLY;
+		charClass[' '] = C_BLANK;
+		charClass['\t'] = C_BLANK;
+		charClass['\n'] = C_NEWLINE;
+		charClass['\r'] = C_NEWLINE;
+		charClass[SourceFile.EOT] = C_EOT;
+		
+		for(int s = 0; s < NUM_STATES; s++)
+			java.util.Arrays.fill(delta[s], NONE);
+		
+		// separators
+		// anything not listed here starts an error token
+		java.util.Arrays.fill(delta[S_START], S_ERROR);
+		delta[S_START][C_BLANK] = S_START;
+		delta[S_START][C_NEWLINE] = S_START;
+		delta[S_START][C_EOT] = NONE;
+		delta[S_START][C_SLASH] = S_SLASH;
+		delta[S_SLASH][C_SLASH] = S_SLC;
+		delta[S_SLASH][C_STAR] = S_MLC;
+		java.util.Arrays.fill(delta[S_SLC], S_SLC);
+		delta[S_SLC][C_NEWLINE] = S_START;
+		delta[S_SLC][C_EOT] = S_START;
+		java.util.Arrays.fill(delta[S_MLC], S_MLC);
+		delta[S_MLC][C_STAR] = S_MLSTAR;
+		delta[S_MLC][C_EOT] = NONE;
+		java.util.Arrays.fill(delta[S_MLSTAR], S_MLC);
+		delta[S_MLSTAR][C_STAR] = S_MLSTAR;
+		delta[S_MLSTAR][C_SLASH] = S_START;
+		delta[S_MLSTAR][C_EOT] = NONE;
+		
+		// token starters
+		delta[S_START][C_LETTER] = S_ID;
+		delta[S_START][C_DIGIT] = S_NUM;
+		delta[S_START][C_GT] = S_GT;
+		delta[S_START][C_LT] = S_LT;
+		delta[S_START][C_EQ] = S_EQ;
+		delta[S_START][C_BANG] = S_BANG;
+		delta[S_START][C_AMP] = S_AMP;
+		delta[S_START][C_BAR] = S_BAR;
+		delta[S_START][C_PLUS] = S_PLUS;
+		delta[S_START][C_MINUS] = S_MINUS;
+		delta[S_START][C_STAR] = S_TIMES;
+		delta[S_START][C_DOT] = S_DOT;
+		delta[S_START][C_COMMA] = S_COMMA;
+		delta[S_START][C_SEMI] = S_SEMI;
+		delta[S_START][C_LPAREN] = S_LPAREN;
+		delta[S_START][C_RPAREN] = S_RPAREN;
+		delta[S_START][C_LBRACKET] = S_LBRACKET;
+		delta[S_START][C_RBRACKET] = S_RBRACKET;
+		delta[S_START][C_LCURLY] = S_LCURLY;
+		delta[S_START][C_RCURLY] = S_RCURLY;
+		
+		// token continuations
+		delta[S_ID][C_LETTER] = S_ID;
+		delta[S_ID][C_XLETTER] = S_ID;
+		delta[S_ID][C_DIGIT] = S_ID;
+		delta[S_ID][C_UNDERSCORE] = S_ID;
+		delta[S_NUM][C_DIGIT] = S_NUM;
+		delta[S_GT][C_EQ] = S_GTEQ;
+		delta[S_LT][C_EQ] = S_LTEQ;
+		delta[S_EQ][C_EQ] = S_EQEQ;
+		delta[S_BANG][C_EQ] = S_NOTEQ;
+		// a lone & or | is reported but still eats the next char
+		java.util.Arrays.fill(delta[S_AMP], S_AND);
+		java.util.Arrays.fill(delta[S_BAR], S_OR);
+		
+		accept[S_ID] = Token.ID;
+		accept[S_NUM] = Token.INTLITERAL;
+		accept[S_GT] = Token.GREATER;
+		accept[S_LT] = Token.LESS;
+		accept[S_EQ] = Token.ASSIGN;
+		accept[S_BANG] = Token.NOT;
+		accept[S_GTEQ] = Token.GTEQUAL;
+		accept[S_LTEQ] = Token.LTEQUAL;
+		accept[S_EQEQ] = Token.EQUAL;
+		accept[S_NOTEQ] = Token.NOTEQUAL;
+		accept[S_AND] = Token.AND;
+		accept[S_OR] = Token.OR;
+		accept[S_PLUS] = Token.PLUS;
+		accept[S_MINUS] = Token.MINUS;
+		accept[S_TIMES] = Token.TIMES;
+		accept[S_DOT] = Token.DOT;
+		accept[S_COMMA] = Token.COMMA;
+		accept[S_SEMI] = Token.SEMICOLON;
+		accept[S_LPAREN] = Token.LPAREN;
+		accept[S_RPAREN] = Token.RPAREN;
+		accept[S_LBRACKET] = Token.LBRACKET;
+		accept[S_RBRACKET] = Token.RBRACKET;
+		accept[S_LCURLY] = Token.LCURLY;
+		accept[S_RCURLY] = Token.RCURLY;
+		accept[S_ERROR] = Token.ERROR;
+	}
+	
+	// chars past ASCII can only continue an identifier, as in scanToken()
+	private static int classOf(char c) {
+		if(c < 128)
+			return charClass[c];
+		return Character.isLetter(c) ? C_XLETTER : C_OTHER;
+	}
+	
+	private static boolean inBlockComment(int state) {
+		return state == S_MLC || state == S_MLSTAR;
+	}
+	
+	private void scanTable() {
+		int state = S_START;
+		
+		while(true) {
+			if(state == S_START)
+				sourceFile.release(offset());
+			int cls = classOf(currentChar);
+			int next = delta[state][cls];
+			
+			if(next == NONE) {
+				if(state == S_SLASH) {
+					divToken();
+					return;
+				} else if(state == S_START) {
+					beginToken();
+					endToken(Token.EOT);
+					return;
+				} else if(inBlockComment(state)) {
+					if(!speculative)
+						scanError(UNTERMINATED_ERROR);
+					unterminated = true;
+					beginToken();
+					endToken(Token.EOT);
+					return;
+				}
+				endToken(accept[state]);
+				return;
+			}
+			
+			if(state == S_SLASH && next == S_MLC) {
+				// the whole comment in one step, it ends back in S_START
+				skipBlockComment();
+				next = S_START;
+			} else if(inBlockComment(state) || inBlockComment(next)) {
+				// block comments are skipped without position tracking
+				currentChar = sourceFile.getSource();
+			} else if(state == S_START && cls == C_BLANK) {
+				skipBlanks();
+			} else if(state == S_SLASH && next == S_SLC) {
+				// S_SLC then only has the line terminator left to eat
+				consume();
+				skipToLineEnd();
+			} else if(state == S_START && next != S_START) {
+				if(next == S_SLASH) {
+					comStart = currentCharNum;
+					comOffset = offset();
+					consume();
+					comFinish = currentCharNum;
+				} else {
+					beginToken();
+					consume();
+				}
+			} else {
+				if(state == S_START && cls == C_NEWLINE) {
+					currentCharNum = 0;
+					columnResets++;
+				} else if(state == S_AMP && cls != C_AMP)
+					scanError(AMP_ERROR);
+				else if(state == S_BAR && cls != C_BAR)
+					scanError(BAR_ERROR);
+				consume();
+			}
+			state = next;
+		}
 	}
 	
 	private void scanError(String m) {
 		reporter.reportError(m);
 	}
-}
\ No newline at end of file
+
+	public SourceText getSourceFile() {
+		return sourceFile;
+	}
+
+	// spellings handed out by this scanner are interned here
+	public NameTable getNameTable() {
+		return names;
+	}
+	
+	/*
+	 * records a LineIndex from here on, call it before scanning the
+	 * tokens it is needed for
+	 */
+	public LineIndex indexLines() {
+		if(lines == null) {
+			lines = new LineIndex(sourceFile);
+			lines.add(offset(), currentLineNum, currentCharNum);
+		}
+		return lines;
+	}
+	
+	/*
+	 * Incremental re-lexing
+	 * 
+	 * tokens holds the tokens of a file before an edit that replaced
+	 * removed chars at offset with inserted, and is updated in place
+	 * to hold those of the edited file, scanning only around the
+	 * edit. scanning restarts at the last token whose lookahead char
+	 * comes before offset, and stops at the first token beginning
+	 * past the inserted text where an old token began. from there
+	 * both scans agree, so the rest of the old tokens are kept, moved
+	 * by the size of the edit. lines move by a constant too, and so
+	 * do columns up to the first newline that resets them.
+	 * 
+	 * the tokens are then handed out again from the first one, with
+	 * scan errors reported to reporter as they are reached, the same
+	 * as a full rescan of the edited file would. a lazily filled
+	 * buffer is scanned to the end first. the buffer's source must
+	 * be a SourceFile, a stream cannot be edited
+	 */
+	public static void relex(TokenBuffer tokens, int offset, int removed,
+			String inserted, ErrorReporter reporter) {
+		if(!(tokens.getSourceFile() instanceof SourceFile))
+			throw new IllegalArgumentException("only the tokens of a SourceFile can be relexed");
+		int n = tokens.scanAll();
+		SourceFile after = ((SourceFile) tokens.getSourceFile()).edit(offset, removed, inserted);
+		int delta = inserted.length() - removed;
+		
+		// scan errors are worked out again by splice()
+		ErrorReporter ignored = new ErrorReporter();
+		int r = lastTokenBefore(tokens, n, offset);
+		Scanner s;
+		if(r < 0) {
+			r = 0;
+			after.seek(0);
+			s = new Scanner(after, ignored, false, 1, 1);
+		} else {
+			after.seek(tokens.offset[r]);
+			s = new Scanner(after, ignored, false, tokens.line[r], tokens.column[r]);
+			s.columnResets = tokens.resets[r];
+		}
+		s.speculative = true;
+		
+		TokenBuffer window = new TokenBuffer(after, reporter, tokens.getNameTable(), 16);
+		int end = offset + inserted.length();
+		int k = r;
+		while(true) {
+			int t = s.scanNext();
+			// an EOT is always scanned again, it may end a comment now
+			if(s.tokenOffset >= end && t != Token.EOT) {
+				while(k < n && tokens.offset[k] + delta < s.tokenOffset)
+					k++;
+				if(k < n && tokens.offset[k] + delta == s.tokenOffset) {
+					tokens.splice(r, k, window, reporter, delta,
+							s.tokenLine - tokens.line[k],
+							s.tokenColumn - tokens.column[k],
+							s.columnResets - tokens.resets[k]);
+					return;
+				}
+			}
+			int i = window.append(t, s.tokenOffset, s.tokenLength, s.tokenLine,
+					s.tokenColumn, s.tokenFinish, s.columnResets);
+			if(t == Token.EOT) {
+				if(s.unterminated)
+					window.deferUnterminated(i);
+				tokens.splice(r, n, window, reporter, 0, 0, 0, 0);
+				return;
+			}
+		}
+	}
+	
+	// index of the last of the n tokens whose lookahead char is before offset, or -1
+	private static int lastTokenBefore(TokenBuffer tokens, int n, int offset) {
+		int lo = 0;
+		int hi = n - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			if(tokens.offset[mid] + tokens.length[mid] < offset)
+				lo = mid + 1;
+			else
+				hi = mid - 1;
+		}
+		return hi;
+	}
+}
@@ -1,8 +1,14 @@
 /*
  * miniJava SourceFile
- * 
+ *
  * this class handles opening a new sourcefile for the compiler.
- * 
+ * the whole file is mapped into memory up front (or read into
+ * one large buffer when it cannot be mapped, e.g. a pipe) so the
+ * scanner can pull characters without a syscall per byte.
+ * StreamSourceFile reads a pipe through a fixed size ring instead.
+ * holding every char, a SourceFile can also be duplicated, edited
+ * and digested, which a stream cannot.
+ *
  * @author brian morrow
  * I pledge that I have given nor received any unauthorized help on this
  * assignment and that I have abided by all Honor Code guidelines.
@@ -10,17 +16,23 @@
 
 package miniJava.SyntacticAnalyzer;
 
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
 import miniJava.ErrorReporter;
 
-public class SourceFile {
-	public static final char eolUnix = '\n';
-	public static final char eolWindows = '\r';
-	public static final char EOT = '\u0000';
-	
+public class SourceFile extends SourceText {
+	// initial size of the fallback buffer used when the input
+	// cannot be mapped (pipes, character devices)
+	private static final int READ_BUFFER_SIZE = 1 << 20;
+
 	private ErrorReporter reporter;
-	
+
 	public java.io.File sourceFile;
-	public java.io.FileInputStream source;
+	private ByteBuffer buffer;
+	private int limit;
+	private int position;
 
 	private boolean checkFilename(String file) {
 		if(file.indexOf('.') == -1) {
@@ -31,35 +43,239 @@ public class SourceFile {
 			return (ext.equals(".java") || ext.equals(".mjava"));
 		}
 	}
-	
+
 	public SourceFile(String filename, ErrorReporter reporter) {
 		this.reporter = reporter;
 		if (checkFilename(filename)) {
+			java.io.FileInputStream in = null;
 			try {
 				sourceFile = new java.io.File(filename);
-				source = new java.io.FileInputStream(sourceFile);
+				in = new java.io.FileInputStream(sourceFile);
+				buffer = load(in.getChannel(), sourceFile.isFile());
 			} catch (java.io.IOException e) {
 				reporter.reportError(e.toString());
 				sourceFile = null;
-				source = null;
+				buffer = null;
+			} finally {
+				if (in != null) {
+					try {
+						in.close();
+					} catch (java.io.IOException e) {
+						// mapping stays valid after close
+					}
+				}
 			}
 		} else {
 			reporter.reportError("Bad filename: " + filename);
 		}
+		if (buffer != null)
+			buffer.order(ByteOrder.LITTLE_ENDIAN);
+		limit = (buffer == null) ? 0 : buffer.limit();
+		position = 0;
+	}
+
+	// shares other's chars, with a read position of its own
+	private SourceFile(SourceFile other) {
+		reporter = other.reporter;
+		sourceFile = other.sourceFile;
+		if (other.buffer != null)
+			buffer = other.buffer.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+		limit = other.limit;
+		position = 0;
+	}
+
+	/*
+	 * a second reader over the same file. the chars are not
+	 * copied, so readers on different threads can scan at once
+	 */
+	public SourceFile duplicate() {
+		return new SourceFile(this);
+	}
+
+	/*
+	 * the same file with chars [offset, offset + removed) replaced
+	 * by inserted. the chars are copied into a new heap buffer, this
+	 * one is left as it was. a char is a byte, as the file is read,
+	 * so inserted may only hold chars up to U+00FF
+	 */
+	public SourceFile edit(int offset, int removed, String inserted) {
+		for (int i = 0; i < inserted.length(); i++) {
+			if (inserted.charAt(i) > 0xff)
+				throw new IllegalArgumentException("char " + (int) inserted.charAt(i)
+						+ " at " + i + " of the inserted text is not a byte");
+		}
+		SourceFile edited = new SourceFile(this);
+		ByteBuffer buf = ByteBuffer.allocate(limit - removed + inserted.length());
+		if (buffer != null) {
+			ByteBuffer head = buffer.duplicate();
+			head.limit(offset);
+			buf.put(head);
+		}
+		for (int i = 0; i < inserted.length(); i++)
+			buf.put((byte) inserted.charAt(i));
+		if (buffer != null) {
+			ByteBuffer tail = buffer.duplicate();
+			tail.position(offset + removed);
+			buf.put(tail);
+		}
+		buf.flip();
+		edited.buffer = buf.order(ByteOrder.LITTLE_ENDIAN);
+		edited.limit = buf.limit();
+		return edited;
+	}
+
+	/*
+	 * feeds the file's bytes to md, e.g. for a ParseCache key. a file
+	 * that could not be read has none
+	 */
+	public void digest(java.security.MessageDigest md) {
+		if (buffer != null) {
+			ByteBuffer all = buffer.duplicate();
+			all.position(0);
+			all.limit(limit);
+			md.update(all);
+		}
+	}
+
+	/*
+	 * map regular files read-only, everything else is drained
+	 * into a direct buffer that doubles as it fills
+	 */
+	private static ByteBuffer load(FileChannel ch, boolean regular)
+			throws java.io.IOException {
+		if (regular) {
+			long size = ch.size();
+			if (size > Integer.MAX_VALUE)
+				throw new java.io.IOException("Source file too large: " + size + " bytes");
+			return ch.map(FileChannel.MapMode.READ_ONLY, 0, size);
+		}
+		ByteBuffer buf = ByteBuffer.allocateDirect(READ_BUFFER_SIZE);
+		while (ch.read(buf) != -1) {
+			if (!buf.hasRemaining()) {
+				ByteBuffer bigger = ByteBuffer.allocateDirect(buf.capacity() * 2);
+				buf.flip();
+				bigger.put(buf);
+				buf = bigger;
+			}
+		}
+		buf.flip();
+		return buf;
 	}
-	
+
 	public char getSource() {
-		int c;
-		try {
-			c = source.read();
-			if (c == -1) {
-				c = EOT;
+		int p = position++;
+		return (p < limit) ? (char) (buffer.get(p) & 0xff) : EOT;
+	}
+
+	public char charAt(int index) {
+		return (index < limit) ? (char) (buffer.get(index) & 0xff) : EOT;
+	}
+
+	public String toString() {
+		return substring(0, limit);
+	}
+
+	// number of characters in the file
+	public int length() {
+		return limit;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public void seek(int offset) {
+		position = offset;
+	}
+
+	/*
+	 * Bulk searches for the scanner's separator skipping
+	 *
+	 * these look at 8 chars per step: a long is read from the
+	 * buffer and byteFlags() marks the bytes equal to a given
+	 * char (SWAR), so a run of comment text costs one load and a
+	 * few ALU ops per 8 chars. the tail is done a char at a time.
+	 * the buffer is little endian, so the first match in a word is
+	 * its lowest flagged byte.
+	 *
+	 * not the Vector API: it is still the jdk.incubator.vector
+	 * module, which javac and java only see with --add-modules, and
+	 * the tree is built with plain javac on any JDK from 11 on
+	 * (jdk.jfr is the newest thing it uses). plain longs need neither.
+	 */
+	private static final long ONES = 0x0101010101010101L;
+	private static final long LOWS = 0x7F7F7F7F7F7F7F7FL;
+	private static final long HIGHS = 0x8080808080808080L;
+	private static final long SPACES = ' ' * ONES;
+	private static final long TABS = '\t' * ONES;
+	private static final long NEWLINES = '\n' * ONES;
+	private static final long RETURNS = '\r' * ONES;
+	private static final long STARS = '*' * ONES;
+
+	// high bit of each byte of the result is set iff that byte of word is c
+	private static long byteFlags(long word, long c) {
+		long x = word ^ c;
+		return ~((((x & LOWS) + LOWS) | x) | LOWS);
+	}
+
+	private static int firstFlagged(long flags) {
+		return Long.numberOfTrailingZeros(flags) >>> 3;
+	}
+
+	public int skipBlanks(int from) {
+		int i = from;
+		for (; i + 8 <= limit; i += 8) {
+			long w = buffer.getLong(i);
+			long other = ~(byteFlags(w, SPACES) | byteFlags(w, TABS)) & HIGHS;
+			if (other != 0)
+				return i + firstFlagged(other);
+		}
+		while (i < limit && (charAt(i) == ' ' || charAt(i) == '\t'))
+			i++;
+		return i;
+	}
+
+	public int lineEnd(int from) {
+		int i = from;
+		for (; i + 8 <= limit; i += 8) {
+			long w = buffer.getLong(i);
+			long ends = byteFlags(w, NEWLINES) | byteFlags(w, RETURNS) | byteFlags(w, 0);
+			if (ends != 0)
+				return i + firstFlagged(ends);
+		}
+		while (i < limit && charAt(i) != '\n' && charAt(i) != '\r' && charAt(i) != EOT)
+			i++;
+		return i;
+	}
+
+	public int blockCommentEnd(int from) {
+		int i = from;
+		while (i + 8 <= limit) {
+			long w = buffer.getLong(i);
+			long stops = byteFlags(w, STARS) | byteFlags(w, 0);
+			if (stops == 0) {
+				i += 8;
+				continue;
 			}
-			return (char) c;
-			
-		} catch (java.io.IOException e) {
-			reporter.reportError(e.toString());
-			return EOT;
+			int j = i + firstFlagged(stops);
+			if (charAt(j) == EOT || charAt(j + 1) == '/')
+				return j;
+			i = j + 1;
+		}
+		while (i < limit && (charAt(i) != '*' || charAt(i + 1) != '/') && charAt(i) != EOT)
+			i++;
+		return i;
+	}
+
+	public int countTabs(int from, int to) {
+		int n = 0;
+		int i = from;
+		for (; i + 8 <= to; i += 8)
+			n += Long.bitCount(byteFlags(buffer.getLong(i), TABS));
+		for (; i < to; i++) {
+			if (charAt(i) == '\t')
+				n++;
 		}
+		return n;
 	}
 }
@@ -3,6 +3,9 @@
  * 
  * This class keeps track of a token's source position
  * 
+ * a position is a value, it never changes once made, so the same
+ * one can be shared by every node that spans the same phrase
+ * 
  * @author brian morrow
  * I pledge that I have given nor received any unauthorized help on this
  * assignment and that I have abided by all Honor Code guidelines.
@@ -10,7 +13,7 @@
 package miniJava.SyntacticAnalyzer;
 
 public class SourcePosition {
-	public int start, finish, linestart, linefinish;
+	public final int start, finish, linestart, linefinish;
 	
 	public SourcePosition() {
 		linestart = 1;
@@ -0,0 +1,77 @@
+/*
+ * miniJava SourceText
+ *
+ * what a Scanner reads its chars through: a read position, indexed
+ * access and the bulk searches it skips separators with. SourceFile
+ * holds the whole source, and can also be duplicated, edited and
+ * digested. StreamSourceFile only holds the chars since the last
+ * release(), so it has none of those.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+public abstract class SourceText implements CharSequence {
+	public static final char eolUnix = '\n';
+	public static final char eolWindows = '\r';
+	public static final char EOT = '\u0000';
+
+	/*
+	 * returns the next character of the source, or EOT once
+	 * the end has been reached (and on every call after that).
+	 * the position keeps counting past the end, so reads of EOT
+	 * have offsets just like real characters
+	 */
+	public abstract char getSource();
+
+	/*
+	 * indexed access, does not move the read position.
+	 * offsets past the end read as EOT
+	 */
+	public abstract char charAt(int index);
+
+	// number of characters in the source, or read so far
+	public abstract int length();
+
+	// offset of the next character getSource() will return
+	public abstract int getPosition();
+
+	// moves the read position, the next getSource() returns char offset
+	public abstract void seek(int offset);
+
+	/*
+	 * the chars before offset will not be read again. a SourceFile
+	 * keeps them anyway, a StreamSourceFile may drop them
+	 */
+	public void release(int offset) {
+	}
+
+	// chars [start, end) as a String
+	public String substring(int start, int end) {
+		char[] chars = new char[end - start];
+		for (int i = start; i < end; i++)
+			chars[i - start] = charAt(i);
+		return new String(chars);
+	}
+
+	public CharSequence subSequence(int start, int end) {
+		return substring(start, end);
+	}
+
+	// first offset >= from whose char is not ' ' or '\t'
+	public abstract int skipBlanks(int from);
+
+	// first offset >= from whose char is '\n', '\r' or EOT
+	public abstract int lineEnd(int from);
+
+	/*
+	 * first offset i >= from where chars i, i+1 are '*' '/', or
+	 * where char i is EOT (an unterminated comment)
+	 */
+	public abstract int blockCommentEnd(int from);
+
+	// number of tabs among chars [from, to)
+	public abstract int countTabs(int from, int to);
+}
@@ -0,0 +1,189 @@
+/*
+ * miniJava StreamSourceFile
+ *
+ * source text read from stdin or any other channel as the scanner
+ * goes, through a ring buffer of fixed size, so a source of any size
+ * can be piped in without a temp file and without holding all of it.
+ *
+ * offsets are still counted from the start of the input. chars are
+ * kept from the last release() on, which the scanner calls at the
+ * start of every token and separator, so the ring only has to hold
+ * the token being scanned and what it has read ahead. it only grows
+ * when a single token, run of blanks or // comment line is longer
+ * than the ring. reading a char that has been dropped is an
+ * IllegalStateException.
+ *
+ * offsets are ints, as everywhere in the scanner, so an input longer
+ * than MAX_LENGTH chars is an error: it is reported and the input
+ * ends there, before the offsets could wrap around.
+ *
+ * spellings have to be taken while the token is still in the ring,
+ * see TokenBuffer(Scanner, int). it is not a SourceFile: it cannot be
+ * duplicated, edited or digested, and a LineIndex needs the whole
+ * source.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+import miniJava.ErrorReporter;
+
+public class StreamSourceFile extends SourceText {
+	public static final int DEFAULT_CAPACITY = 1 << 16;
+	// leaves room for reads of EOT and lookahead past the end
+	public static final int MAX_LENGTH = Integer.MAX_VALUE - (1 << 20);
+
+	private ErrorReporter reporter;
+	private ReadableByteChannel channel;
+	private boolean eof;
+
+	// char i is ring[i & mask] while mark <= i < filled
+	private byte[] ring;
+	private int mask;
+	private int mark;
+	private int filled;
+	private int position;
+
+	public StreamSourceFile(ReadableByteChannel channel, ErrorReporter reporter) {
+		this(channel, reporter, DEFAULT_CAPACITY);
+	}
+
+	// capacity is rounded up to a power of 2
+	public StreamSourceFile(ReadableByteChannel channel, ErrorReporter reporter, int capacity) {
+		this.reporter = reporter;
+		this.channel = channel;
+		ring = new byte[Integer.highestOneBit(Math.max(capacity, 16) * 2 - 1)];
+		mask = ring.length - 1;
+		mark = 0;
+		filled = 0;
+		position = 0;
+	}
+
+	public static StreamSourceFile stdin(ErrorReporter reporter) {
+		return new StreamSourceFile(Channels.newChannel(System.in), reporter);
+	}
+
+	// reads until char i is in the ring or the input ends
+	private void fill(int i) {
+		while(i >= filled && !eof) {
+			if(filled - mark == ring.length)
+				grow();
+			int at = filled & mask;
+			int room = Math.min(ring.length - (filled - mark), ring.length - at);
+			if(filled == MAX_LENGTH) {
+				reporter.reportError("input too large: more than " + MAX_LENGTH + " chars");
+				eof = true;
+				break;
+			}
+			room = Math.min(room, MAX_LENGTH - filled);
+			try {
+				int n = channel.read(ByteBuffer.wrap(ring, at, room));
+				if(n < 0)
+					eof = true;
+				else
+					filled += n;
+			} catch (java.io.IOException e) {
+				reporter.reportError(e.toString());
+				eof = true;
+			}
+		}
+	}
+
+	// everything from mark on is kept, laid out again for the new mask
+	private void grow() {
+		byte[] bigger = new byte[ring.length * 2];
+		for(int i = mark; i < filled; i++)
+			bigger[i & (bigger.length - 1)] = ring[i & mask];
+		ring = bigger;
+		mask = bigger.length - 1;
+	}
+
+	public void release(int offset) {
+		if(offset > mark)
+			mark = Math.min(offset, filled);
+	}
+
+	// size of the ring, which is all the memory the source takes
+	public int capacity() {
+		return ring.length;
+	}
+
+	public char getSource() {
+		return charAt(position++);
+	}
+
+	public char charAt(int index) {
+		if(index >= filled) {
+			fill(index);
+			if(index >= filled)
+				return EOT;
+		}
+		if(index < filled - ring.length || index < 0)
+			throw new IllegalStateException("char " + index + " has left the ring buffer");
+		return (char) (ring[index & mask] & 0xff);
+	}
+
+	// chars read so far, the length of the input once EOT has been read
+	public int length() {
+		return filled;
+	}
+
+	public int getPosition() {
+		return position;
+	}
+
+	public void seek(int offset) {
+		position = offset;
+	}
+
+	public String toString() {
+		return substring(Math.max(mark, filled - ring.length), filled);
+	}
+
+	/*
+	 * the bulk searches a char at a time through charAt(), which
+	 * reads more input as needed
+	 */
+
+	public int skipBlanks(int from) {
+		int i = from;
+		while(charAt(i) == ' ' || charAt(i) == '\t')
+			i++;
+		return i;
+	}
+
+	public int lineEnd(int from) {
+		int i = from;
+		char c = charAt(i);
+		while(c != '\n' && c != '\r' && c != EOT)
+			c = charAt(++i);
+		return i;
+	}
+
+	// nothing inside a comment is read again, so it is released as it goes
+	public int blockCommentEnd(int from) {
+		int i = from;
+		while(true) {
+			char c = charAt(i);
+			if(c == EOT || (c == '*' && charAt(i + 1) == '/'))
+				return i;
+			release(i);
+			i++;
+		}
+	}
+
+	public int countTabs(int from, int to) {
+		int n = 0;
+		for(int i = from; i < to; i++) {
+			if(charAt(i) == '\t')
+				n++;
+		}
+		return n;
+	}
+}
@@ -23,15 +23,36 @@ public class Token extends Object{
 		this.position = position;
 		
 		if(type == ID) {
-			for(int i = firstReservedWord; i <= lastReservedWord; i++) {
-				if(spelling.equals(spellings[i])) {
-					this.type = i;
-					break;
-				}
-			}
+			this.type = reservedWord(spelling, 0, spelling.length());
 		}
 	}
 	
+	/*
+	 * classifies the identifier spelled by chars [start, start+len)
+	 * of s, returning the reserved word's type or ID. one hash, one
+	 * table probe and at most one char-by-char compare
+	 */
+	static int reservedWord(CharSequence s, int start, int len) {
+		if(len < minReservedLength || len > maxReservedLength)
+			return ID;
+		int kw = reservedTable[reservedHash(s.charAt(start), s.charAt(start + 1), len)];
+		if(kw == ID)
+			return ID;
+		String word = spellings[kw];
+		if(word.length() != len)
+			return ID;
+		for(int i = 1; i < len; i++) {
+			if(word.charAt(i) != s.charAt(start + i))
+				return ID;
+		}
+		return word.charAt(0) == s.charAt(start) ? kw : ID;
+	}
+	
+	// collision free over the reserved words, see the static block below
+	private static int reservedHash(char c0, char c1, int len) {
+		return (len + (c0 << 3) + (c1 << 2)) & (RESERVED_TABLE_SIZE - 1);
+	}
+	
 	public static String spell(int type) {
 		return spellings[type];
 	}
@@ -141,5 +162,30 @@ public class Token extends Object{
 	
 	private final static int firstReservedWord = Token.CLASS;
 	private final static int lastReservedWord = Token.NEW;
+	
+	/*
+	 * perfect hash table for the reserved words, slot -> token type
+	 * (or ID when empty). built once from spellings[] when the class
+	 * loads; adding a reserved word that collides fails loudly here
+	 * and reservedHash() needs new constants
+	 */
+	private final static int RESERVED_TABLE_SIZE = 32;
+	private final static int[] reservedTable = new int[RESERVED_TABLE_SIZE];
+	private static int minReservedLength = Integer.MAX_VALUE;
+	private static int maxReservedLength = 0;
+	
+	static {
+		java.util.Arrays.fill(reservedTable, ID);
+		for(int i = firstReservedWord; i <= lastReservedWord; i++) {
+			String word = spellings[i];
+			int h = reservedHash(word.charAt(0), word.charAt(1), word.length());
+			if(reservedTable[h] != ID)
+				throw new ExceptionInInitializerError("reserved word hash collision: "
+						+ word + ", " + spellings[reservedTable[h]]);
+			reservedTable[h] = i;
+			minReservedLength = Math.min(minReservedLength, word.length());
+			maxReservedLength = Math.max(maxReservedLength, word.length());
+		}
+	}
 }
 
@@ -0,0 +1,479 @@
+/*
+ * miniJava TokenBuffer
+ *
+ * a token stream stored as parallel arrays of ints (type, source
+ * offset, length, line and columns) with an int cursor for the
+ * parser. Token and SourcePosition objects are only built when
+ * somebody asks for one, spellings come from the scanner's
+ * NameTable.
+ *
+ * @author brian morrow
+ * I pledge that I have given nor received any unauthorized help on this
+ * assignment and that I have abided by all Honor Code guidelines.
+ */
+package miniJava.SyntacticAnalyzer;
+
+import miniJava.ErrorReporter;
+
+public class TokenBuffer {
+	private static final int INITIAL_CAPACITY = 1024;
+
+	private Scanner scanner;
+	private SourceText source;
+	private NameTable names;
+
+	/*
+	 * the package reads these directly, e.g. Scanner.relex(),
+	 * which must not set off the lazy filling below
+	 */
+	int[] type;
+	int[] offset;
+	int[] length;
+	int[] line;			// a DIV token's real line, see line()
+	int[] column;
+	int[] finish;
+	int[] resets;		// column resets before the token
+	private int size;
+	private boolean complete;
+	
+	/*
+	 * token i is stored at i & mask. without a window the mask
+	 * is all ones and the arrays grow instead
+	 */
+	private int mask = -1;
+	private int[] nameIds;		// only with a window
+	
+	/*
+	 * a buffer built by ParallelScanner or updated by Scanner.relex()
+	 * holds every token from the start. size then counts the tokens
+	 * handed out so far, and scan errors (an unterminated comment's
+	 * too) are only raised when the token they belong to is reached,
+	 * as a scanner pulled token by token would have done
+	 */
+	private ErrorReporter reporter;
+	private int stored;
+	private int[] errorToken = new int[4];
+	private String[] errorMessage = new String[4];
+	private int errorCount;
+	private int errorsReported;
+	private int unterminatedAt = -1;
+
+	private int cursor;
+	
+	/*
+	 * what the last splice() did, for IncrementalParser: tokens
+	 * [splicedFrom, splicedTo) were replaced by splicedLength new
+	 * ones, and those after them moved by splicedLines lines, and by
+	 * some columns up to columnsMovedTo
+	 */
+	int splicedFrom = -1;
+	int splicedTo;
+	int splicedLength;
+	int splicedLines;
+	int columnsMovedTo;
+
+	/*
+	 * tokens are pulled from the scanner as the cursor moves,
+	 * so scan errors are reported in the same order as before
+	 */
+	public TokenBuffer(Scanner lexer) {
+		scanner = lexer;
+		source = lexer.getSourceFile();
+		names = lexer.getNameTable();
+		allocate(INITIAL_CAPACITY);
+		size = 0;
+		complete = false;
+		cursor = 0;
+	}
+	
+	/*
+	 * keeps only the last window tokens (rounded up to a power of
+	 * 2), for input too large to hold such as a StreamSourceFile.
+	 * spellings are interned as each token is scanned, while its
+	 * chars are still in the source. reading a token that has been
+	 * dropped is an IllegalStateException, and the package's direct
+	 * array access (relex) does not work on such a buffer
+	 */
+	public TokenBuffer(Scanner lexer, int window) {
+		scanner = lexer;
+		source = lexer.getSourceFile();
+		names = lexer.getNameTable();
+		int n = Integer.highestOneBit(Math.max(window, 2) * 2 - 1);
+		allocate(n);
+		nameIds = new int[n];
+		mask = n - 1;
+		size = 0;
+		complete = false;
+		cursor = 0;
+	}
+
+	// lexes the whole file up front
+	public TokenBuffer(SourceText source, ErrorReporter reporter) {
+		this(new Scanner(source, reporter));
+		fill(Integer.MAX_VALUE);
+	}
+	
+	/*
+	 * the tokens of a frozen buffer, shared, with a cursor of its own
+	 * for another parser, see freeze()
+	 */
+	TokenBuffer(TokenBuffer frozen) {
+		source = frozen.source;
+		names = frozen.names;
+		type = frozen.type;
+		offset = frozen.offset;
+		length = frozen.length;
+		line = frozen.line;
+		column = frozen.column;
+		finish = frozen.finish;
+		resets = frozen.resets;
+		size = frozen.size;
+		stored = frozen.stored;
+		complete = true;
+		cursor = 0;
+	}
+	
+	// an empty buffer for ParallelScanner or Scanner.relex() to append() to
+	TokenBuffer(SourceText source, ErrorReporter reporter, NameTable names, int capacity) {
+		this.source = source;
+		this.reporter = reporter;
+		this.names = names;
+		allocate(Math.max(capacity, 1));
+	}
+	
+	private void allocate(int capacity) {
+		type = new int[capacity];
+		offset = new int[capacity];
+		length = new int[capacity];
+		line = new int[capacity];
+		column = new int[capacity];
+		finish = new int[capacity];
+		resets = new int[capacity];
+	}
+	
+	// stores the next token, returns its index
+	int append(int t, int off, int len, int ln, int col, int fin, int rs) {
+		if(stored == type.length)
+			grow();
+		type[stored] = t;
+		offset[stored] = off;
+		length[stored] = len;
+		line[stored] = ln;
+		column[stored] = col;
+		finish[stored] = fin;
+		resets[stored] = rs;
+		return stored++;
+	}
+	
+	// scans the rest of the file without handing tokens out, returns the token count
+	int scanAll() {
+		if(scanner != null)
+			fill(Integer.MAX_VALUE);
+		return stored;
+	}
+	
+	/*
+	 * for Scanner.relex(): tokens [from, to) are replaced by those
+	 * of window, which reads the edited source, and the tokens after
+	 * them are moved by the given deltas (columns only up to the
+	 * first newline that resets them). the buffer then hands all its
+	 * tokens out again from the start, reporting scan errors to
+	 * reporter as they are reached
+	 */
+	void splice(int from, int to, TokenBuffer window, ErrorReporter reporter,
+			int offsets, int lines, int columns, int resetCount) {
+		int m = window.stored;
+		int tail = stored - to;
+		// a scanner filled buffer has its EOT last
+		int unterminated = (scanner == null) ? unterminatedAt
+				: scanner.unterminated ? stored - 1 : -1;
+		int n = from + m + tail;
+		while(n > type.length)
+			grow();
+		if(m != to - from) {
+			System.arraycopy(type, to, type, from + m, tail);
+			System.arraycopy(offset, to, offset, from + m, tail);
+			System.arraycopy(length, to, length, from + m, tail);
+			System.arraycopy(line, to, line, from + m, tail);
+			System.arraycopy(column, to, column, from + m, tail);
+			System.arraycopy(finish, to, finish, from + m, tail);
+			System.arraycopy(resets, to, resets, from + m, tail);
+		}
+		if(offsets != 0) {
+			for(int j = from + m; j < n; j++)
+				offset[j] += offsets;
+		}
+		if(lines != 0) {
+			for(int j = from + m; j < n; j++)
+				line[j] += lines;
+		}
+		if(resetCount != 0) {
+			for(int j = from + m; j < n; j++)
+				resets[j] += resetCount;
+		}
+		columnsMovedTo = from + m;
+		if(columns != 0 && tail > 0) {
+			int epoch = resets[from + m];
+			for(int j = from + m; j < n && resets[j] == epoch; j++) {
+				column[j] += columns;
+				finish[j] += columns;
+				columnsMovedTo = j + 1;
+			}
+		}
+		splicedFrom = from;
+		splicedTo = to;
+		splicedLength = m;
+		splicedLines = lines;
+		System.arraycopy(window.type, 0, type, from, m);
+		System.arraycopy(window.offset, 0, offset, from, m);
+		System.arraycopy(window.length, 0, length, from, m);
+		System.arraycopy(window.line, 0, line, from, m);
+		System.arraycopy(window.column, 0, column, from, m);
+		System.arraycopy(window.finish, 0, finish, from, m);
+		System.arraycopy(window.resets, 0, resets, from, m);
+		
+		// errors of a scanner filled buffer went straight to its reporter
+		int[] oldToken = errorToken;
+		String[] oldMessage = errorMessage;
+		int oldCount = (scanner == null) ? errorCount : 0;
+		errorToken = new int[oldCount + 4];
+		errorMessage = new String[oldCount + 4];
+		errorCount = 0;
+		errorsReported = 0;
+		source = window.source;
+		if(scanner == null) {
+			int e = 0;
+			for(; e < oldCount && oldToken[e] < from; e++)
+				deferError(oldToken[e], oldMessage[e]);
+			deferScanErrors(from, from + m);
+			for(; e < oldCount; e++) {
+				if(oldToken[e] >= to)
+					deferError(oldToken[e] + m - (to - from), oldMessage[e]);
+			}
+		} else {
+			deferScanErrors(0, n);
+		}
+		
+		scanner = null;
+		this.reporter = reporter;
+		stored = n;
+		size = 0;
+		complete = false;
+		cursor = 0;
+		if(window.unterminatedAt >= 0)
+			unterminatedAt = from + window.unterminatedAt;
+		else if(unterminated >= to)
+			unterminatedAt = unterminated + m - (to - from);
+		else
+			unterminatedAt = -1;
+	}
+	
+	// a & or | token not followed by a second one was a scan error
+	private void deferScanErrors(int from, int to) {
+		for(int j = from; j < to; j++) {
+			if(type[j] == Token.AND && source.charAt(offset[j] + 1) != '&')
+				deferError(j, Scanner.AMP_ERROR);
+			else if(type[j] == Token.OR && source.charAt(offset[j] + 1) != '|')
+				deferError(j, Scanner.BAR_ERROR);
+		}
+	}
+	
+	// m is reported once token i is reached, errors come in token order
+	void deferError(int i, String m) {
+		if(errorCount == errorToken.length) {
+			errorToken = java.util.Arrays.copyOf(errorToken, errorCount * 2);
+			errorMessage = java.util.Arrays.copyOf(errorMessage, errorCount * 2);
+		}
+		errorToken[errorCount] = i;
+		errorMessage[errorCount] = m;
+		errorCount++;
+	}
+	
+	// token i is the EOT that ends an unterminated comment
+	void deferUnterminated(int i) {
+		unterminatedAt = i;
+	}
+
+	/*
+	 * scans until token i is buffered or EOT has been stored.
+	 * any index past the EOT token reads as the EOT token
+	 */
+	private void fill(int i) {
+		while(size <= i && !complete) {
+			int j = size & mask;
+			if(scanner != null) {
+				if(j == type.length)
+					grow();
+				type[j] = scanner.scanNext();
+				offset[j] = scanner.tokenOffset;
+				length[j] = scanner.tokenLength;
+				line[j] = scanner.tokenLine;
+				column[j] = scanner.tokenColumn;
+				finish[j] = scanner.tokenFinish;
+				resets[j] = scanner.columnResets;
+				if(nameIds != null)
+					nameIds[j] = names.intern(source, offset[j], length[j]);
+				stored = size + 1;
+			} else {
+				reveal(size);
+			}
+			complete = (type[j] == Token.EOT);
+			size++;
+		}
+	}
+	
+	private void reveal(int i) {
+		while(errorsReported < errorCount && errorToken[errorsReported] == i)
+			reporter.reportError(errorMessage[errorsReported++]);
+		if(i == unterminatedAt)
+			reporter.reportError(Scanner.UNTERMINATED_ERROR);
+	}
+
+	/*
+	 * scans the rest of the file, reporting its scan errors, and
+	 * interns every spelling, after which reading the buffer no longer
+	 * changes it and parsers on other threads can share its tokens.
+	 * false for a windowed buffer, which cannot hold them all
+	 */
+	boolean freeze() {
+		if(mask != -1)
+			return false;
+		fill(Integer.MAX_VALUE);
+		for(int i = 0; i < size; i++)
+			names.intern(source, offset[i], length[i]);
+		return true;
+	}
+
+	private void grow() {
+		int n = type.length * 2;
+		type = java.util.Arrays.copyOf(type, n);
+		offset = java.util.Arrays.copyOf(offset, n);
+		length = java.util.Arrays.copyOf(length, n);
+		line = java.util.Arrays.copyOf(line, n);
+		column = java.util.Arrays.copyOf(column, n);
+		finish = java.util.Arrays.copyOf(finish, n);
+		resets = java.util.Arrays.copyOf(resets, n);
+	}
+
+	// index() may grow the arrays, so read them only after calling it
+	private int index(int i) {
+		if(i >= size) {
+			fill(i);
+			if(i >= size)
+				i = size - 1;
+		}
+		if(i < size - type.length)
+			throw new IllegalStateException("token " + i + " has left the window");
+		return i & mask;
+	}
+
+	// number of tokens buffered so far (all of them once EOT is in)
+	public int size() {
+		return size;
+	}
+
+	public SourceText getSourceFile() {
+		return source;
+	}
+
+	public NameTable getNameTable() {
+		return names;
+	}
+
+	// per token accessors
+
+	public int type(int i) {
+		i = index(i);
+		return type[i];
+	}
+
+	public int offset(int i) {
+		i = index(i);
+		return offset[i];
+	}
+
+	public int length(int i) {
+		i = index(i);
+		return length[i];
+	}
+
+	// a DIV token reads as line 1, see Scanner.position()
+	public int line(int i) {
+		i = index(i);
+		return (type[i] == Token.DIV) ? 1 : line[i];
+	}
+
+	public int column(int i) {
+		i = index(i);
+		return column[i];
+	}
+
+	public int finish(int i) {
+		i = index(i);
+		return finish[i];
+	}
+
+	int resets(int i) {
+		i = index(i);
+		return resets[i];
+	}
+	
+	// interned, so equal spellings are the same String
+	public String spelling(int i) {
+		return names.name(nameId(i));
+	}
+
+	public int nameId(int i) {
+		i = index(i);
+		if(nameIds != null)
+			return nameIds[i];
+		return names.intern(source, offset[i], length[i]);
+	}
+
+	public SourcePosition position(int i) {
+		i = index(i);
+		return Scanner.position(type[i], line[i], column[i], finish[i]);
+	}
+
+	public Token token(int i) {
+		return new Token(type(i), spelling(i), position(i));
+	}
+
+	// cursor
+
+	public int cursor() {
+		return cursor;
+	}
+
+	public void seek(int i) {
+		cursor = i;
+	}
+
+	// moves to the next token and returns its type
+	public int advance() {
+		if(type(cursor) != Token.EOT)
+			cursor++;
+		return type(cursor);
+	}
+
+	// type of the token k places after the cursor, 0 is the current one
+	public int peek(int k) {
+		return type(cursor + k);
+	}
+
+	public int type() {
+		return type(cursor);
+	}
+
+	public String spelling() {
+		return spelling(cursor);
+	}
+
+	public SourcePosition position() {
+		return position(cursor);
+	}
+
+	public Token token() {
+		return token(cursor);
+	}
+}
@@ -0,0 +1,266 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.nio.channels.Channels;
+import java.nio.channels.Pipe;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FieldDecl;
+import miniJava.AbstractSyntaxTrees.MethodDecl;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.ParameterDeclList;
+import miniJava.AbstractSyntaxTrees.Reference;
+import miniJava.AbstractSyntaxTrees.Statement;
+import miniJava.SyntacticAnalyzer.ParseListener;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+import miniJava.SyntacticAnalyzer.StreamSourceFile;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Checks the events of a Parser with a ParseListener against the tree
+ * the Parser builds without one. For each pass*.java in tests/pa1_tests,
+ * with the recursive and with the iterative Parser, every class must be
+ * reported with the fields and methods it has in the tree, and every
+ * method with as many statements and references (those not inside
+ * another reference) as its tree holds. With packed positions the
+ * classes must be entered at the same lines and columns as without.
+ * Then, on a generated program of SIZE KB, times the parse of a
+ * listener that stops after the first class against one that sees
+ * every event, and last counts the methods of a STREAMED KB program
+ * piped in from SourceGenerator, never on disk, with the used heap
+ * sampled as it goes. It does not grow with the trees parsed, only
+ * with the NameTable, which keeps every distinct name: the generator
+ * names each class anew, so that is some 40 bytes a class.
+ * Optional arguments: a different directory of sources, SIZE, STREAMED.
+ */
+public class EventCheck {
+
+	static final String SIZE = "16384";
+	static final String STREAMED = "262144";
+	static final int STREAM_TOKEN_WINDOW = 64;
+
+	public static void main(String[] args) throws IOException {
+		File testDir = args.length > 0 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		File[] files = testDir.listFiles();
+		Arrays.sort(files);
+		int failures = 0;
+		int checked = 0;
+		for (boolean iterative : new boolean[] { false, true }) {
+			String mode = iterative ? "iterative" : "recursive";
+			for (File x : files) {
+				if (!x.getName().startsWith("pass"))
+					continue;
+				List<String> expected = summary(parse(x, iterative, false, null));
+				Summary events = new Summary();
+				Package empty = parse(x, iterative, false, events);
+				Summary packed = new Summary();
+				parse(x, iterative, true, packed);
+				checked++;
+				if (!events.classes.equals(expected) || empty.classDeclList.size() != 0) {
+					System.out.println(x.getName() + ": " + mode + " events " + events.classes
+							+ "\n\tbut the tree has " + expected);
+					failures++;
+				} else if (!packed.positions.equals(events.positions)) {
+					System.out.println(x.getName() + ": " + mode + " classes entered at "
+							+ events.positions + "\n\tbut with packed positions at " + packed.positions);
+					failures++;
+				}
+			}
+		}
+		System.out.println(checked + " parses checked, " + failures + " failures.");
+
+		File f = LexerBenchmark.input(args.length > 1 ? args[1] : SIZE);
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+		for (int i = 0; i < 3; i++) {
+			long all = time(f, new Summary());
+			Summary first = new Summary();
+			first.stopAfter = 1;
+			long stopped = time(f, first);
+			System.out.printf("all events %7.1f ms, stop after the first class %5.2f ms (%s)%n",
+					all / 1e6, stopped / 1e6, first.classes);
+		}
+
+		stream(Long.parseLong(args.length > 2 ? args[2] : STREAMED) * 1024L);
+	}
+
+	static Package parse(File x, boolean iterative, boolean packed, ParseListener listener) {
+		ErrorReporter reporter = new ErrorReporter();
+		Parser parser = new Parser(new Scanner(new SourceFile(x.getPath(), reporter), reporter),
+				reporter, false, packed);
+		parser.setIterative(iterative);
+		parser.setListener(listener);
+		return parser.parse();
+	}
+
+	static long time(File f, Summary listener) {
+		long t0 = System.nanoTime();
+		Package p = parse(f, false, false, listener);
+		long t = System.nanoTime() - t0;
+		if ((p == null) != (listener.stopAfter > 0))
+			throw new IllegalStateException("parse() returned " + p);
+		return t;
+	}
+
+	// bytes of the generated program go through a pipe into the parser
+	static void stream(final long bytes) throws IOException {
+		final Pipe pipe = Pipe.open();
+		Thread writer = new Thread() {
+			public void run() {
+				try {
+					SourceGenerator.write(Channels.newWriter(pipe.sink(), "US-ASCII"), bytes, false);
+				} catch (IOException e) {
+					throw new RuntimeException(e);
+				}
+			}
+		};
+		writer.start();
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new StreamSourceFile(pipe.source(), reporter), reporter);
+		Parser parser = new Parser(new TokenBuffer(scanner, STREAM_TOKEN_WINDOW), reporter);
+		Counter counter = new Counter();
+		parser.setListener(counter);
+		parser.parse();
+		pipe.source().close();
+		System.out.println("streamed " + bytes + " bytes: " + counter.classes + " classes, "
+				+ counter.methods + " methods, " + reporter.getNumErrors() + " errors");
+	}
+
+	/*
+	 * per class its name, fields and methods, each method with its
+	 * count of statements and references
+	 */
+	static List<String> summary(Package p) {
+		List<String> classes = new ArrayList<String>();
+		for (ClassDecl cd : p.classDeclList) {
+			List<String> fields = new ArrayList<String>();
+			for (FieldDecl fd : cd.fieldDeclList)
+				fields.add(fd.name);
+			List<String> methods = new ArrayList<String>();
+			for (MethodDecl md : cd.methodDeclList)
+				methods.add(method(md.name, count(md, Statement.class), count(md, Reference.class)));
+			classes.add(cd.name + " fields " + fields + " methods " + methods);
+		}
+		return classes;
+	}
+
+	static String method(String name, int statements, int references) {
+		return name + " " + statements + "/" + references;
+	}
+
+	// nodes of kind under md, only the outermost of nested References
+	static int count(MethodDecl md, Class<?> kind) {
+		int count = 0;
+		ArrayDeque<Object> todo = new ArrayDeque<Object>();
+		ArrayDeque<Object> parents = new ArrayDeque<Object>();
+		for (Statement s : md.statementList) {
+			todo.push(s);
+			parents.push(md);
+		}
+		if (md.returnExp != null) {
+			todo.push(md.returnExp);
+			parents.push(md);
+		}
+		while (!todo.isEmpty()) {
+			Object node = todo.pop();
+			Object parent = parents.pop();
+			if (kind.isInstance(node) && !(parent instanceof Reference && node instanceof Reference))
+				count++;
+			for (Field field : node.getClass().getFields()) {
+				Object value;
+				try {
+					value = field.get(node);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+				if (value instanceof AST) {
+					todo.push(value);
+					parents.push(node);
+				} else if (value instanceof Iterable) {
+					for (Object element : (Iterable<?>) value) {
+						if (element != null) {
+							todo.push(element);
+							parents.push(node);
+						}
+					}
+				}
+			}
+		}
+		return count;
+	}
+
+	// the same summary from the events
+	static class Summary extends ParseListener {
+		List<String> classes = new ArrayList<String>();
+		// where each class was entered, every field of the position
+		List<String> positions = new ArrayList<String>();
+		int stopAfter = 0;
+		String name;
+		List<String> fields;
+		List<String> methods;
+		int statements;
+		int references;
+
+		public void enterClass(String name, SourcePosition pos) {
+			positions.add(pos.linestart + "," + pos.linefinish + " " + pos.start + "," + pos.finish);
+			this.name = name;
+			fields = new ArrayList<String>();
+			methods = new ArrayList<String>();
+		}
+
+		public void exitClass(ClassDecl cd) {
+			classes.add((cd.name.equals(name) ? name : cd.name + " entered as " + name)
+					+ " fields " + fields + " methods " + methods);
+			if (classes.size() == stopAfter)
+				stop();
+		}
+
+		public void field(FieldDecl fd) {
+			fields.add(fd.name);
+		}
+
+		public void enterMethod(FieldDecl signature, ParameterDeclList parameters) {
+			statements = 0;
+			references = 0;
+		}
+
+		public void exitMethod(MethodDecl md) {
+			methods.add(method(md.name, statements, references));
+		}
+
+		public void statement(Statement s) {
+			statements++;
+		}
+
+		public void reference(Reference r) {
+			references++;
+		}
+	}
+
+	// counts the declarations, sampling the heap at every power of 2 classes
+	static class Counter extends ParseListener {
+		long classes = 0;
+		long methods = 0;
+
+		public void exitClass(ClassDecl cd) {
+			classes++;
+			if (classes >= 256 && Long.bitCount(classes) == 1)
+				System.out.printf("%9d classes: %6d KB used%n", classes,
+						HeapBenchmark.usedAfterGC() / 1024);
+		}
+
+		public void exitMethod(MethodDecl md) {
+			methods++;
+		}
+	}
+}
@@ -0,0 +1,106 @@
+package tester;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.lang.management.ManagementFactory;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AssignStmt;
+import miniJava.AbstractSyntaxTrees.BinaryExpr;
+import miniJava.AbstractSyntaxTrees.Expression;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Parse time and allocation of long operator chains, per operator.
+ * Each run parses OPERATORS operators split into statements of
+ * `length` operators, either arithmetic (a + b * c - d / e ...) or
+ * boolean (a < b && c == d || e ...). The depth printed is how deep
+ * the first statement's BinaryExpr tree is down its left and right
+ * edges, a left associative chain leans left. Each is run with the
+ * recursive and with the iterative Parser.
+ */
+public class ExpressionBenchmark {
+
+	static final int ROUNDS = 5;
+	static final int OPERATORS = 1 << 18;
+	static final int[] LENGTHS = { 4, 64, 1024, 65536 };
+	static final String[] ARITHMETIC = { "+", "*", "-", "/" };
+	static final String[] BOOLEAN = { "<", "&&", "==", "||", ">=", "!=" };
+
+	static final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws IOException {
+		for (int length : LENGTHS) {
+			for (boolean iterative : new boolean[] { false, true }) {
+				run("arithmetic", ARITHMETIC, length, iterative);
+				run("boolean", BOOLEAN, length, iterative);
+			}
+		}
+	}
+
+	static void run(String name, String[] ops, int length, boolean iterative) throws IOException {
+		File f = chains(ops, length, OPERATORS / length);
+		name = name + (iterative ? " iterative" : " recursive");
+		try {
+			Package ast = parse(f, iterative);
+			long best = Long.MAX_VALUE;
+			long allocated = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				long a0 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+				long t0 = System.nanoTime();
+				ast = parse(f, iterative);
+				best = Math.min(best, System.nanoTime() - t0);
+				allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - a0;
+			}
+			Expression e = ((AssignStmt) ast.classDeclList.get(0).methodDeclList.get(0)
+					.statementList.get(0)).val;
+			System.out.printf("%-20s chains of %5d: %7.1f ns %6.1f bytes per operator   depth left %5d right %5d%n",
+					name, length, (double) best / OPERATORS, (double) allocated / OPERATORS,
+					depth(e, true), depth(e, false));
+		} catch (StackOverflowError soe) {
+			System.out.printf("%-20s chains of %5d: StackOverflowError%n", name, length);
+		}
+	}
+
+	static int depth(Expression e, boolean left) {
+		int d = 0;
+		while (e instanceof BinaryExpr) {
+			BinaryExpr b = (BinaryExpr) e;
+			e = left ? b.left : b.right;
+			d++;
+		}
+		return d;
+	}
+
+	static File chains(String[] ops, int length, int count) throws IOException {
+		File f = File.createTempFile("chains", ".java");
+		f.deleteOnExit();
+		Writer w = new FileWriter(f);
+		try {
+			w.write("class Chains {\n\tvoid run() {\n");
+			for (int s = 0; s < count; s++) {
+				w.write("\t\tx = a0");
+				for (int i = 1; i <= length; i++)
+					w.write(" " + ops[i % ops.length] + " a" + (i % 10));
+				w.write(";\n");
+			}
+			w.write("\t}\n}\n");
+		} finally {
+			w.close();
+		}
+		return f;
+	}
+
+	static Package parse(File f, boolean iterative) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new SourceFile(f.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter);
+		parser.setIterative(iterative);
+		return parser.parse();
+	}
+}
@@ -0,0 +1,96 @@
+package tester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.ASTDisplay;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.FlatTreeFile;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.ParseListener;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Checks that ASTDisplay, positions shown, prints a FlatTree's view()
+ * exactly as it prints the Package the FlatTree was made from, for
+ * every file in tests/pa1_tests that parses without errors and for a
+ * generated program of SIZE KB, with SourcePosition objects and with
+ * packed positions. The FlatTree is made from the Package and also
+ * class by class from a ParseListener, and each is written to a
+ * .mjast file and mapped back, which must display the same too.
+ * Optional arguments: a different directory of sources, SIZE.
+ */
+public class FlatTreeCheck {
+
+	static final String SIZE = "256";
+
+	public static void main(String[] args) throws IOException {
+		File mjast = File.createTempFile("check", FlatTreeFile.EXTENSION);
+		mjast.deleteOnExit();
+		File testDir = args.length > 0 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		List<File> files = new ArrayList<File>(Arrays.asList(testDir.listFiles()));
+		files.add(LexerBenchmark.input(args.length > 1 ? args[1] : SIZE));
+		ASTDisplay.showPosition = true;
+		int failures = 0;
+		int checked = 0;
+		for (File x : files) {
+			for (boolean packed : new boolean[] { false, true }) {
+				ErrorReporter reporter = new ErrorReporter();
+				Package ast = parse(x, packed, reporter, null);
+				if (reporter.hasErrors())
+					continue;
+				String expected = show(ast);
+				final FlatTree streamed = new FlatTree();
+				Package empty = parse(x, packed, new ErrorReporter(), new ParseListener() {
+					public void exitClass(ClassDecl cd) {
+						streamed.add(cd);
+					}
+				});
+				streamed.finish(empty);
+				checked++;
+				for (FlatTree flat : new FlatTree[] { FlatTree.of(ast), streamed }) {
+					FlatTreeFile.write(flat, mjast);
+					FlatTree mapped = FlatTreeFile.map(mjast);
+					for (FlatTree t : new FlatTree[] { flat, mapped }) {
+						if (!show(t.view()).equals(expected)) {
+							System.out.println(x.getName() + ": " + (packed ? "packed " : "")
+									+ (flat == streamed ? "streamed " : "")
+									+ (t == mapped ? "mapped " : "") + "FlatTree displays differently");
+							failures++;
+						}
+					}
+				}
+			}
+		}
+		System.out.println(checked + " trees checked, " + failures + " failures.");
+	}
+
+	static Package parse(File x, boolean packed, ErrorReporter reporter, ParseListener listener) {
+		Scanner scanner = new Scanner(new SourceFile(x.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter, false, packed);
+		parser.setListener(listener);
+		return parser.parse();
+	}
+
+	// what ASTDisplay.showTree() prints
+	static String show(Package ast) {
+		PrintStream out = System.out;
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		System.setOut(new PrintStream(bytes));
+		try {
+			new ASTDisplay().showTree(ast);
+		} finally {
+			System.setOut(out);
+		}
+		return bytes.toString();
+	}
+}
@@ -0,0 +1,91 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.FlatTreeFile;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Getting an AST back from a .mjast file against scanning and parsing
+ * the source again. The source is parsed once, the FlatTree of it
+ * written to a temp .mjast file, then, best of ROUNDS after a warm-up:
+ * reading and parsing the source, mapping the file, mapping it and
+ * decoding the last class only, as a tool after one class would, and
+ * mapping it and decoding every class of its view into AST objects,
+ * as a Visitor going over the whole package would.
+ * Pass a .java file, or a size in KB to benchmark a generated source.
+ */
+public class FlatTreeFileBenchmark {
+
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "16384");
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+		File mjast = File.createTempFile("bench", FlatTreeFile.EXTENSION);
+		mjast.deleteOnExit();
+		FlatTree flat = FlatTree.of(parse(f));
+		long t0 = System.nanoTime();
+		FlatTreeFile.write(flat, mjast);
+		flat = null;
+		System.out.printf("written: %s (%d bytes) in %.1f ms%n", mjast, mjast.length(),
+				(System.nanoTime() - t0) / 1e6);
+
+		for (int pass = 0; pass < 2; pass++) {
+			long parse = Long.MAX_VALUE, map = Long.MAX_VALUE, one = Long.MAX_VALUE;
+			long decode = Long.MAX_VALUE;
+			long classes = 0;
+			for (int i = 0; i < ROUNDS; i++) {
+				t0 = System.nanoTime();
+				Package ast = parse(f);
+				parse = Math.min(parse, System.nanoTime() - t0);
+				classes = ast.classDeclList.size();
+
+				t0 = System.nanoTime();
+				FlatTree tree = FlatTreeFile.map(mjast);
+				map = Math.min(map, System.nanoTime() - t0);
+
+				t0 = System.nanoTime();
+				Package view = FlatTreeFile.map(mjast).view();
+				if (view.classDeclList.get((int) classes - 1) == null)
+					throw new IllegalStateException("no last class in " + mjast);
+				one = Math.min(one, System.nanoTime() - t0);
+
+				t0 = System.nanoTime();
+				if (decodeAll(FlatTreeFile.map(mjast)) != classes)
+					throw new IllegalStateException("classes lost in " + mjast);
+				decode = Math.min(decode, System.nanoTime() - t0);
+				if (tree.size() == 0)
+					System.out.println(tree);
+			}
+			if (pass == 0)
+				continue;
+			System.out.printf("parse the source   %8.1f ms%n", parse / 1e6);
+			System.out.printf("map the file       %8.3f ms%n", map / 1e6);
+			System.out.printf("map and decode one %8.3f ms%n", one / 1e6);
+			System.out.printf("map and decode all %8.1f ms, %.1fx faster than parsing%n",
+					decode / 1e6, (double) parse / decode);
+		}
+	}
+
+	static Package parse(File f) {
+		ErrorReporter reporter = new ErrorReporter();
+		return new Parser(new Scanner(new SourceFile(f.getPath(), reporter), reporter),
+				reporter).parse();
+	}
+
+	// classes decoded, each dropped once the next is got
+	static long decodeAll(FlatTree tree) {
+		long classes = 0;
+		for (ClassDecl cd : tree.view().classDeclList)
+			if (cd != null)
+				classes++;
+		return classes;
+	}
+}
@@ -0,0 +1,149 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.ClassDecl;
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.SharedLeaves;
+import miniJava.SyntacticAnalyzer.ParseListener;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Retained heap of a parsed AST, per KB of source, with SourcePosition
+ * objects and with packed positions (the LineIndex is counted), then
+ * per node, with the bytes allocated while parsing per node. The
+ * allocation takes in the Scanner's, which is the same whatever the
+ * Parser does. Each is measured again with its BaseTypes, literals
+ * and operators shared (see SharedLeaves), the tree's LeafPositions
+ * counted. Last the same for a FlatTree with packed positions, made
+ * class by class from a ParseListener, per node of the objects.
+ * Pass a .java file, or a size in KB to measure a generated source.
+ */
+public class HeapBenchmark {
+
+	static final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "4096");
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+
+		measure("SourcePosition", f, false, false);
+		measure("shared leaves", f, false, true);
+		measure("packed positions", f, true, false);
+		measure("packed, shared", f, true, true);
+		measureFlat(f);
+	}
+
+	static void measure(String name, File f, boolean packed, boolean share) {
+		// warm up so class loading does not count
+		parse(f, packed, share);
+
+		long before = usedAfterGC();
+		long a0 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		Package ast = parse(f, packed, share);
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - a0;
+		long after = usedAfterGC();
+
+		long retained = after - before;
+		long nodes = nodes(ast);
+		System.out.printf("%-18s retained AST heap: %d bytes, %.1f bytes per KB of source%n",
+				name, retained, retained / (f.length() / 1024.0));
+		System.out.printf("%-18s %d nodes: %.1f bytes retained, %.1f bytes allocated per node%n",
+				"", nodes, (double) retained / nodes, (double) allocated / nodes);
+		// keep the tree reachable until after the measurement
+		if (ast.classDeclList.size() < 0)
+			System.out.println(ast);
+	}
+
+	static void measureFlat(File f) {
+		parseFlat(f);
+
+		long before = usedAfterGC();
+		long a0 = threads.getThreadAllocatedBytes(Thread.currentThread().getId());
+		FlatTree flat = parseFlat(f);
+		long allocated = threads.getThreadAllocatedBytes(Thread.currentThread().getId()) - a0;
+		long after = usedAfterGC();
+
+		long retained = after - before;
+		long nodes = nodes(flat.view());
+		System.out.printf("%-18s retained AST heap: %d bytes, %.1f bytes per KB of source%n",
+				"FlatTree", retained, retained / (f.length() / 1024.0));
+		System.out.printf("%-18s %d nodes: %.1f bytes retained, %.1f bytes allocated per node%n",
+				"", nodes, (double) retained / nodes, (double) allocated / nodes);
+		if (flat.size() < 0)
+			System.out.println(flat);
+	}
+
+	static FlatTree parseFlat(File f) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new SourceFile(f.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter, false, true);
+		final FlatTree flat = new FlatTree();
+		parser.setListener(new ParseListener() {
+			public void exitClass(ClassDecl cd) {
+				flat.add(cd);
+			}
+		});
+		flat.finish(parser.parse());
+		return flat;
+	}
+
+	static Package parse(File f, boolean packed, boolean share) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new SourceFile(f.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter, false, packed);
+		if (share)
+			parser.setLeaves(new SharedLeaves());
+		return parser.parse();
+	}
+
+	// AST nodes reachable through public fields and lists
+	static long nodes(AST root) {
+		long count = 0;
+		ArrayDeque<Object> todo = new ArrayDeque<Object>();
+		todo.push(root);
+		while (!todo.isEmpty()) {
+			Object node = todo.pop();
+			count++;
+			for (Field field : node.getClass().getFields()) {
+				Object value;
+				try {
+					value = field.get(node);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+				if (value instanceof AST)
+					todo.push(value);
+				else if (value instanceof Iterable)
+					for (Object element : (Iterable<?>) value)
+						if (element != null)
+							todo.push(element);
+			}
+		}
+		return count;
+	}
+
+	static long usedAfterGC() {
+		Runtime rt = Runtime.getRuntime();
+		long used = Long.MAX_VALUE;
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+			try {
+				Thread.sleep(50);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+		}
+		return used;
+	}
+}
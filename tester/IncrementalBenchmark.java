@@ -0,0 +1,184 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Random;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.IncrementalParser;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.SourcePosition;
+
+/* Cost of IncrementalParser.edit() after an edit inside one method,
+ * against scanning and parsing the edited file again from scratch.
+ * Makes EDITS edits one after another, each at the first statement of
+ * a random method: a statement typed on a line of its own (every line
+ * after it moves down), a constant changed on the line (the columns
+ * after it move), or a stray ';' typed, a syntax error taken out again
+ * by the next edit. Every result is checked against the parse from
+ * scratch, node by node, positions and errors included.
+ * Pass a .java file from SourceGenerator, or a size in KB (default
+ * 1024, about 40k lines).
+ */
+public class IncrementalBenchmark {
+
+	static final int EDITS = 200;
+	static final String STATEMENT = "\t\tint x = a + b * ";
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "1024");
+		ErrorReporter reporter = new ErrorReporter();
+		IncrementalParser parser = new IncrementalParser(new SourceFile(f.getPath(), reporter));
+		System.out.println("input: " + f + " (" + f.length() + " bytes, "
+				+ parser.getPackage().classDeclList.size() + " classes)");
+
+		Random rnd = new Random(42);
+		long[] incremental = new long[EDITS];
+		long[] full = new long[EDITS];
+		long reused = 0;
+		long parsed = 0;
+		int mismatches = 0;
+		int strayAt = -1;
+		for (int e = 0; e < EDITS; e++) {
+			SourceFile src = parser.getSourceFile();
+			int offset;
+			int removed = 0;
+			String inserted = "";
+			if (strayAt >= 0) {
+				offset = strayAt;
+				removed = 1;
+				strayAt = -1;
+			} else {
+				int at = find(src, STATEMENT, rnd.nextInt(src.length()));
+				switch (rnd.nextInt(5)) {
+				case 0:
+				case 1:
+					offset = at;
+					inserted = "\t\tx = x + " + rnd.nextInt(100) + ";\n";
+					break;
+				case 2:
+				case 3:
+					offset = at + STATEMENT.length();
+					while (Character.isDigit(src.charAt(offset + removed)))
+						removed++;
+					inserted = String.valueOf(rnd.nextInt(1000));
+					break;
+				default:
+					offset = at + STATEMENT.length();
+					inserted = ";";
+					strayAt = offset;
+				}
+			}
+
+			long t0 = System.nanoTime();
+			Package edited = parser.edit(offset, removed, inserted);
+			incremental[e] = System.nanoTime() - t0;
+
+			ErrorReporter fullErrors = new ErrorReporter();
+			t0 = System.nanoTime();
+			Package expected = new Parser(new Scanner(parser.getSourceFile().duplicate(),
+					fullErrors), fullErrors).parse();
+			full[e] = System.nanoTime() - t0;
+			reused += parser.reused();
+			parsed += parser.parsed();
+
+			String difference = difference(edited, expected);
+			if (difference == null && !parser.getReporter().errors.equals(fullErrors.errors))
+				difference = "errors " + parser.getReporter().errors + " instead of " + fullErrors.errors;
+			if (difference != null) {
+				if (mismatches == 0)
+					System.out.println("edit " + e + " at " + offset + ": " + difference);
+				mismatches++;
+			}
+		}
+
+		// the first edits run before the JIT has compiled anything
+		int warm = EDITS / 4;
+		RelexBenchmark.report("incremental", Arrays.copyOfRange(incremental, warm, EDITS));
+		RelexBenchmark.report("from scratch", Arrays.copyOfRange(full, warm, EDITS));
+		System.out.printf("%.1f classes and members kept, %.1f parsed per edit%n",
+				(double) reused / EDITS, (double) parsed / EDITS);
+		System.out.println(mismatches + " mismatches in " + EDITS + " edits.");
+	}
+
+	// the first offset of s at or after from, going round to the start
+	static int find(SourceFile src, String s, int from) {
+		for (int i = from; ; i = (i + 1) % src.length()) {
+			int j = 0;
+			while (j < s.length() && src.charAt(i + j) == s.charAt(j))
+				j++;
+			if (j == s.length())
+				return i;
+		}
+	}
+
+	static final Map<Class<?>, Field[]> fields = new HashMap<Class<?>, Field[]>();
+
+	/*
+	 * where two trees first differ, walking both in step, or null if
+	 * they have the same nodes, plain values and positions
+	 */
+	static String difference(AST a, AST b) {
+		ArrayDeque<Object[]> todo = new ArrayDeque<Object[]>();
+		todo.push(new Object[] { a, b });
+		while (!todo.isEmpty()) {
+			Object[] next = todo.pop();
+			Object x = next[0];
+			Object y = next[1];
+			if (x == null || y == null) {
+				if (x != y)
+					return "null against " + (x != null ? x : y);
+				continue;
+			}
+			if (x.getClass() != y.getClass())
+				return x + " against " + y;
+			if (x instanceof AST && !samePosition(((AST) x).posn, ((AST) y).posn))
+				return x + " at " + ((AST) x).posn + " against " + ((AST) y).posn;
+			Field[] fs = fields.get(x.getClass());
+			if (fs == null) {
+				fs = x.getClass().getFields();
+				fields.put(x.getClass(), fs);
+			}
+			for (Field field : fs) {
+				Object u;
+				Object v;
+				try {
+					u = field.get(x);
+					v = field.get(y);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+				if (u instanceof AST || v instanceof AST) {
+					todo.push(new Object[] { u, v });
+				} else if (u instanceof Iterable) {
+					Iterator<?> i = ((Iterable<?>) u).iterator();
+					Iterator<?> j = ((Iterable<?>) v).iterator();
+					while (i.hasNext() && j.hasNext())
+						todo.push(new Object[] { i.next(), j.next() });
+					if (i.hasNext() || j.hasNext())
+						return x + ": " + field.getName() + " differ in length";
+				} else if (u instanceof SourcePosition) {
+					// posn, compared above
+				} else if (u == null ? v != null : !u.equals(v)) {
+					return x + ": " + field.getName() + " " + u + " against " + v;
+				}
+			}
+		}
+		return null;
+	}
+
+	static boolean samePosition(SourcePosition p, SourcePosition q) {
+		return p.linestart == q.linestart && p.linefinish == q.linefinish
+				&& p.start == q.start && p.finish == q.finish;
+	}
+}
@@ -0,0 +1,611 @@
+package tester;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import miniJava.SyntacticAnalyzer.Token;
+
+/* Generates miniJava/SyntacticAnalyzer/ParseTable.java, the LL(1)
+ * tables and driver of the Parser's table driven mode, from the
+ * grammar in grammarv2.txt. Run it from the repository root after
+ * changing the grammar:
+ *
+ *     java tester.LL1Generator [grammar] [output]
+ *
+ * The grammar is read the way it is written:
+ *   Name -> alternatives, continued on the following lines
+ *   | * ? and ( ) for alternatives, repetition, options and groups
+ *   // comment lines
+ *   the last definition of a name is the one used, and only names
+ *   reachable from the first rule are generated
+ * A name that is never defined is a terminal: a reserved word, id,
+ * num or EOT, as are the operators and punctuation, spelled as in
+ * Token. $ is the end of the input (EOT). * and ? are postfix only
+ * when they are attached to what they follow, otherwise they are
+ * terminals. Parentheses group only when the group holds a | or is
+ * followed by * or ?; any other ( ) are the tokens. @name is an
+ * action, passed to Parser.reduce() when the driver reaches it.
+ *
+ * Repetitions, options and groups become nameless nonterminals.
+ * FIRST and FOLLOW are computed over the resulting productions and
+ * each production gets a PREDICT set, a long with bit t set for
+ * token type t. Where two alternatives predict the same token the
+ * first one listed keeps it and a conflict is reported: that makes
+ * repetitions greedy and an else belong to the nearest if.
+ */
+public class LL1Generator {
+
+	static final String GRAMMAR = "grammarv2.txt";
+	static final String OUTPUT = "miniJava/SyntacticAnalyzer/ParseTable.java";
+
+	// symbol numbers in the tables: token types, then these
+	static final int NONTERMINAL = 64;
+	static final int ACTION = 1024;
+
+	public static void main(String[] args) throws IOException {
+		String grammar = args.length > 0 ? args[0] : GRAMMAR;
+		String output = args.length > 1 ? args[1] : OUTPUT;
+		LL1Generator g = new LL1Generator();
+		g.read(new String(Files.readAllBytes(new File(grammar).toPath()), StandardCharsets.UTF_8));
+		g.analyze();
+		Writer w = new FileWriter(output);
+		try {
+			g.write(w, new File(grammar).getName());
+		} finally {
+			w.close();
+		}
+		System.out.println(output + ": " + g.named.size() + " nonterminals ("
+				+ g.nonterminals.size() + " with the nameless ones), "
+				+ g.lhs.size() + " productions, " + g.actions.size() + " actions, "
+				+ g.conflicts + " conflicts resolved");
+	}
+
+	/*
+	 * reading the grammar
+	 */
+
+	static class Symbol {
+		String text;
+		boolean spaced;		// whitespace before it
+		int line;
+
+		Symbol(String text, boolean spaced, int line) {
+			this.text = text;
+			this.spaced = spaced;
+			this.line = line;
+		}
+	}
+
+	// multi-char spellings first, so the longest one matches
+	static final String[] PUNCTUATION = { "->", "==", "!=", "<=", ">=", "&&", "||",
+			"<", ">", "!", "+", "-", "*", "/", "=", ".", ",", ";",
+			"(", ")", "[", "]", "{", "}", "|", "?", "$" };
+
+	Map<String, List<Symbol>> rules = new LinkedHashMap<String, List<Symbol>>();
+	Map<String, Integer> terminals = new HashMap<String, Integer>();
+
+	List<String> nonterminals = new ArrayList<String>();
+	List<String> named = new ArrayList<String>();
+	Map<String, Integer> numbers = new HashMap<String, Integer>();
+	List<String> actions = new ArrayList<String>();
+	List<Integer> lhs = new ArrayList<Integer>();
+	List<int[]> rhs = new ArrayList<int[]>();
+	int conflicts = 0;
+
+	LL1Generator() {
+		for (int t = Token.GREATER; t <= Token.RCURLY; t++)
+			terminals.put(Token.spell(t), t);
+		terminals.put("id", Token.ID);
+		terminals.put("num", Token.INTLITERAL);
+		terminals.put("EOT", Token.EOT);
+		terminals.put("$", Token.EOT);
+	}
+
+	void read(String text) {
+		List<Symbol> symbols = new ArrayList<Symbol>();
+		int line = 1;
+		boolean spaced = true;
+		int i = 0;
+		while (i < text.length()) {
+			char c = text.charAt(i);
+			if (c == '\n')
+				line++;
+			if (Character.isWhitespace(c)) {
+				spaced = true;
+				i++;
+			} else if (text.startsWith("//", i)) {
+				while (i < text.length() && text.charAt(i) != '\n')
+					i++;
+			} else {
+				int j = i + 1;
+				if (c == '@' || Character.isLetterOrDigit(c) || c == '_') {
+					while (j < text.length() && (Character.isLetterOrDigit(text.charAt(j))
+							|| text.charAt(j) == '_'))
+						j++;
+				} else {
+					j = i;
+					for (String p : PUNCTUATION) {
+						if (text.startsWith(p, i)) {
+							j = i + p.length();
+							break;
+						}
+					}
+					if (j == i)
+						throw error(line, "unexpected '" + c + "'");
+				}
+				symbols.add(new Symbol(text.substring(i, j), spaced, line));
+				spaced = false;
+				i = j;
+			}
+		}
+		// a rule runs from its "Name ->" up to the next one
+		List<Integer> heads = new ArrayList<Integer>();
+		for (int k = 0; k + 1 < symbols.size(); k++) {
+			if (symbols.get(k + 1).text.equals("->"))
+				heads.add(k);
+		}
+		for (int h = 0; h < heads.size(); h++) {
+			int k = heads.get(h);
+			int end = h + 1 < heads.size() ? heads.get(h + 1) : symbols.size();
+			rules.put(symbols.get(k).text, symbols.subList(k + 2, end));
+		}
+		if (rules.isEmpty())
+			throw error(1, "no rules");
+	}
+
+	static RuntimeException error(int line, String msg) {
+		return new IllegalArgumentException("grammar line " + line + ": " + msg);
+	}
+
+	int nonterminal(String name, boolean isNamed) {
+		Integer n = numbers.get(name);
+		if (n == null) {
+			n = nonterminals.size();
+			nonterminals.add(name);
+			numbers.put(name, n);
+			if (isNamed)
+				named.add(name);
+		}
+		return n;
+	}
+
+	int helper(String owner) {
+		return nonterminal(owner + "$" + nonterminals.size(), false);
+	}
+
+	void production(int n, List<Integer> symbols) {
+		int[] r = new int[symbols.size()];
+		for (int i = 0; i < r.length; i++)
+			r[i] = symbols.get(i);
+		lhs.add(n);
+		rhs.add(r);
+	}
+
+	// turns the reachable rules into productions, the first rule's first
+	void analyze() {
+		String first = rules.keySet().iterator().next();
+		nonterminal(first, true);
+		// named nonterminals are numbered as they are reached
+		for (int k = 0; k < named.size(); k++) {
+			String name = named.get(k);
+			List<Symbol> body = rules.get(name);
+			for (List<Integer> alternative : alternatives(body, 0, body.size(), name))
+				production(numbers.get(name), alternative);
+		}
+		// productions grouped by nonterminal, in the order they were made
+		List<Integer> sortedLhs = new ArrayList<Integer>();
+		List<int[]> sortedRhs = new ArrayList<int[]>();
+		for (int n = 0; n < nonterminals.size(); n++) {
+			for (int p = 0; p < lhs.size(); p++) {
+				if (lhs.get(p) == n) {
+					sortedLhs.add(n);
+					sortedRhs.add(rhs.get(p));
+				}
+			}
+		}
+		lhs = sortedLhs;
+		rhs = sortedRhs;
+		computeSets();
+	}
+
+	List<List<Integer>> alternatives(List<Symbol> s, int from, int to, String owner) {
+		List<List<Integer>> alternatives = new ArrayList<List<Integer>>();
+		int depth = 0;
+		int start = from;
+		for (int i = from; i < to; i++) {
+			String t = s.get(i).text;
+			if (t.equals("("))
+				depth++;
+			else if (t.equals(")"))
+				depth--;
+			else if (t.equals("|") && depth == 0) {
+				alternatives.add(sequence(s, start, i, owner));
+				start = i + 1;
+			}
+		}
+		alternatives.add(sequence(s, start, to, owner));
+		return alternatives;
+	}
+
+	List<Integer> sequence(List<Symbol> s, int from, int to, String owner) {
+		List<Integer> symbols = new ArrayList<Integer>();
+		int i = from;
+		while (i < to) {
+			Symbol sym = s.get(i);
+			String t = sym.text;
+			if (t.equals("(") && isGroup(s, i, to)) {
+				int close = matching(s, i, to);
+				List<List<Integer>> inner = alternatives(s, i + 1, close, owner);
+				String postfix = postfix(s, close, to);
+				symbols.add(repeat(owner, inner, postfix));
+				i = close + (postfix != null ? 2 : 1);
+			} else if (t.startsWith("@")) {
+				String a = t.substring(1);
+				if (!actions.contains(a))
+					actions.add(a);
+				symbols.add(ACTION + actions.indexOf(a));
+				i++;
+			} else {
+				int symbol;
+				if (rules.containsKey(t))
+					symbol = NONTERMINAL + nonterminal(t, true);
+				else if (terminals.containsKey(t))
+					symbol = terminals.get(t);
+				else
+					throw error(sym.line, "'" + t + "' is neither defined nor a token");
+				String postfix = postfix(s, i, to);
+				if (postfix != null) {
+					List<List<Integer>> inner = new ArrayList<List<Integer>>();
+					List<Integer> one = new ArrayList<Integer>();
+					one.add(symbol);
+					inner.add(one);
+					symbol = repeat(owner, inner, postfix);
+				}
+				symbols.add(symbol);
+				i += postfix != null ? 2 : 1;
+			}
+		}
+		return symbols;
+	}
+
+	// a nameless nonterminal for (alternatives), (...)* or (...)?
+	int repeat(String owner, List<List<Integer>> alternatives, String postfix) {
+		int h = helper(owner);
+		for (List<Integer> a : alternatives) {
+			if ("*".equals(postfix))
+				a.add(NONTERMINAL + h);
+			production(h, a);
+		}
+		if (postfix != null)
+			production(h, new ArrayList<Integer>());
+		return NONTERMINAL + h;
+	}
+
+	// * or ? right after symbol i, with no space between
+	static String postfix(List<Symbol> s, int i, int to) {
+		if (i + 1 < to && !s.get(i + 1).spaced) {
+			String t = s.get(i + 1).text;
+			if (t.equals("*") || t.equals("?"))
+				return t;
+		}
+		return null;
+	}
+
+	static int matching(List<Symbol> s, int open, int to) {
+		int depth = 0;
+		for (int i = open; i < to; i++) {
+			String t = s.get(i).text;
+			if (t.equals("("))
+				depth++;
+			else if (t.equals(")") && --depth == 0)
+				return i;
+		}
+		throw error(s.get(open).line, "unbalanced (");
+	}
+
+	static boolean isGroup(List<Symbol> s, int open, int to) {
+		int close = matching(s, open, to);
+		if (postfix(s, close, to) != null)
+			return true;
+		int depth = 0;
+		for (int i = open + 1; i < close; i++) {
+			String t = s.get(i).text;
+			if (t.equals("("))
+				depth++;
+			else if (t.equals(")"))
+				depth--;
+			else if (t.equals("|") && depth == 0)
+				return true;
+		}
+		return false;
+	}
+
+	/*
+	 * FIRST, FOLLOW and PREDICT
+	 */
+
+	long[] first;
+	boolean[] nullable;
+	long[] follow;
+	long[] predict;
+
+	void computeSets() {
+		int n = nonterminals.size();
+		first = new long[n];
+		nullable = new boolean[n];
+		follow = new long[n];
+		follow[0] = 1L << Token.EOT;
+		boolean changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < lhs.size(); p++) {
+				int a = lhs.get(p);
+				int[] r = rhs.get(p);
+				long f = first(r, 0);
+				boolean e = nullable(r, 0);
+				if ((first[a] | f) != first[a] || (e && !nullable[a])) {
+					first[a] |= f;
+					nullable[a] |= e;
+					changed = true;
+				}
+			}
+		}
+		changed = true;
+		while (changed) {
+			changed = false;
+			for (int p = 0; p < lhs.size(); p++) {
+				int a = lhs.get(p);
+				int[] r = rhs.get(p);
+				for (int i = 0; i < r.length; i++) {
+					if (r[i] < NONTERMINAL || r[i] >= ACTION)
+						continue;
+					int b = r[i] - NONTERMINAL;
+					long f = first(r, i + 1) | (nullable(r, i + 1) ? follow[a] : 0);
+					if ((follow[b] | f) != follow[b]) {
+						follow[b] |= f;
+						changed = true;
+					}
+				}
+			}
+		}
+		predict = new long[lhs.size()];
+		long taken = 0;
+		for (int p = 0; p < lhs.size(); p++) {
+			int a = lhs.get(p);
+			if (p == 0 || lhs.get(p - 1) != a)
+				taken = 0;
+			int[] r = rhs.get(p);
+			predict[p] = first(r, 0) | (nullable(r, 0) ? follow[a] : 0);
+			long overlap = predict[p] & taken;
+			if (overlap != 0) {
+				conflicts++;
+				System.out.println("conflict in " + nonterminals.get(a) + " on "
+						+ spell(overlap) + ": kept by an earlier alternative than "
+						+ alternative(r));
+				predict[p] &= ~taken;
+			}
+			taken |= predict[p];
+		}
+	}
+
+	long first(int[] r, int from) {
+		long f = 0;
+		for (int i = from; i < r.length; i++) {
+			int s = r[i];
+			if (s >= ACTION)
+				continue;
+			if (s < NONTERMINAL)
+				return f | 1L << s;
+			f |= first[s - NONTERMINAL];
+			if (!nullable[s - NONTERMINAL])
+				return f;
+		}
+		return f;
+	}
+
+	boolean nullable(int[] r, int from) {
+		for (int i = from; i < r.length; i++) {
+			int s = r[i];
+			if (s < NONTERMINAL || (s < ACTION && !nullable[s - NONTERMINAL]))
+				return false;
+		}
+		return true;
+	}
+
+	static String spell(long set) {
+		StringBuilder sb = new StringBuilder();
+		for (int t = 0; t < 64; t++) {
+			if ((set >>> t & 1) != 0)
+				sb.append(sb.length() > 0 ? " " : "").append(t == Token.EOT ? "EOT" : Token.spell(t));
+		}
+		return sb.toString();
+	}
+
+	String alternative(int[] r) {
+		StringBuilder sb = new StringBuilder();
+		for (int s : r)
+			sb.append(sb.length() > 0 ? " " : "").append(symbolName(s));
+		return sb.length() > 0 ? sb.toString() : "(empty)";
+	}
+
+	String symbolName(int s) {
+		if (s >= ACTION)
+			return "@" + actions.get(s - ACTION);
+		if (s >= NONTERMINAL)
+			return nonterminals.get(s - NONTERMINAL);
+		return spell(1L << s);
+	}
+
+	/*
+	 * the generated file
+	 */
+
+	// RefArrID -> REF_ARR_ID
+	static String constant(String name) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < name.length(); i++) {
+			char c = name.charAt(i);
+			if (i > 0 && Character.isUpperCase(c) && Character.isLowerCase(name.charAt(i - 1)))
+				sb.append('_');
+			sb.append(Character.toUpperCase(c));
+		}
+		return sb.toString();
+	}
+
+	void write(Writer w, String grammar) throws IOException {
+		StringBuilder out = new StringBuilder();
+		out.append("/*\n");
+		out.append(" * miniJava ParseTable\n");
+		out.append(" *\n");
+		out.append(" * generated by tester.LL1Generator from " + grammar + ", do not edit.\n");
+		out.append(" *\n");
+		out.append(" * the LL(1) tables of the grammar and the driver that runs them for\n");
+		out.append(" * the Parser's table driven mode. nonterminals are numbered from\n");
+		out.append(" * NONTERMINAL and actions from ACTION, below them a symbol is a\n");
+		out.append(" * token type. a PREDICT set has bit t set for token type t.\n");
+		out.append(" */\n");
+		out.append("package miniJava.SyntacticAnalyzer;\n\n");
+		out.append("final class ParseTable {\n");
+		out.append("\tstatic final int NONTERMINAL = " + NONTERMINAL + ";\n");
+		out.append("\tstatic final int ACTION = " + ACTION + ";\n");
+		out.append("\t// ends a named nonterminal's phrase\n");
+		out.append("\tstatic final int END = ACTION - 1;\n\n");
+		out.append("\t// actions, as Parser.reduce() gets them\n");
+		for (int a = 0; a < actions.size(); a++)
+			out.append("\tstatic final int " + constant(actions.get(a)) + " = " + a + ";\n");
+		out.append("\n\t// FIRST sets of the named nonterminals\n");
+		for (String name : named) {
+			int n = numbers.get(name);
+			out.append("\t// " + spell(first[n]) + (nullable[n] ? ", or nothing" : "") + "\n");
+			out.append("\tstatic final long FIRST_" + constant(name) + " = 0x"
+					+ Long.toHexString(first[n]) + "L;\n");
+		}
+		out.append("\n\t// the name of each nonterminal, a nameless one has its rule's\n");
+		out.append("\tprivate static final String[] NAMES = {");
+		for (int n = 0; n < nonterminals.size(); n++) {
+			String name = nonterminals.get(n);
+			out.append(n % 6 == 0 ? "\n\t\t" : " ");
+			out.append("\"" + (name.indexOf('$') < 0 ? name : name.substring(0, name.indexOf('$'))) + "\",");
+		}
+		out.append("\n\t};\n\n");
+		out.append("\t// whether a nonterminal is named, and so keeps a mark\n");
+		out.append("\tprivate static final boolean[] MARKED = {");
+		for (int n = 0; n < nonterminals.size(); n++) {
+			out.append(n % 8 == 0 ? "\n\t\t" : " ");
+			out.append(named.contains(nonterminals.get(n))).append(",");
+		}
+		out.append("\n\t};\n\n");
+		int[] firstProduction = new int[nonterminals.size() + 1];
+		for (int p = lhs.size() - 1; p >= 0; p--)
+			firstProduction[lhs.get(p)] = p;
+		firstProduction[nonterminals.size()] = lhs.size();
+		out.append("\t// nonterminal n's productions are FIRST_PRODUCTION[n] up to FIRST_PRODUCTION[n + 1]\n");
+		appendInts(out, "FIRST_PRODUCTION", firstProduction);
+		out.append("\n\t// the tokens each production is chosen on\n");
+		out.append("\tprivate static final long[] PREDICT = {");
+		for (int p = 0; p < predict.length; p++) {
+			out.append(p % 4 == 0 ? "\n\t\t" : " ");
+			out.append("0x" + Long.toHexString(predict[p]) + "L,");
+		}
+		out.append("\n\t};\n\n");
+		int size = 0;
+		for (int[] r : rhs)
+			size += r.length;
+		int[] rhsStart = new int[rhs.size() + 1];
+		int[] symbols = new int[size];
+		int k = 0;
+		for (int p = 0; p < rhs.size(); p++) {
+			rhsStart[p] = k;
+			for (int s : rhs.get(p))
+				symbols[k++] = s;
+		}
+		rhsStart[rhs.size()] = k;
+		out.append("\t// production p is RHS[RHS_START[p]] up to RHS[RHS_START[p + 1]]\n");
+		appendInts(out, "RHS_START", rhsStart);
+		out.append("\n");
+		appendInts(out, "RHS", symbols);
+		out.append(DRIVER);
+		out.append("}\n");
+		w.write(out.toString());
+	}
+
+	static void appendInts(StringBuilder out, String name, int[] values) {
+		out.append("\tprivate static final int[] " + name + " = {");
+		for (int i = 0; i < values.length; i++) {
+			out.append(i % 12 == 0 ? "\n\t\t" : " ");
+			out.append(values[i]).append(",");
+		}
+		out.append("\n\t};\n");
+	}
+
+	static final String DRIVER = "\n"
+			+ "\t// the production of nonterminal n for token t, TABLE[n << 6 | t], or -1\n"
+			+ "\tprivate static final short[] TABLE = new short[NAMES.length << 6];\n\n"
+			+ "\tstatic {\n"
+			+ "\t\tjava.util.Arrays.fill(TABLE, (short) -1);\n"
+			+ "\t\t// an earlier production keeps a token, as in PREDICT\n"
+			+ "\t\tfor(int n = 0; n < NAMES.length; n++)\n"
+			+ "\t\t\tfor(int p = FIRST_PRODUCTION[n + 1] - 1; p >= FIRST_PRODUCTION[n]; p--)\n"
+			+ "\t\t\t\tfor(int t = 0; t < NONTERMINAL; t++)\n"
+			+ "\t\t\t\t\tif((PREDICT[p] >>> t & 1) != 0)\n"
+			+ "\t\t\t\t\t\tTABLE[n << 6 | t] = (short) p;\n"
+			+ "\t}\n"
+			+ "\n"
+			+ "\t/*\n"
+			+ "\t * a stack of symbols still to be parsed, starting from the first\n"
+			+ "\t * rule. a token is matched and shifted, a nonterminal replaced by\n"
+			+ "\t * the production TABLE has for the current token and an\n"
+			+ "\t * action run. a named nonterminal also keeps a mark of where its\n"
+			+ "\t * phrase starts until its END, for the actions to position what\n"
+			+ "\t * they build. stops at the first error, returning null\n"
+			+ "\t */\n"
+			+ "\tstatic Object parse(Parser parser) {\n"
+			+ "\t\tint[] stack = new int[256];\n"
+			+ "\t\tlong[] marks = new long[64];\n"
+			+ "\t\tint top = 0;\n"
+			+ "\t\tint mark = 0;\n"
+			+ "\t\tstack[top++] = NONTERMINAL;\n"
+			+ "\t\twhile(top > 0) {\n"
+			+ "\t\t\tint s = stack[--top];\n"
+			+ "\t\t\tif(s < NONTERMINAL) {\n"
+			+ "\t\t\t\tif(parser.lookahead() != s) {\n"
+			+ "\t\t\t\t\tparser.expected(s);\n"
+			+ "\t\t\t\t\treturn null;\n"
+			+ "\t\t\t\t}\n"
+			+ "\t\t\t\tparser.shift();\n"
+			+ "\t\t\t} else if(s < END) {\n"
+			+ "\t\t\t\tint n = s - NONTERMINAL;\n"
+			+ "\t\t\t\tint t = parser.lookahead();\n"
+			+ "\t\t\t\tint p = TABLE[n << 6 | t];\n"
+			+ "\t\t\t\tif(p < 0) {\n"
+			+ "\t\t\t\t\tparser.unexpected(NAMES[n]);\n"
+			+ "\t\t\t\t\treturn null;\n"
+			+ "\t\t\t\t}\n"
+			+ "\t\t\t\tif(top + RHS_START[p + 1] - RHS_START[p] + 1 > stack.length)\n"
+			+ "\t\t\t\t\tstack = java.util.Arrays.copyOf(stack, stack.length * 2);\n"
+			+ "\t\t\t\tif(MARKED[n]) {\n"
+			+ "\t\t\t\t\tif(mark == marks.length)\n"
+			+ "\t\t\t\t\t\tmarks = java.util.Arrays.copyOf(marks, mark * 2);\n"
+			+ "\t\t\t\t\tmarks[mark++] = parser.mark();\n"
+			+ "\t\t\t\t\tstack[top++] = END;\n"
+			+ "\t\t\t\t}\n"
+			+ "\t\t\t\tfor(int i = RHS_START[p + 1] - 1; i >= RHS_START[p]; i--)\n"
+			+ "\t\t\t\t\tstack[top++] = RHS[i];\n"
+			+ "\t\t\t} else if(s == END) {\n"
+			+ "\t\t\t\tmark--;\n"
+			+ "\t\t\t} else {\n"
+			+ "\t\t\t\tparser.reduce(s - ACTION, marks[mark - 1]);\n"
+			+ "\t\t\t}\n"
+			+ "\t\t}\n"
+			+ "\t\treturn parser.result();\n"
+			+ "\t}\n";
+}
@@ -0,0 +1,142 @@
+package tester;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.ParallelScanner;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.StreamSourceFile;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Throughput numbers for the front end of the lexer.
+ * Pass a .java file, or a size in KB to benchmark a generated source
+ * ("commented:<KB>" for a comment heavy one).
+ */
+public class LexerBenchmark {
+
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		File f = input(args.length > 0 ? args[0] : "4096");
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+
+		report("FileInputStream.read()", f.length(), new Run() {
+			long run(File f) throws IOException { return readPerByte(f); }
+		}, f);
+		report("SourceFile.getSource()", f.length(), new Run() {
+			long run(File f) { return readSourceFile(f); }
+		}, f);
+		report("Scanner.scan()", f.length(), new Run() {
+			long run(File f) { return scanAll(f, false); }
+		}, f);
+		report("Scanner.scan() [table]", f.length(), new Run() {
+			long run(File f) { return scanAll(f, true); }
+		}, f);
+		report("TokenBuffer", f.length(), new Run() {
+			long run(File f) { return bufferAll(f); }
+		}, f);
+		report("TokenBuffer [stream]", f.length(), new Run() {
+			long run(File f) throws IOException { return streamAll(f); }
+		}, f);
+		for (int threads = 1; threads <= 8; threads *= 2) {
+			final ForkJoinPool pool = new ForkJoinPool(threads);
+			report("ParallelScanner, " + threads + " threads", f.length(), new Run() {
+				long run(File f) { return parallelAll(f, pool); }
+			}, f);
+			pool.shutdown();
+		}
+	}
+
+	static File input(String arg) throws IOException {
+		if (arg.endsWith(".java") || arg.endsWith(".mjava"))
+			return new File(arg);
+		if (arg.startsWith("commented:"))
+			return SourceGenerator.temp(Long.parseLong(arg.substring(10)) * 1024L, true);
+		return SourceGenerator.temp(Long.parseLong(arg) * 1024L);
+	}
+
+	static abstract class Run {
+		abstract long run(File f) throws IOException;
+	}
+
+	/*
+	 * runs one warm up pass and then ROUNDS timed passes,
+	 * printing the best bytes/sec seen
+	 */
+	static void report(String name, long bytes, Run r, File f) throws IOException {
+		long units = r.run(f);
+		long best = Long.MAX_VALUE;
+		for (int i = 0; i < ROUNDS; i++) {
+			long t0 = System.nanoTime();
+			units = r.run(f);
+			best = Math.min(best, System.nanoTime() - t0);
+		}
+		double secs = best / 1e9;
+		System.out.printf("%-28s %10.1f MB/s %14.0f units/s  (%d units)%n",
+				name, bytes / secs / (1 << 20), units / secs, units);
+	}
+
+	// the old SourceFile behaviour: one read() call per character
+	static long readPerByte(File f) throws IOException {
+		FileInputStream in = new FileInputStream(f);
+		long n = 0;
+		try {
+			while (in.read() != -1)
+				n++;
+		} finally {
+			in.close();
+		}
+		return n;
+	}
+
+	static long readSourceFile(File f) {
+		SourceFile src = new SourceFile(f.getPath(), new ErrorReporter());
+		long n = 0;
+		while (src.getSource() != SourceFile.EOT)
+			n++;
+		return n;
+	}
+
+	static long scanAll(File f, boolean table) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner s = new Scanner(new SourceFile(f.getPath(), reporter), reporter, table);
+		long n = 0;
+		while (s.scan().type != Token.EOT)
+			n++;
+		return n;
+	}
+
+	static long bufferAll(File f) {
+		ErrorReporter reporter = new ErrorReporter();
+		TokenBuffer tokens = new TokenBuffer(new SourceFile(f.getPath(), reporter), reporter);
+		return tokens.size() - 1;
+	}
+
+	// through the ring buffer, holding 64 tokens at a time
+	static long streamAll(File f) throws IOException {
+		ErrorReporter reporter = new ErrorReporter();
+		FileInputStream in = new FileInputStream(f);
+		try {
+			Scanner s = new Scanner(new StreamSourceFile(in.getChannel(), reporter), reporter);
+			TokenBuffer tokens = new TokenBuffer(s, 64);
+			long n = 0;
+			for (; tokens.type() != Token.EOT; tokens.advance())
+				n++;
+			return n;
+		} finally {
+			in.close();
+		}
+	}
+
+	static long parallelAll(File f, ForkJoinPool pool) {
+		ErrorReporter reporter = new ErrorReporter();
+		TokenBuffer tokens = new ParallelScanner(new SourceFile(f.getPath(), reporter),
+				reporter, pool).scanAll();
+		return tokens.type(Integer.MAX_VALUE) == Token.EOT ? tokens.size() - 1 : 0;
+	}
+}
@@ -0,0 +1,327 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.*;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Checks a ParallelVisitor against the same pass run with no pool,
+ * then times it. The pass is Metrics, a per method count of nodes,
+ * branches (if, while, && and ||) and statement nesting depth, each
+ * method with a Metrics of its own and its class's name for argument.
+ * For every file in tests/pa1_tests that parses without errors and a
+ * generated program of SIZE KB, the per method, per class and merged
+ * results on pools of each of THREADS must equal the sequential ones,
+ * in the same order. Then the per method pass over a generated
+ * program of BENCH_SIZE KB, best of ROUNDS, with no pool and on each
+ * pool in turn, and the speedup over no pool.
+ * Optional arguments: a different directory of sources, SIZE, BENCH_SIZE.
+ */
+public class ParallelVisitorCheck {
+
+	static final int[] THREADS = { 1, 2, 4, 8 };
+	static final String SIZE = "256";
+	static final String BENCH_SIZE = "8192";
+	static final int ROUNDS = 5;
+
+	public static void main(String[] args) throws IOException {
+		File testDir = args.length > 0 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		List<File> files = new ArrayList<File>(Arrays.asList(testDir.listFiles()));
+		files.add(LexerBenchmark.input(args.length > 1 ? args[1] : SIZE));
+		ForkJoinPool[] pools = new ForkJoinPool[THREADS.length];
+		for (int k = 0; k < THREADS.length; k++)
+			pools[k] = new ForkJoinPool(THREADS[k]);
+
+		int failures = 0;
+		int checked = 0;
+		for (File x : files) {
+			ErrorReporter reporter = new ErrorReporter();
+			Package ast = parse(x, reporter);
+			if (reporter.hasErrors())
+				continue;
+			checked++;
+			Pass sequential = new Pass(null);
+			List<String> methods = sequential.visitMethods(ast, "");
+			List<String> classes = sequential.visitClasses(ast, "");
+			String merged = sequential.visitPackage(ast, "");
+			for (int k = 0; k < pools.length; k++) {
+				Pass parallel = new Pass(pools[k]);
+				if (!parallel.visitMethods(ast, "").equals(methods)
+						|| !parallel.visitClasses(ast, "").equals(classes)
+						|| !parallel.visitPackage(ast, "").equals(merged)) {
+					System.out.println(x.getName() + ": " + THREADS[k] + " threads give different results");
+					failures++;
+				}
+			}
+		}
+		System.out.println(checked + " files checked, " + failures + " failures.");
+
+		File big = LexerBenchmark.input(args.length > 2 ? args[2] : BENCH_SIZE);
+		Package ast = parse(big, new ErrorReporter());
+		System.out.println("input: " + big + " (" + big.length() + " bytes), "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		Pass[] passes = new Pass[pools.length + 1];
+		passes[0] = new Pass(null);
+		for (int k = 0; k < pools.length; k++)
+			passes[k + 1] = new Pass(pools[k]);
+		long[] best = time(passes, ast);
+		System.out.printf("no pool     %8.1f ms%n", best[0] / 1e6);
+		for (int k = 0; k < pools.length; k++)
+			System.out.printf("%2d threads  %8.1f ms, %.2fx%n", THREADS[k], best[k + 1] / 1e6,
+					(double) best[0] / best[k + 1]);
+		for (ForkJoinPool pool : pools)
+			pool.shutdown();
+	}
+
+	static Package parse(File x, ErrorReporter reporter) {
+		Scanner scanner = new Scanner(new SourceFile(x.getPath(), reporter), reporter);
+		return new Parser(scanner, reporter).parse();
+	}
+
+	/*
+	 * each pass's best of ROUNDS, after as many to warm up, the passes
+	 * taking turns so none is measured with the JIT further along
+	 */
+	static long[] time(Pass[] passes, Package ast) {
+		long[] best = new long[passes.length];
+		Arrays.fill(best, Long.MAX_VALUE);
+		for (int i = 0; i < 2 * ROUNDS; i++) {
+			for (int k = 0; k < passes.length; k++) {
+				long t0 = System.nanoTime();
+				if (passes[k].visitMethods(ast, "").isEmpty())
+					System.out.println("no methods");
+				if (i >= ROUNDS)
+					best[k] = Math.min(best[k], System.nanoTime() - t0);
+			}
+		}
+		return best;
+	}
+
+	// Metrics per method or class, the class's name the argument
+	static class Pass extends ParallelVisitor<String, String> {
+
+		Pass(ForkJoinPool pool) {
+			super(pool);
+		}
+
+		protected Visitor<String, String> visitor() {
+			return new Metrics();
+		}
+
+		protected String argument(String arg, ClassDecl cd, AST node) {
+			return arg + cd.name;
+		}
+
+		protected String merge(List<String> results) {
+			StringBuilder sb = new StringBuilder();
+			for (String r : results)
+				sb.append(r);
+			return sb.toString();
+		}
+	}
+
+	/* A line for a method: its class and name, nodes, branches and the
+	 * depth statements nest to. A class gives its methods' lines. Counts
+	 * are kept in the instance, so each method needs a Metrics of its
+	 * own to be visited at the same time as another.
+	 */
+	static class Metrics implements Visitor<String, String> {
+		int nodes, branches, depth, maxDepth;
+
+		void node(AST a) {
+			if (a != null) {
+				nodes++;
+				a.visit(this, null);
+			}
+		}
+
+		void statement(Statement s) {
+			depth++;
+			maxDepth = Math.max(maxDepth, depth);
+			node(s);
+			depth--;
+		}
+
+		public String visitPackage(Package prog, String arg) {
+			return null;
+		}
+
+		public String visitClassDecl(ClassDecl cd, String arg) {
+			StringBuilder sb = new StringBuilder();
+			for (MethodDecl md : cd.methodDeclList)
+				sb.append(md.visit(new Metrics(), arg));
+			return sb.toString();
+		}
+
+		public String visitFieldDecl(FieldDecl fd, String arg) {
+			node(fd.type);
+			return null;
+		}
+
+		public String visitMethodDecl(MethodDecl md, String arg) {
+			node(md.type);
+			for (ParameterDecl pd : md.parameterDeclList)
+				node(pd);
+			for (Statement s : md.statementList)
+				statement(s);
+			node(md.returnExp);
+			return arg + "." + md.name + ": " + nodes + " nodes, " + branches + " branches, depth "
+					+ maxDepth + "\n";
+		}
+
+		public String visitParameterDecl(ParameterDecl pd, String arg) {
+			node(pd.type);
+			return null;
+		}
+
+		public String visitVarDecl(VarDecl decl, String arg) {
+			node(decl.type);
+			return null;
+		}
+
+		public String visitBaseType(BaseType type, String arg) {
+			return null;
+		}
+
+		public String visitClassType(ClassType type, String arg) {
+			node(type.className);
+			return null;
+		}
+
+		public String visitArrayType(ArrayType type, String arg) {
+			node(type.eltType);
+			return null;
+		}
+
+		public String visitBlockStmt(BlockStmt stmt, String arg) {
+			for (Statement s : stmt.sl)
+				statement(s);
+			return null;
+		}
+
+		public String visitVardeclStmt(VarDeclStmt stmt, String arg) {
+			node(stmt.varDecl);
+			node(stmt.initExp);
+			return null;
+		}
+
+		public String visitAssignStmt(AssignStmt stmt, String arg) {
+			node(stmt.ref);
+			node(stmt.val);
+			return null;
+		}
+
+		public String visitCallStmt(CallStmt stmt, String arg) {
+			node(stmt.methodRef);
+			for (Expression e : stmt.argList)
+				node(e);
+			return null;
+		}
+
+		public String visitIfStmt(IfStmt stmt, String arg) {
+			branches++;
+			node(stmt.cond);
+			statement(stmt.thenStmt);
+			if (stmt.elseStmt != null)
+				statement(stmt.elseStmt);
+			return null;
+		}
+
+		public String visitWhileStmt(WhileStmt stmt, String arg) {
+			branches++;
+			node(stmt.cond);
+			statement(stmt.body);
+			return null;
+		}
+
+		public String visitUnaryExpr(UnaryExpr expr, String arg) {
+			node(expr.operator);
+			node(expr.expr);
+			return null;
+		}
+
+		public String visitBinaryExpr(BinaryExpr expr, String arg) {
+			if (expr.operator.spelling.equals("&&") || expr.operator.spelling.equals("||"))
+				branches++;
+			node(expr.operator);
+			node(expr.left);
+			node(expr.right);
+			return null;
+		}
+
+		public String visitRefExpr(RefExpr expr, String arg) {
+			node(expr.ref);
+			return null;
+		}
+
+		public String visitCallExpr(CallExpr expr, String arg) {
+			node(expr.functionRef);
+			for (Expression e : expr.argList)
+				node(e);
+			return null;
+		}
+
+		public String visitLiteralExpr(LiteralExpr expr, String arg) {
+			node(expr.literal);
+			return null;
+		}
+
+		public String visitNewObjectExpr(NewObjectExpr expr, String arg) {
+			node(expr.classtype);
+			return null;
+		}
+
+		public String visitNewArrayExpr(NewArrayExpr expr, String arg) {
+			node(expr.eltType);
+			node(expr.sizeExpr);
+			return null;
+		}
+
+		public String visitQualifiedRef(QualifiedRef ref, String arg) {
+			node(ref.ref);
+			node(ref.id);
+			return null;
+		}
+
+		public String visitIndexedRef(IndexedRef ref, String arg) {
+			node(ref.ref);
+			node(ref.indexExpr);
+			return null;
+		}
+
+		public String visitIdRef(IdRef ref, String arg) {
+			node(ref.id);
+			return null;
+		}
+
+		public String visitThisRef(ThisRef ref, String arg) {
+			return null;
+		}
+
+		public String visitIdentifier(Identifier id, String arg) {
+			return null;
+		}
+
+		public String visitOperator(Operator op, String arg) {
+			return null;
+		}
+
+		public String visitIntLiteral(IntLiteral num, String arg) {
+			return null;
+		}
+
+		public String visitBooleanLiteral(BooleanLiteral bool, String arg) {
+			return null;
+		}
+	}
+}
@@ -0,0 +1,235 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import miniJava.ErrorReporter;
+import miniJava.ParseCache;
+import miniJava.AbstractSyntaxTrees.ASTDisplay;
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.FlatTreeFile;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Checks a ParseCache in a fresh temp directory against parsing
+ * without it, for every file in tests/pa1_tests and a generated
+ * program of SIZE KB:
+ * 		the miss and then the hit give the same errors as the plain
+ * 		parse, and display the same, positions shown, if there are none
+ * 		an entry damaged in its header or its siblings is a miss and is
+ * 		stored again, not an exception
+ * 		THREADS threads, each with its own ParseCache on one directory,
+ * 		as separate compilers would have, parse the files in shuffled
+ * 		orders at once and all get the plain ASTs back
+ * 		a cache bounded to a third of what the test files take never
+ * 		holds more than its bound after a store, and keeps the entry
+ * 		last hit
+ * then times the generated program parsed and loaded from the cache,
+ * best of ROUNDS, and prints the stats file's totals.
+ * Optional arguments: a different directory of sources, SIZE.
+ */
+public class ParseCacheCheck {
+
+	static final String SIZE = "4096";
+	static final int THREADS = 4;
+	static final int ROUNDS = 5;
+
+	static int failures = 0;
+
+	public static void main(String[] args) throws Exception {
+		File testDir = args.length > 0 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		final List<File> files = new ArrayList<File>(Arrays.asList(testDir.listFiles()));
+		File big = LexerBenchmark.input(args.length > 1 ? args[1] : SIZE);
+		files.add(big);
+		File dir = Files.createTempDirectory("parsecache").toFile();
+		ASTDisplay.showPosition = true;
+
+		// serial: the miss stores, the hit loads
+		final List<String> errors = new ArrayList<String>();
+		final List<byte[]> trees = new ArrayList<byte[]>();
+		ParseCache cache = new ParseCache(dir, Long.MAX_VALUE);
+		for (File x : files) {
+			ErrorReporter reporter = new ErrorReporter();
+			Package ast = parse(x, reporter);
+			String expected = show(ast, reporter);
+			errors.add(reporter.errors.toString());
+			trees.add(bytes(ast));
+			for (String run : new String[] { "miss", "hit" }) {
+				long hits = cache.hits();
+				reporter = new ErrorReporter();
+				ast = cache.parse(x.getPath(), reporter);
+				String got = show(ast, reporter);
+				if (!got.equals(expected))
+					fail(x.getName() + ": " + run + " differs from parsing");
+				if ((cache.hits() > hits) != run.equals("hit") && ast != null)
+					fail(x.getName() + ": " + run + " was not a " + run);
+			}
+		}
+		System.out.println("serial: " + cache);
+
+		// damaged: an entry that cannot be read back is a miss, and stored again
+		File source = files.get(0);
+		File entry = new File(dir, ParseCache.key(new SourceFile(source.getPath(), new ErrorReporter()))
+				+ FlatTreeFile.EXTENSION);
+		byte[] good = Files.readAllBytes(entry.toPath());
+		int n = ByteBuffer.wrap(good).getInt(8);
+		// a header count past the end, a count below 0, a sibling that points back
+		int[][] damage = { { 20, Integer.MAX_VALUE }, { 8, -1 }, { 24 + 12 * n + 4, 1 } };
+		for (int[] d : damage) {
+			byte[] bad = good.clone();
+			ByteBuffer.wrap(bad).putInt(d[0], d[1]);
+			Files.write(entry.toPath(), bad);
+			ErrorReporter reporter = new ErrorReporter();
+			long misses = cache.misses();
+			String got = show(cache.parse(source.getPath(), reporter), reporter);
+			if (!got.equals(show(parse(source, reporter = new ErrorReporter()), reporter))
+					|| cache.misses() == misses)
+				fail(source.getName() + ": damaged at " + d[0] + " was not parsed again");
+			if (!Arrays.equals(Files.readAllBytes(entry.toPath()), good))
+				fail(source.getName() + ": damaged at " + d[0] + " was not replaced");
+		}
+		cache.close();
+
+		// concurrent: every thread its own cache, as its own compiler
+		final File shared = Files.createTempDirectory("parsecache").toFile();
+		Thread[] threads = new Thread[THREADS];
+		final ParseCache[] caches = new ParseCache[THREADS];
+		for (int t = 0; t < THREADS; t++) {
+			final int id = t;
+			caches[t] = new ParseCache(shared, Long.MAX_VALUE);
+			threads[t] = new Thread() {
+				public void run() {
+					List<Integer> order = new ArrayList<Integer>();
+					for (int i = 0; i < files.size(); i++)
+						order.add(i);
+					for (int round = 0; round < 2; round++) {
+						Collections.shuffle(order, new Random(id * 31 + round));
+						for (int i : order) {
+							ErrorReporter reporter = new ErrorReporter();
+							Package ast = caches[id].parse(files.get(i).getPath(), reporter);
+							if (!reporter.errors.toString().equals(errors.get(i))
+									|| !Arrays.equals(bytes(ast), trees.get(i)))
+								fail(files.get(i).getName() + ": thread " + id + " got a different AST");
+						}
+					}
+				}
+			};
+		}
+		for (Thread t : threads)
+			t.start();
+		for (Thread t : threads)
+			t.join();
+		long[] totals = null;
+		for (ParseCache c : caches) {
+			System.out.println("thread: " + c);
+			totals = c.close();
+		}
+		System.out.println("concurrent totals: " + totals[0] + " hits, " + totals[1] + " misses, "
+				+ totals[2] + " stores, " + totals[3] + " evictions");
+		for (File f : shared.listFiles())
+			if (f.getName().endsWith(".tmp"))
+				fail("temp file left: " + f);
+
+		// bounded: the directory holds at most its bound. the generated
+		// program alone would not fit, so it is left out
+		List<File> tests = files.subList(0, files.size() - 1);
+		long all = 0;
+		for (File x : tests) {
+			String key = ParseCache.key(new SourceFile(x.getPath(), new ErrorReporter()));
+			all += new File(dir, key + FlatTreeFile.EXTENSION).length() + new File(dir, key + ".errors").length();
+		}
+		File small = Files.createTempDirectory("parsecache").toFile();
+		long bound = all / 3;
+		cache = new ParseCache(small, bound);
+		File first = files.get(0);
+		for (File x : tests) {
+			cache.parse(x.getPath(), new ErrorReporter());
+			if (size(small) > bound)
+				fail("cache of " + bound + " bytes holds " + size(small) + " after " + x.getName());
+			// keep the first entry in use, so it is never the least recent
+			Thread.sleep(5);
+			long hits = cache.hits();
+			cache.parse(first.getPath(), new ErrorReporter());
+			if (cache.hits() == hits && x != first)
+				fail("entry last hit was evicted after " + x.getName());
+		}
+		System.out.println("bounded to " + bound + " of " + all + " bytes: " + cache);
+		if (cache.evictions() == 0)
+			fail("nothing was evicted");
+
+		// warm against cold
+		long parse = Long.MAX_VALUE, load = Long.MAX_VALUE;
+		cache = new ParseCache(dir, Long.MAX_VALUE);
+		for (int i = 0; i < 2 * ROUNDS; i++) {
+			long t0 = System.nanoTime();
+			parse(big, new ErrorReporter());
+			parse = Math.min(parse, System.nanoTime() - t0);
+			t0 = System.nanoTime();
+			cache.parse(big.getPath(), new ErrorReporter());
+			load = Math.min(load, System.nanoTime() - t0);
+		}
+		System.out.printf("%s (%d bytes): parsed %.1f ms, from the cache %.1f ms, %.1fx faster%n",
+				big.getName(), big.length(), parse / 1e6, load / 1e6, (double) parse / load);
+		long[] stats = cache.close();
+		System.out.println("stats file: " + stats[0] + " hits, " + stats[1] + " misses, "
+				+ stats[2] + " stores, " + stats[3] + " evictions");
+
+		for (File d : new File[] { dir, shared, small }) {
+			for (File f : d.listFiles())
+				f.delete();
+			d.delete();
+		}
+		System.out.println(files.size() + " files checked, " + failures + " failures.");
+	}
+
+	// the errors, and the AST as ASTDisplay prints it if there are none
+	static String show(Package ast, ErrorReporter reporter) {
+		if (reporter.hasErrors() || ast == null)
+			return reporter.errors.toString() + Arrays.hashCode(bytes(ast));
+		return FlatTreeCheck.show(ast);
+	}
+
+	static synchronized void fail(String message) {
+		System.out.println(message);
+		failures++;
+	}
+
+	static Package parse(File x, ErrorReporter reporter) {
+		return new Parser(new Scanner(new SourceFile(x.getPath(), reporter), reporter), reporter).parse();
+	}
+
+	// the AST as .mjast bytes, which unlike ASTDisplay any thread may make
+	static byte[] bytes(Package ast) {
+		if (ast == null)
+			return new byte[0];
+		try {
+			File f = File.createTempFile("check", FlatTreeFile.EXTENSION);
+			try {
+				FlatTreeFile.write(FlatTree.of(ast), f);
+				return Files.readAllBytes(f.toPath());
+			} finally {
+				f.delete();
+			}
+		} catch (IOException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	static long size(File dir) {
+		long size = 0;
+		for (File f : dir.listFiles())
+			if (!f.getName().equals("stats"))
+				size += f.length();
+		return size;
+	}
+}
@@ -0,0 +1,81 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Parse time and allocation per token of the hand written Parser,
+ * recursive and iterative, and of the table driven one generated from
+ * grammarv2.txt, then of the recursive Parser taking the top-level
+ * classes in parallel on 1 to 8 threads, allocation counted over all
+ * threads. The source is scanned into a TokenBuffer before each timed
+ * pass, so only the parser is measured.
+ * Pass a .java file, or a size in KB to benchmark a generated source.
+ */
+public class ParserBenchmark {
+
+	static final int ROUNDS = 5;
+	static final String[] MODES = { "recursive", "iterative", "table" };
+
+	static final com.sun.management.ThreadMXBean threads =
+			(com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "4096");
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+		for (String mode : MODES)
+			run(mode, f, null);
+		for (int threads = 1; threads <= 8; threads *= 2) {
+			ForkJoinPool pool = new ForkJoinPool(threads);
+			run("parallel " + threads, f, pool);
+			pool.shutdown();
+		}
+	}
+
+	static void run(String mode, File f, ForkJoinPool pool) {
+		long tokens = scan(f).size() - 1;
+		parse(mode, scan(f), pool);
+		long best = Long.MAX_VALUE;
+		long allocated = 0;
+		for (int i = 0; i < ROUNDS; i++) {
+			TokenBuffer buffer = scan(f);
+			long a0 = allocated();
+			long t0 = System.nanoTime();
+			Package ast = parse(mode, buffer, pool);
+			best = Math.min(best, System.nanoTime() - t0);
+			allocated = allocated() - a0;
+			if (ast == null)
+				throw new IllegalStateException(mode + " parser failed on " + f);
+		}
+		System.out.printf("%-12s %7.1f ns %6.1f bytes per token  (%d tokens)%n",
+				mode, (double) best / tokens, (double) allocated / tokens, tokens);
+	}
+
+	// by every live thread, the pool's workers stay alive between rounds
+	static long allocated() {
+		long sum = 0;
+		for (long a : threads.getThreadAllocatedBytes(threads.getAllThreadIds()))
+			sum += Math.max(a, 0);
+		return sum;
+	}
+
+	static TokenBuffer scan(File f) {
+		ErrorReporter reporter = new ErrorReporter();
+		return new TokenBuffer(new SourceFile(f.getPath(), reporter), reporter);
+	}
+
+	static Package parse(String mode, TokenBuffer tokens, ForkJoinPool pool) {
+		Parser parser = new Parser(tokens, new ErrorReporter());
+		parser.setIterative(mode.equals("iterative"));
+		parser.setTableDriven(mode.equals("table"));
+		parser.setParallel(pool);
+		return parser.parse();
+	}
+}
@@ -0,0 +1,248 @@
+package tester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.AST;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.LineIndex;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Regression check that the iterative Parser builds the same AST,
+ * positions and errors included, as the recursive one, on
+ * tests/pa1_tests and on generated programs nested DEPTH deep in
+ * every way the grammar allows. The table driven Parser is checked
+ * for the same structure only: it positions each node over its own
+ * phrase, and stops at the first error where the others go on.
+ * Positions are values, so packed ones must print the same as
+ * SourcePosition objects.
+ * The parallel mode, iterative on a pool of PARALLELISM threads, must
+ * match the recursive Parser exactly too, and is also run on
+ * generated programs of many classes, one with an error halfway.
+ * Each file is parsed and dumped by a child JVM of its own, so a
+ * crash fails only that file. The recursive parser is given
+ * RECURSIVE_STACK to get through the deep programs, the iterative one
+ * runs with the default stack.
+ * An optional argument names a different directory of sources.
+ */
+public class ParserCheck {
+
+	static final String[] MODES = { "recursive", "iterative", "table", "parallel" };
+	static final int PARALLELISM = 4;
+	static final int DEPTH = 100000;
+	static final String RECURSIVE_STACK = "-Xss1g";
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 3) {
+			dump(args[0], args[1], args[2]);
+			return;
+		}
+		File testDir = args.length == 1 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		List<File> files = new ArrayList<File>(Arrays.asList(testDir.listFiles()));
+		files.addAll(deepPrograms());
+		files.addAll(manyClasses());
+		int failures = 0;
+		for (File x : files) {
+			String objects = null;
+			for (String positions : new String[] { "objects", "packed" }) {
+				String expected = runDump(MODES[0], positions, x);
+				for (String mode : new String[] { MODES[1], MODES[3] }) {
+					if (!expected.equals(runDump(mode, positions, x))) {
+						System.out.println(x.getName() + ": " + mode + " " + positions + " AST differs!");
+						failures++;
+					}
+				}
+				if (objects == null) {
+					objects = expected;
+				} else if (!objects.equals(expected)) {
+					System.out.println(x.getName() + ": packed positions differ!");
+					failures++;
+				}
+			}
+			if (!runDump(MODES[0], "structure", x).equals(runDump(MODES[2], "structure", x))) {
+				System.out.println(x.getName() + ": table AST differs!");
+				failures++;
+			}
+		}
+		System.out.println(failures + " failures in all.");
+	}
+
+	static List<File> deepPrograms() throws IOException {
+		List<File> files = new ArrayList<File>();
+		files.add(deep("blocks", "", "{ ", "x = 1;", " }", ""));
+		files.add(deep("ifs", "", "if (b) ", "x = 1;", "", ""));
+		files.add(deep("elseifs", "", "if (b) x = 1; else ", "x = 2;", "", ""));
+		files.add(deep("whiles", "", "while (b) ", "x = 1;", "", ""));
+		files.add(deep("parens", "x = ", "(", "1", ")", ";"));
+		files.add(deep("unary", "x = ", "- ! ", "1", "", ";"));
+		files.add(deep("rightsums", "x = ", "1 + (", "1", ")", ";"));
+		files.add(deep("indexes", "x = ", "a[", "0", "]", ";"));
+		files.add(deep("calls", "f(", "f(", "", ")", ");"));
+		files.add(deep("newarrays", "x = ", "new int[", "1", "]", ";"));
+		files.add(deep("dots", "x = a", ".b", "", "", ";"));
+		files.add(deep("dotstmt", "a", ".b", "", "", " = 1;"));
+		files.add(deep("mixed", "x = ", "a[f(-(this.b[", "1", "]))]", ";"));
+		files.add(deep("unclosed", "x = ", "(", "1", "", ";"));
+		return files;
+	}
+
+	static List<File> manyClasses() throws IOException {
+		List<File> files = new ArrayList<File>();
+		File f = SourceGenerator.temp(1 << 18);
+		files.add(f);
+		String source = new String(Files.readAllBytes(f.toPath()));
+		int half = source.indexOf("\nclass ", source.length() / 2) + 1;
+		File broken = File.createTempFile("broken", ".java");
+		broken.deleteOnExit();
+		Files.write(broken.toPath(), (source.substring(0, half) + "class { }\n"
+				+ source.substring(half)).getBytes());
+		files.add(broken);
+		return files;
+	}
+
+	/*
+	 * a method body of prefix open^DEPTH middle close^DEPTH suffix,
+	 * a line each, as a LineIndex column lookup is linear in the line
+	 */
+	static File deep(String name, String prefix, String open, String middle,
+			String close, String suffix) throws IOException {
+		File f = File.createTempFile("deep-" + name, ".java");
+		f.deleteOnExit();
+		Writer w = new FileWriter(f);
+		try {
+			w.write("class Deep {\n\tvoid run() {\n\t\t" + prefix);
+			for (int i = 0; i < DEPTH; i++)
+				w.write(open + "\n");
+			w.write(middle);
+			for (int i = 0; i < DEPTH; i++)
+				w.write(close + "\n");
+			w.write(suffix + "\n\t}\n}\n");
+		} finally {
+			w.close();
+		}
+		return f;
+	}
+
+	/*
+	 * positions are objects, packed or left out for the structure only,
+	 * when all errors are the same
+	 */
+	static void dump(String mode, String positions, String file) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new SourceFile(file, reporter), reporter);
+		Package ast;
+		try {
+			Parser parser = new Parser(scanner, reporter, false, positions.equals("packed"));
+			parser.setIterative(mode.equals("iterative") || mode.equals("parallel"));
+			if (mode.equals("parallel"))
+				parser.setParallel(new ForkJoinPool(PARALLELISM));
+			parser.setTableDriven(mode.equals("table"));
+			ast = parser.parse();
+		} catch (StackOverflowError soe) {
+			System.out.println("StackOverflowError");
+			return;
+		} catch (RuntimeException e) {
+			System.out.println(e);
+			return;
+		}
+		boolean structure = positions.equals("structure");
+		if (structure && reporter.hasErrors()) {
+			System.out.println("errors");
+			return;
+		}
+		for (String e : reporter.errors)
+			System.out.println(e);
+		dumpTree(ast, !structure);
+	}
+
+	/*
+	 * every node with its depth, position and the plain values in its
+	 * public fields, in preorder. a loop rather than ASTDisplay, which
+	 * would recurse (and indent) as deep as the tree goes
+	 */
+	static void dumpTree(Package ast, boolean positions) {
+		LineIndex lines = ast != null ? ast.lineIndex : null;
+		StringBuilder sb = new StringBuilder();
+		ArrayDeque<Object[]> todo = new ArrayDeque<Object[]>();
+		todo.push(new Object[] { ast, 0 });
+		while (!todo.isEmpty()) {
+			Object[] next = todo.pop();
+			Object node = next[0];
+			int depth = (Integer) next[1];
+			sb.setLength(0);
+			sb.append(depth).append(' ');
+			if (node == null) {
+				System.out.println(sb.append("null"));
+				continue;
+			}
+			AST a = (AST) node;
+			sb.append(a.getClass().getSimpleName());
+			if (positions)
+				sb.append(' ').append(a.posn != null ? a.posn : lines != null ? lines.position(a.pos) : "");
+			List<Object> children = new ArrayList<Object>();
+			for (Field field : fields(a.getClass())) {
+				Object value;
+				try {
+					value = field.get(a);
+				} catch (IllegalAccessException e) {
+					throw new RuntimeException(e);
+				}
+				if (value instanceof String || value instanceof Boolean || value instanceof Enum)
+					sb.append(' ').append(field.getName()).append('=').append(value);
+				else if (value instanceof Iterable)
+					for (Object element : (Iterable<?>) value)
+						children.add(element);
+				else if (AST.class.isAssignableFrom(field.getType()))
+					children.add(value);
+			}
+			System.out.println(sb);
+			for (int i = children.size() - 1; i >= 0; i--)
+				todo.push(new Object[] { children.get(i), depth + 1 });
+		}
+	}
+
+	static Field[] fields(Class<?> c) {
+		Field[] fields = c.getFields();
+		Arrays.sort(fields, new Comparator<Field>() {
+			public int compare(Field a, Field b) {
+				return a.getName().compareTo(b.getName());
+			}
+		});
+		return fields;
+	}
+
+	private static String runDump(String mode, String positions, File x)
+			throws IOException, InterruptedException {
+		List<String> command = new ArrayList<String>();
+		command.add("java");
+		if (mode.equals("recursive"))
+			command.add(RECURSIVE_STACK);
+		command.addAll(Arrays.asList("-cp", System.getProperty("java.class.path"),
+				"tester.ParserCheck", mode, positions, x.getPath()));
+		Process p = new ProcessBuilder(command).redirectErrorStream(true).start();
+		InputStream in = p.getInputStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) != -1)
+			out.write(buf, 0, n);
+		p.waitFor();
+		return out.toString() + "exit=" + p.exitValue();
+	}
+}
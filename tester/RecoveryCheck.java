@@ -0,0 +1,113 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Checks that the Parser reports all the errors of a program in one
+ * pass, each once. Every fail*.java in tests/pa1_tests must give
+ * between 1 and MAX_ERRORS errors and every pass*.java none, with
+ * the recursive and with the iterative Parser. Then the fail*.java
+ * are compiled together as one program, which must give each file's
+ * errors in turn, as if each had been compiled alone: an error must
+ * not cascade into the next class. An unterminated comment hides
+ * everything after it, so only one such file goes in, and it goes
+ * last. The errors are compared without their positions.
+ * An optional argument names a different directory of sources.
+ */
+public class RecoveryCheck {
+
+	static final int MAX_ERRORS = 2;
+	static final String UNTERMINATED = "Unterminated comment.";
+
+	public static void main(String[] args) throws IOException {
+		File testDir = args.length == 1 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		File[] files = testDir.listFiles();
+		Arrays.sort(files);
+		int failures = 0;
+		for (boolean iterative : new boolean[] { false, true }) {
+			String mode = iterative ? "iterative" : "recursive";
+			List<File> fails = new ArrayList<File>();
+			List<String> expected = new ArrayList<String>();
+			File last = null;
+			int[] counts = new int[MAX_ERRORS + 2];
+			for (File x : files) {
+				List<String> errors = parse(x, iterative);
+				boolean fail = x.getName().startsWith("fail");
+				if (fail ? errors.isEmpty() || errors.size() > MAX_ERRORS : !errors.isEmpty()) {
+					System.out.println(x.getName() + ": " + mode + " reports " + errors.size()
+							+ " errors " + errors);
+					failures++;
+				}
+				if (!fail)
+					continue;
+				counts[Math.min(errors.size(), MAX_ERRORS + 1)]++;
+				if (errors.contains(UNTERMINATED)) {
+					if (last == null)
+						last = x;
+					continue;
+				}
+				fails.add(x);
+				expected.addAll(withoutPositions(errors));
+			}
+			if (last != null) {
+				fails.add(last);
+				expected.addAll(withoutPositions(parse(last, iterative)));
+			}
+			System.out.println(mode + ": fail files with 0, 1, .. " + MAX_ERRORS + ", more errors: "
+					+ Arrays.toString(counts));
+
+			File all = concatenate(fails);
+			List<String> actual = withoutPositions(parse(all, iterative));
+			if (!actual.equals(expected)) {
+				System.out.println(mode + ": " + fails.size() + " fail files together give "
+						+ actual.size() + " errors, not " + expected.size());
+				for (int i = 0; i < Math.max(actual.size(), expected.size()); i++) {
+					String a = i < actual.size() ? actual.get(i) : "";
+					String e = i < expected.size() ? expected.get(i) : "";
+					if (!a.equals(e)) {
+						System.out.println("\tfirst difference: " + a + " / expected " + e);
+						break;
+					}
+				}
+				failures++;
+			}
+		}
+		System.out.println(failures + " failures in all.");
+	}
+
+	static List<String> parse(File x, boolean iterative) {
+		ErrorReporter reporter = new ErrorReporter();
+		Scanner scanner = new Scanner(new SourceFile(x.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter);
+		parser.setIterative(iterative);
+		parser.parse();
+		return reporter.errors;
+	}
+
+	static List<String> withoutPositions(List<String> errors) {
+		List<String> stripped = new ArrayList<String>();
+		for (String e : errors)
+			stripped.add(e.replaceAll(" Lines?: .*$", ""));
+		return stripped;
+	}
+
+	static File concatenate(List<File> files) throws IOException {
+		File all = File.createTempFile("fails", ".java");
+		all.deleteOnExit();
+		StringBuilder sb = new StringBuilder();
+		for (File x : files)
+			sb.append(new String(Files.readAllBytes(x.toPath()))).append('\n');
+		Files.write(all.toPath(), sb.toString().getBytes());
+		return all;
+	}
+}
@@ -0,0 +1,93 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Random;
+
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Cost of Scanner.relex() after a single keystroke, against scanning
+ * the edited file again from scratch. Makes EDITS random edits (a char
+ * typed or deleted) one after another, as an editor would, and checks
+ * every result against the full rescan.
+ * Pass a .java file, or a size in KB (default 240, about 10k lines).
+ * Comment delimiters are never typed or deleted, so no edit leaves a
+ * comment unterminated.
+ */
+public class RelexBenchmark {
+
+	static final int EDITS = 2000;
+	static final String TYPED = "abcxyz019_ ;(){}=&|\n\t";
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "240");
+		ErrorReporter reporter = new ErrorReporter();
+		TokenBuffer tokens = new TokenBuffer(new SourceFile(f.getPath(), reporter), reporter);
+		System.out.println("input: " + f + " (" + f.length() + " bytes, "
+				+ tokens.line(tokens.size() - 1) + " lines)");
+
+		Random rnd = new Random(42);
+		long[] relex = new long[EDITS];
+		long[] full = new long[EDITS];
+		int mismatches = 0;
+		for (int e = 0; e < EDITS; e++) {
+			SourceFile src = (SourceFile) tokens.getSourceFile();
+			int offset = rnd.nextInt(src.length());
+			int removed = 0;
+			String inserted = "";
+			if (rnd.nextBoolean() && src.charAt(offset) != '/' && src.charAt(offset) != '*')
+				removed = 1;
+			else
+				inserted = String.valueOf(TYPED.charAt(rnd.nextInt(TYPED.length())));
+
+			ErrorReporter relexErrors = new ErrorReporter();
+			long t0 = System.nanoTime();
+			Scanner.relex(tokens, offset, removed, inserted, relexErrors);
+			relex[e] = System.nanoTime() - t0;
+
+			ErrorReporter fullErrors = new ErrorReporter();
+			t0 = System.nanoTime();
+			TokenBuffer expected = new TokenBuffer(((SourceFile) tokens.getSourceFile()).duplicate(), fullErrors);
+			full[e] = System.nanoTime() - t0;
+
+			if (!same(tokens, relexErrors, expected, fullErrors)) {
+				if (mismatches == 0)
+					System.out.println("edit " + e + " at " + offset + ": relex differs from a rescan");
+				mismatches++;
+			}
+		}
+
+		// the first edits run before the JIT has compiled anything
+		int warm = EDITS / 4;
+		report("Scanner.relex()", Arrays.copyOfRange(relex, warm, EDITS));
+		report("full rescan", Arrays.copyOfRange(full, warm, EDITS));
+		System.out.println(mismatches + " mismatches in " + EDITS + " edits.");
+	}
+
+	static boolean same(TokenBuffer a, ErrorReporter aErrors, TokenBuffer b, ErrorReporter bErrors) {
+		for (int i = 0; ; i++) {
+			if (a.type(i) != b.type(i) || a.offset(i) != b.offset(i)
+					|| a.length(i) != b.length(i) || a.line(i) != b.line(i)
+					|| a.column(i) != b.column(i) || a.finish(i) != b.finish(i))
+				return false;
+			if (a.type(i) == Token.EOT)
+				break;
+		}
+		return aErrors.errors.equals(bErrors.errors);
+	}
+
+	static void report(String name, long[] nanos) {
+		Arrays.sort(nanos);
+		long sum = 0;
+		for (long t : nanos)
+			sum += t;
+		System.out.printf("%-18s mean %8.1f us   median %8.1f us   p99 %8.1f us   max %8.1f us%n",
+				name, sum / 1e3 / nanos.length, nanos[nanos.length / 2] / 1e3,
+				nanos[nanos.length * 99 / 100] / 1e3, nanos[nanos.length - 1] / 1e3);
+	}
+}
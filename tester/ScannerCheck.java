@@ -0,0 +1,123 @@
+package tester;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.SyntacticAnalyzer.ParallelScanner;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+import miniJava.SyntacticAnalyzer.StreamSourceFile;
+import miniJava.SyntacticAnalyzer.Token;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Regression check that every scanner mode produces the same token
+ * stream as the original hand-written Scanner on tests/pa1_tests.
+ * Each file is dumped by a child JVM (the scanner may exit(4) on an
+ * unterminated comment) and the dumps are compared.
+ * An optional argument names a different directory of sources.
+ */
+public class ScannerCheck {
+
+	static final String[] MODES = { "switch", "table", "parallel", "stream" };
+
+	// tiny chunks, so even the small test files get cut many times
+	static final int PARALLEL_CHUNK_SIZE = 16;
+	// a tiny ring and token window, so both wrap (and the ring grows) often
+	static final int STREAM_RING_SIZE = 16;
+	static final int STREAM_WINDOW = 2;
+
+	public static void main(String[] args) throws IOException, InterruptedException {
+		if (args.length == 2) {
+			dump(args[0], args[1]);
+			return;
+		}
+		File testDir = args.length == 1 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		int failures = 0;
+		for (File x : testDir.listFiles()) {
+			String expected = runDump(MODES[0], x);
+			for (int i = 1; i < MODES.length; i++) {
+				if (!expected.equals(runDump(MODES[i], x))) {
+					System.out.println(x.getName() + ": " + MODES[i]
+							+ " token stream differs!");
+					failures++;
+				}
+			}
+		}
+		System.out.println(failures + " failures in all.");
+	}
+
+	static Scanner scanner(String mode, SourceFile src, ErrorReporter reporter) {
+		if (mode.equals("table"))
+			return new Scanner(src, reporter, true);
+		return new Scanner(src, reporter);
+	}
+
+	static void dump(String mode, String file) throws IOException {
+		ErrorReporter reporter = new ErrorReporter();
+		if (mode.equals("parallel")) {
+			dumpParallel(new SourceFile(file, reporter), reporter);
+			return;
+		}
+		if (mode.equals("stream")) {
+			dumpStream(file, reporter);
+			return;
+		}
+		Scanner s = scanner(mode, new SourceFile(file, reporter), reporter);
+		Token t;
+		do {
+			t = s.scan();
+			System.out.println(t);
+		} while (t.type != Token.EOT);
+		for (String e : reporter.errors)
+			System.out.println(e);
+	}
+
+	static void dumpParallel(SourceFile src, ErrorReporter reporter) {
+		TokenBuffer tokens = new ParallelScanner(src, reporter, new ForkJoinPool(4),
+				PARALLEL_CHUNK_SIZE, false).scanAll();
+		Token t;
+		int i = 0;
+		do {
+			t = tokens.token(i++);
+			System.out.println(t);
+		} while (t.type != Token.EOT);
+		for (String e : reporter.errors)
+			System.out.println(e);
+	}
+
+	static void dumpStream(String file, ErrorReporter reporter) throws IOException {
+		FileInputStream in = new FileInputStream(file);
+		StreamSourceFile src = new StreamSourceFile(in.getChannel(), reporter, STREAM_RING_SIZE);
+		TokenBuffer tokens = new TokenBuffer(new Scanner(src, reporter), STREAM_WINDOW);
+		Token t;
+		int i = 0;
+		do {
+			t = tokens.token(i++);
+			System.out.println(t);
+		} while (t.type != Token.EOT);
+		for (String e : reporter.errors)
+			System.out.println(e);
+		in.close();
+	}
+
+	private static String runDump(String mode, File x) throws IOException, InterruptedException {
+		ProcessBuilder pb = new ProcessBuilder("java", "-cp",
+				System.getProperty("java.class.path"), "tester.ScannerCheck",
+				mode, x.getPath()).redirectErrorStream(true);
+		Process p = pb.start();
+		InputStream in = p.getInputStream();
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		byte[] buf = new byte[8192];
+		int n;
+		while ((n = in.read(buf)) != -1)
+			out.write(buf, 0, n);
+		p.waitFor();
+		return out.toString() + "exit=" + p.exitValue();
+	}
+}
@@ -0,0 +1,131 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.ASTDisplay;
+import miniJava.AbstractSyntaxTrees.FlatTree;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.AbstractSyntaxTrees.SharedLeaves;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.Scanner;
+import miniJava.SyntacticAnalyzer.SourceFile;
+
+/* Checks that a Parser given SharedLeaves reports the same errors as
+ * one without, and, where there are none, builds a tree ASTDisplay
+ * prints exactly the same, positions shown, with the shared leaves'
+ * positions from the Package's LeafPositions, in every mode of
+ * ParserCheck and with SourcePosition objects and packed positions,
+ * for every file in tests/pa1_tests and a generated program of SIZE
+ * KB. A tree dropped must not be held by the SharedLeaves it was
+ * shared by, and FlatTree must refuse a tree with shared leaves.
+ * Then the heap saved on the corpus: the retained heap of every
+ * tests/pa1_tests tree held at once, with one SharedLeaves for them
+ * all as one compiler run would have, against none (see
+ * HeapBenchmark for a single large source).
+ * Optional arguments: a different directory of sources, SIZE.
+ */
+public class SharedLeavesCheck {
+
+	static final String SIZE = "256";
+	static final ForkJoinPool pool = new ForkJoinPool(ParserCheck.PARALLELISM);
+
+	public static void main(String[] args) throws IOException {
+		File testDir = args.length > 0 ? new File(args[0])
+				: new File(System.getProperty("java.class.path") + "/tests/pa1_tests/");
+		List<File> corpus = Arrays.asList(testDir.listFiles());
+		List<File> files = new ArrayList<File>(corpus);
+		files.add(LexerBenchmark.input(args.length > 1 ? args[1] : SIZE));
+		ASTDisplay.showPosition = true;
+		int failures = 0;
+		int checked = 0;
+		long shared = 0;
+		for (File x : files) {
+			for (String mode : ParserCheck.MODES) {
+				for (boolean packed : new boolean[] { false, true }) {
+					ErrorReporter plainReporter = new ErrorReporter();
+					Package plain = parse(x, mode, packed, plainReporter, null);
+					ErrorReporter reporter = new ErrorReporter();
+					SharedLeaves leaves = new SharedLeaves();
+					Package ast = parse(x, mode, packed, reporter, leaves);
+					String what = x.getName() + " " + mode + (packed ? " packed" : "");
+					if (!reporter.errors.equals(plainReporter.errors)) {
+						System.out.println(what + ": errors differ with shared leaves");
+						failures++;
+					} else if (plain != null && !reporter.hasErrors()) {
+						checked++;
+						if (ast.leaves != null)
+							shared += ast.leaves.size();
+						if (ast.leaves == null || ast.leaves.leaves() != leaves) {
+							System.out.println(what + ": the Package does not hold its leaves' positions");
+							failures++;
+						} else if (!FlatTreeCheck.show(ast).equals(FlatTreeCheck.show(plain))) {
+							System.out.println(what + ": shared leaves display differently");
+							failures++;
+						}
+					}
+				}
+			}
+		}
+
+		// the SharedLeaves outlives the trees, and holds on to none of them
+		File big = files.get(files.size() - 1);
+		SharedLeaves kept = new SharedLeaves();
+		WeakReference<Package> dropped = new WeakReference<Package>(
+				parse(big, "recursive", false, new ErrorReporter(), kept));
+		HeapBenchmark.usedAfterGC();
+		if (dropped.get() != null) {
+			System.out.println(big.getName() + ": the tree is still held after it was dropped");
+			failures++;
+		}
+		// and a FlatTree takes no tree with shared leaves
+		try {
+			FlatTree.of(parse(big, "recursive", false, new ErrorReporter(), kept));
+			System.out.println(big.getName() + ": flattened with its shared leaves' positions lost");
+			failures++;
+		} catch (IllegalArgumentException e) {
+			// refused
+		}
+		System.out.println(checked + " trees checked, " + shared + " leaves shared, " + failures + " failures.");
+
+		for (boolean packed : new boolean[] { false, true }) {
+			long none = retained(corpus, packed, false);
+			long some = retained(corpus, packed, true);
+			System.out.printf("%s: %d files, %d bytes retained, %d with shared leaves, %d saved (%.1f%%)%n",
+					packed ? "packed positions" : "SourcePosition", corpus.size(), none, some, none - some,
+					100.0 * (none - some) / none);
+		}
+	}
+
+	static Package parse(File x, String mode, boolean packed, ErrorReporter reporter, SharedLeaves leaves) {
+		Scanner scanner = new Scanner(new SourceFile(x.getPath(), reporter), reporter);
+		Parser parser = new Parser(scanner, reporter, false, packed);
+		parser.setIterative(!mode.equals("recursive"));
+		parser.setTableDriven(mode.equals("table"));
+		if (mode.equals("parallel"))
+			parser.setParallel(pool);
+		parser.setLeaves(leaves);
+		return parser.parse();
+	}
+
+	// heap held by the trees of files, parsed by recursive descent
+	static long retained(List<File> files, boolean packed, boolean share) {
+		// warm up so class loading does not count
+		parse(files.get(0), "recursive", packed, new ErrorReporter(), share ? new SharedLeaves() : null);
+		long before = HeapBenchmark.usedAfterGC();
+		SharedLeaves leaves = share ? new SharedLeaves() : null;
+		List<Package> trees = new ArrayList<Package>();
+		for (File x : files)
+			trees.add(parse(x, "recursive", packed, new ErrorReporter(), leaves));
+		long after = HeapBenchmark.usedAfterGC();
+		if (trees.size() < 0)
+			System.out.println(leaves);
+		return after - before;
+	}
+}
@@ -0,0 +1,99 @@
+package tester;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.Writer;
+
+/* Writes large, syntactically valid miniJava programs for the benchmarks.
+ * Output is deterministic for a given size so runs can be compared.
+ * The commented variant wraps the same code in long block and line
+ * comments, like documented or machine generated sources.
+ */
+public class SourceGenerator {
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("usage: SourceGenerator <out.java> <kilobytes> [commented]");
+			return;
+		}
+		write(new File(args[0]), Integer.parseInt(args[1]) * 1024L,
+				args.length > 2 && args[2].equals("commented"));
+	}
+
+	public static File temp(long bytes) throws IOException {
+		return temp(bytes, false);
+	}
+
+	public static File temp(long bytes, boolean commented) throws IOException {
+		File f = File.createTempFile("gen", ".java");
+		f.deleteOnExit();
+		write(f, bytes, commented);
+		return f;
+	}
+
+	public static void write(File f, long bytes) throws IOException {
+		write(f, bytes, false);
+	}
+
+	public static void write(File f, long bytes, boolean commented) throws IOException {
+		write(new FileWriter(f), bytes, commented);
+	}
+
+	// the same program to w, e.g. into a pipe, closing it
+	public static void write(Writer w, long bytes, boolean commented) throws IOException {
+		try {
+			long written = 0;
+			int n = 0;
+			while (written < bytes) {
+				String cls = commented ? commentedClassDecl(n++) : classDecl(n++);
+				w.write(cls);
+				written += cls.length();
+			}
+		} finally {
+			w.close();
+		}
+	}
+
+	static String classDecl(int n) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("/* generated class ").append(n).append(" */\n");
+		sb.append("class C").append(n).append(" {\n");
+		sb.append("\tprivate int count;\n");
+		sb.append("\tpublic int[] flags;\n");
+		sb.append("\tC").append(n).append(" next;\n\n");
+		for (int m = 0; m < 4; m++) {
+			sb.append("\t// method ").append(m).append('\n');
+			sb.append("\tpublic int m").append(m).append("(int a, int b, C").append(n).append(" o) {\n");
+			sb.append("\t\tint x = a + b * 3 - (a / 2);\n");
+			sb.append("\t\tint[] arr = new int[10];\n");
+			sb.append("\t\tboolean done = x >= 10 && !(b != a) || false;\n");
+			sb.append("\t\twhile (x < 100) {\n");
+			sb.append("\t\t\tarr[x / 10] = arr[x / 10] + 1;\n");
+			sb.append("\t\t\tx = x + 1;\n");
+			sb.append("\t\t}\n");
+			sb.append("\t\tif (done) o.next.count = x; else this.count = -x;\n");
+			sb.append("\t\to.m").append(m).append("(x, 2, this);\n");
+			sb.append("\t\treturn this.count + o.next.m").append(m).append("(1, 2, o);\n");
+			sb.append("\t}\n\n");
+		}
+		sb.append("}\n\n");
+		return sb.toString();
+	}
+
+	static String commentedClassDecl(int n) {
+		StringBuilder sb = new StringBuilder();
+		sb.append("/**\n");
+		for (int i = 0; i < 24; i++)
+			sb.append(" * Generated documentation line ").append(i)
+				.append(" for class C").append(n).append(", describing fields and methods.\n");
+		sb.append(" */\n");
+		for (String line : classDecl(n).split("\n")) {
+			sb.append(line);
+			if (line.trim().endsWith(";") || line.trim().endsWith("{"))
+				sb.append("\t\t// ").append("trailing remark about this statement in class C").append(n);
+			sb.append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,100 @@
+package tester;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+
+import jdk.jfr.Recording;
+import miniJava.ErrorReporter;
+import miniJava.AbstractSyntaxTrees.Package;
+import miniJava.SyntacticAnalyzer.JfrTrace;
+import miniJava.SyntacticAnalyzer.ParseTrace;
+import miniJava.SyntacticAnalyzer.Parser;
+import miniJava.SyntacticAnalyzer.PrintTrace;
+import miniJava.SyntacticAnalyzer.RingTrace;
+import miniJava.SyntacticAnalyzer.TokenBuffer;
+
+/* Parse time and allocation per token of the recursive Parser with
+ * tracing off, then with each ParseTrace sink: a RingTrace, a JfrTrace
+ * with no recording and with a recording of its events, and the
+ * verbose PrintTrace into a stream that drops everything. Tracing off
+ * is timed first, while the trace calls have only ever seen OFF and
+ * the JIT can drop them, and again at the end, once they have seen
+ * every sink. Timed like ParserBenchmark, after WARMUP untimed passes
+ * for the JIT to settle.
+ * Pass a .java file, or a size in KB to benchmark a generated source,
+ * then optionally one of SINKS to time only that one, in a JVM that
+ * has seen no other.
+ */
+public class TraceBenchmark {
+
+	static final int RING = 4096;
+	static final int WARMUP = 15;
+	static final String[] SINKS = { "off", "ring", "jfr", "jfr recorded", "print" };
+
+	public static void main(String[] args) throws IOException {
+		File f = LexerBenchmark.input(args.length > 0 ? args[0] : "1024");
+		System.out.println("input: " + f + " (" + f.length() + " bytes)");
+		if (args.length > 1) {
+			run(args[1], f);
+			return;
+		}
+		for (String sink : SINKS)
+			run(sink, f);
+		run("off again", f);
+	}
+
+	static void run(String sink, File f) {
+		if (!sink.equals("jfr recorded")) {
+			run(sink, f, trace(sink));
+			return;
+		}
+		Recording recording = new Recording();
+		recording.enable("miniJava.ParseRule");
+		recording.enable("miniJava.Accept");
+		recording.start();
+		run(sink, f, trace(sink));
+		recording.close();
+	}
+
+	static ParseTrace trace(String sink) {
+		if (sink.equals("ring"))
+			return new RingTrace(RING);
+		if (sink.startsWith("jfr"))
+			return new JfrTrace();
+		if (sink.equals("print"))
+			return new PrintTrace(new PrintStream(new OutputStream() {
+				public void write(int b) {}
+
+				public void write(byte[] b, int off, int len) {}
+			}));
+		return ParseTrace.OFF;
+	}
+
+	static void run(String sink, File f, ParseTrace trace) {
+		long tokens = ParserBenchmark.scan(f).size() - 1;
+		for (int i = 0; i < WARMUP; i++)
+			parse(ParserBenchmark.scan(f), trace);
+		long best = Long.MAX_VALUE;
+		long allocated = 0;
+		for (int i = 0; i < ParserBenchmark.ROUNDS; i++) {
+			TokenBuffer buffer = ParserBenchmark.scan(f);
+			long a0 = ParserBenchmark.allocated();
+			long t0 = System.nanoTime();
+			Package ast = parse(buffer, trace);
+			best = Math.min(best, System.nanoTime() - t0);
+			allocated = ParserBenchmark.allocated() - a0;
+			if (ast == null)
+				throw new IllegalStateException("parser failed on " + f);
+		}
+		System.out.printf("%-12s %7.1f ns %6.1f bytes per token  (%d tokens)%n",
+				sink, (double) best / tokens, (double) allocated / tokens, tokens);
+	}
+
+	static Package parse(TokenBuffer tokens, ParseTrace trace) {
+		Parser parser = new Parser(tokens, new ErrorReporter());
+		parser.setTrace(trace);
+		return parser.parse();
+	}
+}